@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URIBuilderBenchmarks {
+
+    public enum Alphabet {
+        ASCII("orders", "page"),
+        NON_ASCII("заказы", "страница");
+
+        private final String segment;
+        private final String param;
+
+        Alphabet(String segment, String param) {
+            this.segment = segment;
+            this.param = param;
+        }
+    }
+
+    @Param({"0", "2", "8"})
+    int segmentCount;
+
+    @Param({"0", "2", "8"})
+    int paramCount;
+
+    @Param
+    Alphabet alphabet;
+
+    private URIBuilder reusedBuilder;
+
+    @Setup
+    public void setUp() {
+        reusedBuilder = newBuilder();
+    }
+
+    private URIBuilder newBuilder() {
+        URIBuilder builder = URIBuilder.withValidHost("api.example.com")
+                .port(8443);
+        for (int i = 0; i < segmentCount; i++) {
+            builder.pathSegment(alphabet.segment + i);
+        }
+        for (int i = 0; i < paramCount; i++) {
+            builder.param(alphabet.param + i, alphabet.segment + i);
+        }
+        return builder;
+    }
+
+    @Benchmark
+    public URI configureAndBuild() {
+        return newBuilder().build();
+    }
+
+    @Benchmark
+    public URI rebuild() {
+        return reusedBuilder.build();
+    }
+}
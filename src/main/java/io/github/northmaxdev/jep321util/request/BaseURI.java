@@ -0,0 +1,480 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of a {@link URIBuilder}'s configuration, obtained with {@link URIBuilder#freeze()}, from which
+ * derived URIs can be built cheaply. A typical use case is holding one instance per upstream service (scheme, host,
+ * port and API prefix) and deriving every request's URI from it:
+ * <pre>{@code
+ * BaseURI api = URIBuilder.withValidHost("example.com")
+ *         .pathSegment("api")
+ *         .pathSegment("v2")
+ *         .freeze();
+ *
+ * URI uri = api.pathSegment("orders")
+ *         .pathSegment(12345)
+ *         .build();
+ * }</pre>
+ * Instances of this class are immutable and thread-safe. The derivation methods ({@code pathSegment} and
+ * {@code param}) never modify the instance they are called on, and return a new instance instead. The new instance
+ * shares its parent's already-parsed scheme and authority as well as its parent's percent-encoded path and query,
+ * which are kept as chains of immutable nodes: a derivation only encodes the added path segment or query parameter
+ * and links it to its parent's chain, so it takes constant time (apart from the encoding) no matter how long the
+ * chain already is. The chains are only turned into strings when they are first needed, e.g. by {@link #build()},
+ * which takes time proportional to the length of the resulting URI.
+ *
+ * @apiNote Apart from being immutable, instances of this class behave the same way as {@link URIBuilder}: the same
+ * values are rejected, the values are encoded the same way and setting an existing query parameter replaces its value
+ * in place. Unlike {@link URIBuilder}, however, two instances are equal only if they produce the same URI, which also
+ * takes the order of query parameters into account.
+ */
+public final class BaseURI {
+
+    private final HTTPScheme scheme;
+    private final String host;
+    private final Integer port;
+    private final URI root;
+    private final PathNode pathTail; /* null if the path is empty */
+    private final String frozenQuery; /* The query of the frozen builder, encoded */
+    private final ParamNode paramTail; /* Parameters set after freezing, null if none */
+
+    /*
+     * Materialized lazily, with the same benign race as String.hashCode(): every thread that finds them unset computes
+     * equal strings, and strings are safe to publish without synchronization.
+     */
+    private String path; /* Encoded, without the leading slash */
+    private String query; /* Encoded, without the leading question mark */
+
+    BaseURI(HTTPScheme scheme, String host, Integer port, URI root, String path, String query) {
+        this(scheme, host, port, root, path.isEmpty() ? null : new PathNode(null, path), query, null);
+    }
+
+    private BaseURI(HTTPScheme scheme, String host, Integer port, URI root, PathNode pathTail, String frozenQuery,
+                    ParamNode paramTail) {
+        this.scheme = scheme;
+        this.host = host;
+        this.port = port;
+        this.root = root;
+        this.pathTail = pathTail;
+        this.frozenQuery = frozenQuery;
+        this.paramTail = paramTail;
+    }
+
+    /**
+     * Derives an instance with an added path segment.
+     *
+     * @param s a string that is neither {@code null} nor empty
+     * @return a new instance
+     * @throws NullPointerException     if the given string is {@code null}
+     * @throws IllegalArgumentException if the given string is empty
+     * @see URIBuilder#pathSegment(String)
+     */
+    public BaseURI pathSegment(String s) {
+        Objects.requireNonNull(s, "Path segment cannot be null");
+        if (s.isEmpty()) {
+            throw new IllegalArgumentException("Path segment cannot be empty");
+        }
+
+        PathNode derivedPath = new PathNode(pathTail, PercentEncoding.encode(s));
+        return new BaseURI(scheme, host, port, root, derivedPath, frozenQuery, paramTail);
+    }
+
+    /**
+     * {@link #pathSegment(String)} overload for values of type {@code byte}.
+     *
+     * @param b a {@code byte} value
+     * @return a new instance
+     */
+    public BaseURI pathSegment(byte b) {
+        return pathSegment(Byte.toString(b));
+    }
+
+    /**
+     * {@link #pathSegment(String)} overload for values of type {@code short}.
+     *
+     * @param s a {@code short} value
+     * @return a new instance
+     */
+    public BaseURI pathSegment(short s) {
+        return pathSegment(Short.toString(s));
+    }
+
+    /**
+     * {@link #pathSegment(String)} overload for values of type {@code int}.
+     *
+     * @param i an {@code int} value
+     * @return a new instance
+     */
+    public BaseURI pathSegment(int i) {
+        return pathSegment(Integer.toString(i));
+    }
+
+    /**
+     * {@link #pathSegment(String)} overload for values of type {@code long}.
+     *
+     * @param l a {@code long} value
+     * @return a new instance
+     */
+    public BaseURI pathSegment(long l) {
+        return pathSegment(Long.toString(l));
+    }
+
+    /**
+     * Derives an instance with a set query parameter. If this instance already has a parameter with the same name,
+     * its value is replaced and its position is preserved.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value, must be neither {@code null} nor empty
+     * @return a new instance
+     * @throws NullPointerException     if either the name or value is {@code null}
+     * @throws IllegalArgumentException if either the name or value is empty
+     * @see URIBuilder#param(String, String)
+     */
+    public BaseURI param(String name, String value) {
+        Objects.requireNonNull(name, "Parameter name cannot be null");
+        Objects.requireNonNull(value, "Parameter value cannot be null");
+
+        if (name.isEmpty() || value.isEmpty()) {
+            throw new IllegalArgumentException("Neither the parameter name nor its value may be empty");
+        }
+
+        ParamNode derivedParams = new ParamNode(paramTail, PercentEncoding.encode(name), PercentEncoding.encode(value));
+        return new BaseURI(scheme, host, port, root, pathTail, frozenQuery, derivedParams);
+    }
+
+    /**
+     * {@link #param(String, String)} overload for values of type {@code byte}.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value
+     * @return a new instance
+     */
+    public BaseURI param(String name, byte value) {
+        return param(name, Byte.toString(value));
+    }
+
+    /**
+     * {@link #param(String, String)} overload for values of type {@code short}.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value
+     * @return a new instance
+     */
+    public BaseURI param(String name, short value) {
+        return param(name, Short.toString(value));
+    }
+
+    /**
+     * {@link #param(String, String)} overload for values of type {@code int}.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value
+     * @return a new instance
+     */
+    public BaseURI param(String name, int value) {
+        return param(name, Integer.toString(value));
+    }
+
+    /**
+     * {@link #param(String, String)} overload for values of type {@code long}.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value
+     * @return a new instance
+     */
+    public BaseURI param(String name, long value) {
+        return param(name, Long.toString(value));
+    }
+
+    /**
+     * {@link #param(String, String)} overload for values of type {@code float}.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value
+     * @return a new instance
+     */
+    public BaseURI param(String name, float value) {
+        return param(name, Float.toString(value));
+    }
+
+    /**
+     * {@link #param(String, String)} overload for values of type {@code double}.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value
+     * @return a new instance
+     */
+    public BaseURI param(String name, double value) {
+        return param(name, Double.toString(value));
+    }
+
+    /**
+     * {@link #param(String, String)} overload for values of type {@code char}.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value
+     * @return a new instance
+     */
+    public BaseURI param(String name, char value) {
+        return param(name, Character.toString(value));
+    }
+
+    /**
+     * {@link #param(String, String)} overload for values of type {@code boolean}.
+     *
+     * @param name  the parameter's name, must be neither {@code null} nor empty
+     * @param value the parameter's value
+     * @return a new instance
+     */
+    public BaseURI param(String name, boolean value) {
+        return param(name, Boolean.toString(value));
+    }
+
+    private static String materializePath(PathNode tail) {
+        if (tail == null) {
+            return "";
+        }
+        if (tail.previous == null) {
+            return tail.segment; /* Nothing to join, e.g. the frozen path itself */
+        }
+
+        PathNode[] nodes = new PathNode[tail.depth];
+        for (PathNode node = tail; node != null; node = node.previous) {
+            nodes[node.depth - 1] = node;
+        }
+        StringBuilder sb = new StringBuilder(tail.length);
+        for (PathNode node : nodes) {
+            if (!sb.isEmpty()) {
+                sb.append('/');
+            }
+            sb.append(node.segment);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Setting a parameter that already exists replaces its value in place, so every parameter ends up at the position
+     * where its name first appeared, with the value it was last given.
+     */
+    private static String materializeQuery(String frozenQuery, ParamNode tail) {
+        if (tail == null) {
+            return frozenQuery;
+        }
+
+        ParamNode[] nodes = new ParamNode[tail.depth];
+        for (ParamNode node = tail; node != null; node = node.previous) {
+            nodes[node.depth - 1] = node;
+        }
+        StringBuilder sb = new StringBuilder(frozenQuery.length() + 16 * nodes.length);
+
+        int start = 0;
+        while (start < frozenQuery.length()) {
+            int end = indexOfParamEnd(frozenQuery, start);
+            int valueStart = frozenQuery.indexOf('=', start) + 1;
+            ParamNode latest = latest(nodes, frozenQuery, start, valueStart - 1 - start);
+            if (!sb.isEmpty()) {
+                sb.append('&');
+            }
+            if (latest == null) {
+                sb.append(frozenQuery, start, end);
+            } else {
+                sb.append(frozenQuery, start, valueStart).append(latest.value);
+            }
+            start = end + 1;
+        }
+
+        for (int i = 0; i < nodes.length; i++) {
+            String name = nodes[i].name;
+            if (indexOfParam(frozenQuery, name) != -1 || latest(nodes, 0, i, name) != null) {
+                continue; /* Already appended at its original position */
+            }
+            if (!sb.isEmpty()) {
+                sb.append('&');
+            }
+            sb.append(name).append('=').append(latest(nodes, i, nodes.length, name).value);
+        }
+        return sb.toString();
+    }
+
+    private static ParamNode latest(ParamNode[] nodes, String query, int nameStart, int nameLength) {
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            String name = nodes[i].name;
+            if (name.length() == nameLength && query.startsWith(name, nameStart)) {
+                return nodes[i];
+            }
+        }
+        return null;
+    }
+
+    private static ParamNode latest(ParamNode[] nodes, int from, int to, String name) {
+        for (int i = to - 1; i >= from; i--) {
+            if (nodes[i].name.equals(name)) {
+                return nodes[i];
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Encoded names and values can contain neither '&' nor '=', so the query string itself can be searched for a
+     * parameter without any ambiguity.
+     */
+    static int indexOfParam(String query, String encodedName) {
+        int start = 0;
+        while (start < query.length()) {
+            int end = indexOfParamEnd(query, start);
+            boolean matches = end - start > encodedName.length()
+                    && query.startsWith(encodedName, start)
+                    && query.charAt(start + encodedName.length()) == '=';
+            if (matches) {
+                return start;
+            }
+            start = end + 1;
+        }
+        return -1;
+    }
+
+    static int indexOfParamEnd(String query, int fromIndex) {
+        int end = query.indexOf('&', fromIndex);
+        return (end == -1) ? query.length() : end;
+    }
+
+    /**
+     * Builds a {@link URI} instance. Only the path and the query are parsed, the scheme and the authority are reused.
+     *
+     * @return a non-{@code null} {@link URI}
+     * @throws IllegalStateException if for whatever reason this configuration produces a malformed URI
+     *                               <i>(make sure to read the exception message)</i>
+     * @see URIBuilder#build()
+     */
+    public URI build() {
+        String path = encodedPath();
+        String query = encodedQuery();
+        return TrustedURIs.resolve(root, query.isEmpty() ? path : (path + '?' + query));
+    }
+
+    /**
+     * Returns the origin that the built URIs belong to.
+     *
+     * @return a non-{@code null} {@link Origin}
+     * @see URIBuilder#origin()
+     */
+    public Origin origin() {
+        return new Origin(scheme, host, (port == null) ? scheme.defaultPort() : port);
+    }
+
+    URI root() {
+        return root;
+    }
+
+    String encodedPath() {
+        String p = path;
+        if (p == null) {
+            path = p = materializePath(pathTail);
+        }
+        return p;
+    }
+
+    String encodedQuery() {
+        String q = query;
+        if (q == null) {
+            query = q = materializeQuery(frozenQuery, paramTail);
+        }
+        return q;
+    }
+
+    /**
+     * Checks whether this instance is equal to the provided object.
+     *
+     * @param obj a possibly {@code null} object
+     * @return {@code true} if and only if the provided object is a non-{@code null} instance that produces the same URI
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof BaseURI other
+                && Objects.equals(this.scheme, other.scheme)
+                && Objects.equals(this.host, other.host)
+                && Objects.equals(this.port, other.port)
+                && this.encodedPath().equals(other.encodedPath())
+                && this.encodedQuery().equals(other.encodedQuery());
+    }
+
+    /**
+     * Computes a suitable hash code for this instance.
+     *
+     * @return a hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(scheme, host, port, encodedPath(), encodedQuery());
+    }
+
+    /**
+     * Returns a string representation of this instance's configuration.
+     *
+     * @return a non-{@code null} string
+     */
+    @Override
+    public String toString() {
+        return "BaseURI{scheme=%s, host=%s, port=%d, path=%s, query=%s}"
+                .formatted(scheme, host, port, encodedPath(), encodedQuery());
+    }
+
+    /* One encoded path segment (or, for the first node, the whole frozen path) linked to the ones before it */
+    private static final class PathNode {
+
+        final PathNode previous;
+        final String segment;
+        final int depth;
+        final int length; /* Of the whole path up to and including this node */
+
+        PathNode(PathNode previous, String segment) {
+            this.previous = previous;
+            this.segment = segment;
+            this.depth = (previous == null) ? 1 : previous.depth + 1;
+            this.length = (previous == null) ? segment.length() : previous.length + 1 + segment.length();
+        }
+    }
+
+    /* One encoded query parameter set after freezing, linked to the ones set before it */
+    private static final class ParamNode {
+
+        final ParamNode previous;
+        final String name;
+        final String value;
+        final int depth;
+
+        ParamNode(ParamNode previous, String name, String value) {
+            this.previous = previous;
+            this.name = name;
+            this.value = value;
+            this.depth = (previous == null) ? 1 : previous.depth + 1;
+        }
+    }
+}
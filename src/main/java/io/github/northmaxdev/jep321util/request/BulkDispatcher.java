@@ -0,0 +1,414 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandler;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sends large numbers of requests (one per element of an input sequence, such as a list of IDs) on virtual threads,
+ * and streams the results back as they become available.
+ * <pre>{@code
+ * BulkDispatcher dispatcher = BulkDispatcher.builder(client)
+ *         .maxConcurrency(200)
+ *         .build();
+ *
+ * try (Stream<BulkResult<Long, String>> results = dispatcher.dispatch(ids,
+ *         id -> template.newRequest(template.baseURI().pathSegment(id)),
+ *         BodyHandlers.ofString())) {
+ *     results.forEach(this::handle);
+ * }
+ * }</pre>
+ * Every request is sent with the blocking {@link HttpClient#send(HttpRequest, BodyHandler)} on its own virtual thread,
+ * so there is no graph of futures to build or to hold on to. Resource usage is bounded in two ways:
+ * <ul>
+ *     <li>at most {@link #maxConcurrency()} requests are in flight at any time, across all the dispatches of the same
+ *     dispatcher</li>
+ *     <li>within a single dispatch, at most {@link #maxConcurrency()} inputs are taken from the input sequence and not
+ *     yet delivered to the stream, so the input is consumed lazily, and a slow consumer of the stream slows the
+ *     dispatch down instead of piling up results</li>
+ * </ul>
+ * Results are delivered either in the order the requests complete or in the order of the inputs (see
+ * {@link Order}). By default, a failed request is delivered as a {@link BulkResult} like any other. With
+ * {@link Builder#failFast(boolean) fail-fast} enabled, the first failure cancels every request that is still in
+ * flight, and the stream throws a {@link CompletionException} with the failure as its cause instead of delivering
+ * anything else.
+ * <p>
+ * The returned streams must be closed (or consumed completely), otherwise the dispatch keeps running in the
+ * background. Closing a stream early cancels the remaining requests by interrupting their threads. The streams are
+ * sequential and must be consumed by a single thread.
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class BulkDispatcher {
+
+    /**
+     * The order in which results are delivered.
+     */
+    public enum Order {
+
+        /**
+         * Results are delivered as soon as their requests complete.
+         */
+        COMPLETION,
+
+        /**
+         * Results are delivered in the order of their inputs. A slow request holds back the results after it, and
+         * once {@link #maxConcurrency()} of them are held back, no more requests are sent until it completes.
+         */
+        INPUT
+    }
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 64;
+
+    private final HttpClient client;
+    private final int maxConcurrency;
+    private final Order order;
+    private final boolean failFast;
+    private final Semaphore inFlight;
+
+    private BulkDispatcher(HttpClient client, int maxConcurrency, Order order, boolean failFast) {
+        this.client = client;
+        this.maxConcurrency = maxConcurrency;
+        this.order = order;
+        this.failFast = failFast;
+        this.inFlight = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Creates a builder for dispatchers that send requests with the given client. By default, at most 64 requests are
+     * in flight, results are delivered in completion order, and failures do not stop the dispatch.
+     *
+     * @param client a non-{@code null} client
+     * @return a new {@link Builder}
+     * @throws NullPointerException if the client is {@code null}
+     */
+    public static Builder builder(HttpClient client) {
+        Objects.requireNonNull(client, "Client cannot be null");
+        return new Builder(client);
+    }
+
+    /**
+     * Returns the maximum number of requests in flight.
+     *
+     * @return a positive number
+     */
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the number of requests that are currently in flight, across all dispatches.
+     *
+     * @return a number between 0 and {@link #maxConcurrency()}
+     */
+    public int inFlight() {
+        return maxConcurrency - inFlight.availablePermits();
+    }
+
+    /**
+     * Sends one request per input and returns a stream of the results. The dispatch starts right away, in the
+     * background.
+     *
+     * @param inputs   a non-{@code null} sequence of inputs, which is iterated lazily on a background thread
+     * @param requests a non-{@code null} function that creates the request of an input; an exception it throws is
+     *                 treated as a failure of that input's request
+     * @param handler  a non-{@code null} body handler for every response
+     * @param <T>      the input type
+     * @param <R>      the response body type
+     * @return a non-{@code null} stream of results, one per input, which must be closed
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public <T, R> Stream<BulkResult<T, R>> dispatch(Iterable<? extends T> inputs,
+                                                    Function<? super T, ? extends HttpRequest> requests,
+                                                    BodyHandler<R> handler) {
+        Objects.requireNonNull(inputs, "Inputs cannot be null");
+        Objects.requireNonNull(requests, "Request function cannot be null");
+        Objects.requireNonNull(handler, "Body handler cannot be null");
+
+        Dispatch<T, R> dispatch = new Dispatch<>(inputs.iterator(), requests, handler);
+        dispatch.start();
+        return StreamSupport.stream(dispatch, false).onClose(dispatch::cancel);
+    }
+
+    /**
+     * Returns a string representation of this dispatcher's configuration.
+     *
+     * @return a non-{@code null} string
+     */
+    @Override
+    public String toString() {
+        return "BulkDispatcher[maxConcurrency=%d, order=%s, failFast=%b]".formatted(maxConcurrency, order, failFast);
+    }
+
+    /**
+     * Builder for {@link BulkDispatcher} instances.
+     * <p>
+     * <b>Instances of this class are mutable and not thread-safe.</b>
+     */
+    public static final class Builder {
+
+        private final HttpClient client;
+        private int maxConcurrency;
+        private Order order;
+        private boolean failFast;
+
+        private Builder(HttpClient client) {
+            this.client = client;
+            this.maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+            this.order = Order.COMPLETION;
+        }
+
+        /**
+         * Sets the maximum number of requests in flight, which also bounds the number of results buffered by each
+         * dispatch.
+         *
+         * @param n a positive number
+         * @return this builder
+         * @throws IllegalArgumentException if the number is not positive
+         */
+        public Builder maxConcurrency(int n) {
+            if (n <= 0) {
+                throw new IllegalArgumentException("Maximum concurrency must be positive: " + n);
+            }
+            maxConcurrency = n;
+            return this;
+        }
+
+        /**
+         * Sets the order in which results are delivered.
+         *
+         * @param o a non-{@code null} order
+         * @return this builder
+         * @throws NullPointerException if the order is {@code null}
+         */
+        public Builder order(Order o) {
+            order = Objects.requireNonNull(o, "Order cannot be null");
+            return this;
+        }
+
+        /**
+         * Sets whether the first failed request cancels the whole dispatch.
+         *
+         * @param enable whether to fail fast
+         * @return this builder
+         */
+        public Builder failFast(boolean enable) {
+            failFast = enable;
+            return this;
+        }
+
+        /**
+         * Builds a dispatcher. Every dispatcher has its own concurrency limit.
+         *
+         * @return a new {@link BulkDispatcher}
+         */
+        public BulkDispatcher build() {
+            return new BulkDispatcher(client, maxConcurrency, order, failFast);
+        }
+    }
+
+    /* Marks the end of the input, after count inputs (or after a failure of the input itself) */
+    private record End(long count, Throwable error) {}
+
+    /*
+     * A single dispatch. A launcher thread takes inputs one window permit at a time and starts a virtual thread per
+     * input, which sends the request and queues the result. The stream's thread takes results from the queue, and
+     * gives the window permit back once it has delivered a result.
+     *
+     * The fields below "Confined to tryAdvance()" are only touched by the stream's thread.
+     */
+    private final class Dispatch<T, R> extends Spliterators.AbstractSpliterator<BulkResult<T, R>> {
+
+        private final Iterator<? extends T> inputs;
+        private final Function<? super T, ? extends HttpRequest> requests;
+        private final BodyHandler<R> handler;
+        private final ExecutorService executor;
+        private final Semaphore window;
+        private final BlockingQueue<Object> completed;
+        private final AtomicReference<Throwable> failure;
+        private volatile boolean cancelled;
+
+        /* Confined to tryAdvance() */
+        private final Map<Long, BulkResult<T, R>> held;
+        private long delivered;
+        private long total;
+        private boolean done;
+
+        Dispatch(Iterator<? extends T> inputs, Function<? super T, ? extends HttpRequest> requests,
+                 BodyHandler<R> handler) {
+            super(Long.MAX_VALUE, (order == Order.INPUT)
+                    ? Spliterator.ORDERED | Spliterator.NONNULL
+                    : Spliterator.NONNULL);
+            this.inputs = inputs;
+            this.requests = requests;
+            this.handler = handler;
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bulk-dispatch-", 0).factory());
+            this.window = new Semaphore(maxConcurrency);
+            this.completed = new LinkedBlockingQueue<>();
+            this.failure = new AtomicReference<>();
+            this.held = new HashMap<>();
+            this.total = -1;
+        }
+
+        void start() {
+            executor.execute(this::launch);
+        }
+
+        void cancel() {
+            cancelled = true;
+            executor.shutdownNow();
+        }
+
+        private void launch() {
+            long count = 0;
+            try {
+                while (inputs.hasNext()) {
+                    window.acquire();
+                    if (cancelled) {
+                        return;
+                    }
+                    T input = inputs.next();
+                    long index = count++;
+                    executor.execute(() -> send(index, input));
+                }
+                completed.add(new End(count, null));
+            } catch (InterruptedException | RejectedExecutionException e) {
+                /* Cancelled */
+            } catch (RuntimeException e) {
+                completed.add(new End(count, e));
+            }
+        }
+
+        private void send(long index, T input) {
+            BulkResult<T, R> result;
+            try {
+                HttpRequest request = Objects.requireNonNull(requests.apply(input), "Request cannot be null");
+                inFlight.acquire();
+                try {
+                    result = BulkResult.success(index, input, client.send(request, handler));
+                } finally {
+                    inFlight.release();
+                }
+            } catch (Throwable e) {
+                /* Errors included: every taken input must queue exactly one result, or tryAdvance() waits forever */
+                result = BulkResult.failure(index, input, e);
+                if (failFast && failure.compareAndSet(null, e)) {
+                    cancel();
+                }
+            }
+            completed.add(result);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super BulkResult<T, R>> action) {
+            Objects.requireNonNull(action, "Action cannot be null");
+            if (done) {
+                return false;
+            }
+            while (true) {
+                checkFailure();
+                if (order == Order.INPUT) {
+                    BulkResult<T, R> result = held.remove(delivered);
+                    if (result != null) {
+                        deliver(result, action);
+                        return true;
+                    }
+                }
+                if (delivered == total) {
+                    done = true;
+                    executor.shutdown();
+                    return false;
+                }
+
+                Object next;
+                try {
+                    next = completed.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    finish();
+                    throw new CancellationException("Interrupted while waiting for a result");
+                }
+
+                if (next instanceof End end) {
+                    if (end.error() != null) {
+                        finish();
+                        throw new CompletionException(end.error());
+                    }
+                    total = end.count();
+                } else {
+                    BulkResult<T, R> result = (BulkResult<T, R>) next;
+                    if (order == Order.COMPLETION) {
+                        checkFailure();
+                        deliver(result, action);
+                        return true;
+                    }
+                    held.put(result.index(), result);
+                }
+            }
+        }
+
+        private void checkFailure() {
+            Throwable e = failure.get();
+            if (e != null) {
+                finish();
+                throw new CompletionException(e);
+            }
+        }
+
+        private void deliver(BulkResult<T, R> result, Consumer<? super BulkResult<T, R>> action) {
+            delivered++;
+            window.release();
+            action.accept(result);
+        }
+
+        private void finish() {
+            done = true;
+            held.clear();
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.http.HttpResponse;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The outcome of one request dispatched by {@link BulkDispatcher}: either a response or the exception that prevented
+ * one (including an exception thrown while creating the request).
+ *
+ * @param index    the zero-based position of the input in the dispatched sequence
+ * @param input    the input that the request has been created from
+ * @param response the response, if the request succeeded
+ * @param failure  the exception, if the request failed
+ * @param <T>      the input type
+ * @param <R>      the response body type
+ */
+public record BulkResult<T, R>(long index, T input, Optional<HttpResponse<R>> response, Optional<Throwable> failure) {
+
+    /**
+     * Canonical constructor.
+     *
+     * @param index    the zero-based position of the input in the dispatched sequence
+     * @param input    the input that the request has been created from
+     * @param response the response, if the request succeeded
+     * @param failure  the exception, if the request failed
+     * @throws NullPointerException     if the response or the failure is {@code null}
+     * @throws IllegalArgumentException if the index is negative or if not exactly one of the response and the failure
+     *                                  is present
+     */
+    public BulkResult {
+        Objects.requireNonNull(response, "Response cannot be null");
+        Objects.requireNonNull(failure, "Failure cannot be null");
+        if (index < 0) {
+            throw new IllegalArgumentException("Index cannot be negative: " + index);
+        }
+        if (response.isPresent() == failure.isPresent()) {
+            throw new IllegalArgumentException("Exactly one of the response and the failure must be present");
+        }
+    }
+
+    static <T, R> BulkResult<T, R> success(long index, T input, HttpResponse<R> response) {
+        return new BulkResult<>(index, input, Optional.of(response), Optional.empty());
+    }
+
+    static <T, R> BulkResult<T, R> failure(long index, T input, Throwable failure) {
+        return new BulkResult<>(index, input, Optional.empty(), Optional.of(failure));
+    }
+
+    /**
+     * Checks whether the request succeeded. A response with an error status code still counts as a success.
+     *
+     * @return {@code true} if there is a response, otherwise {@code false}
+     */
+    public boolean isSuccess() {
+        return response.isPresent();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+/**
+ * A point-in-time snapshot of a cache's counters, which is meant for telling whether the cache pays for itself.
+ *
+ * @param hitCount      the number of lookups that found a cached value
+ * @param missCount     the number of lookups that did not find a cached value
+ * @param evictionCount the number of values that were evicted to stay within the cache's maximum size
+ * @see URICache
+ */
+public record CacheStats(long hitCount, long missCount, long evictionCount) {
+
+    /**
+     * Computes the ratio of lookups that found a cached value.
+     *
+     * @return a value within [0, 1], or 1 if there have not been any lookups
+     */
+    public double hitRate() {
+        long lookupCount = hitCount + missCount;
+        return (lookupCount == 0) ? 1.0 : ((double) hitCount / lookupCount);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * A {@link HttpRequest.BodyPublisher} of {@code application/x-www-form-urlencoded} bodies, built with
+ * {@link #builder()}.
+ * <p>
+ * Names and values are escaped exactly like the query parameters of {@link URIBuilder#param(String, String)}, which
+ * is a valid form encoding (a space is encoded as {@code %20} rather than {@code +}, which every form decoder
+ * accepts). The body is never assembled into a string: every subscription encodes the fields straight into UTF-8
+ * buffers of up to 16 KiB, one buffer at a time, only as fast as the HTTP client requests them. The
+ * {@link #contentLength() content length} is computed when fields are added, so it is always exact.
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class FormBodyPublisher implements HttpRequest.BodyPublisher {
+
+    /**
+     * The media type of form bodies, {@code application/x-www-form-urlencoded}.
+     */
+    public static final String CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final String[] names;
+    private final String[] values;
+    private final long contentLength;
+
+    private FormBodyPublisher(String[] names, String[] values, long contentLength) {
+        this.names = names;
+        this.values = values;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Creates a builder with no fields.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the number of fields (name-value pairs).
+     *
+     * @return a non-negative number
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the exact length of the body in bytes.
+     *
+     * @return a non-negative number
+     */
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null");
+        subscriber.onSubscribe(new FormSubscription(subscriber));
+    }
+
+    /**
+     * Builder for {@link FormBodyPublisher} instances. Fields are sent in the order they have been added, and several
+     * fields may have the same name.
+     * <p>
+     * <b>Instances of this class are mutable and not thread-safe.</b>
+     */
+    public static final class Builder {
+
+        private String[] names;
+        private String[] values;
+        private int size;
+        private long contentLength;
+
+        private Builder() {
+            this.names = new String[8];
+            this.values = new String[8];
+        }
+
+        /**
+         * Adds a field. Unlike query parameters, fields may have empty values.
+         *
+         * @param name  a non-{@code null}, non-empty name
+         * @param value a non-{@code null} value
+         * @return this builder
+         * @throws NullPointerException     if any argument is {@code null}
+         * @throws IllegalArgumentException if the name is empty or if any argument contains an unpaired surrogate
+         */
+        public Builder param(String name, String value) {
+            Objects.requireNonNull(name, "Name cannot be null");
+            Objects.requireNonNull(value, "Value cannot be null");
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Name cannot be empty");
+            }
+            /* Also validates both strings, so that encoding them later cannot fail */
+            long length = PercentEncoding.encodedLength(name) + 1L + PercentEncoding.encodedLength(value);
+
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            names[size] = name;
+            values[size] = value;
+            contentLength += (size == 0) ? length : length + 1; /* '&' */
+            size++;
+            return this;
+        }
+
+        /**
+         * Adds a field whose value is the string representation of the given {@code long}.
+         *
+         * @param name  a non-{@code null}, non-empty name
+         * @param value a value
+         * @return this builder
+         * @throws NullPointerException     if the name is {@code null}
+         * @throws IllegalArgumentException if the name is empty or contains an unpaired surrogate
+         */
+        public Builder param(String name, long value) {
+            return param(name, Long.toString(value));
+        }
+
+        /**
+         * Adds a field whose value is the string representation of the given {@code boolean}.
+         *
+         * @param name  a non-{@code null}, non-empty name
+         * @param value a value
+         * @return this builder
+         * @throws NullPointerException     if the name is {@code null}
+         * @throws IllegalArgumentException if the name is empty or contains an unpaired surrogate
+         */
+        public Builder param(String name, boolean value) {
+            return param(name, Boolean.toString(value));
+        }
+
+        /**
+         * Builds a publisher of the fields added so far. The builder can be used further without affecting the
+         * publisher.
+         *
+         * @return a new {@link FormBodyPublisher}
+         */
+        public FormBodyPublisher build() {
+            return new FormBodyPublisher(Arrays.copyOf(names, size), Arrays.copyOf(values, size), contentLength);
+        }
+    }
+
+    /* Encodes the fields one buffer at a time, resuming mid-string where the previous buffer ended */
+    private final class FormSubscription extends PullSubscription {
+
+        private static final int SEPARATOR = 0;
+        private static final int NAME = 1;
+        private static final int EQUALS = 2;
+        private static final int VALUE = 3;
+
+        private int field;
+        private int state;
+        private int index; /* Within the current name or value */
+        private long remaining;
+
+        FormSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            super(subscriber);
+            this.remaining = contentLength;
+        }
+
+        @Override
+        ByteBuffer next() {
+            if (remaining == 0) {
+                return null;
+            }
+            /* Either the rest of the body fits or there is room for the longest encoded character (12 bytes) */
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(CHUNK_SIZE, remaining));
+            fill(buffer);
+            remaining -= buffer.position();
+            return buffer.flip();
+        }
+
+        private void fill(ByteBuffer buffer) {
+            while (field < names.length) {
+                if (state == SEPARATOR) {
+                    if (field > 0) {
+                        if (!buffer.hasRemaining()) {
+                            return;
+                        }
+                        buffer.put((byte) '&');
+                    }
+                    state = NAME;
+                }
+                if (state == NAME) {
+                    index = PercentEncoding.encode(names[field], index, buffer);
+                    if (index < names[field].length()) {
+                        return;
+                    }
+                    index = 0;
+                    state = EQUALS;
+                }
+                if (state == EQUALS) {
+                    if (!buffer.hasRemaining()) {
+                        return;
+                    }
+                    buffer.put((byte) '=');
+                    state = VALUE;
+                }
+                index = PercentEncoding.encode(values[field], index, buffer);
+                if (index < values[field].length()) {
+                    return;
+                }
+                index = 0;
+                state = SEPARATOR;
+                field++;
+            }
+        }
+    }
+}
@@ -24,6 +24,8 @@
 
 package io.github.northmaxdev.jep321util.request;
 
+import java.nio.ByteBuffer;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -41,6 +43,10 @@ public enum HTTPScheme {
      */
     UNSECURE("http", false);
 
+    /* Shared so that lookups never allocate */
+    private static final Optional<HTTPScheme> OPTIONAL_SECURE = Optional.of(SECURE);
+    private static final Optional<HTTPScheme> OPTIONAL_UNSECURE = Optional.of(UNSECURE);
+
     private final String value;
     private final boolean secure;
 
@@ -60,12 +66,243 @@ public enum HTTPScheme {
      */
     public static Optional<HTTPScheme> instanceOf(String s) {
         return switch (s) {
-            case "https" -> Optional.of(SECURE);
-            case "http" -> Optional.of(UNSECURE);
+            case "https" -> OPTIONAL_SECURE;
+            case "http" -> OPTIONAL_UNSECURE;
             case null, default -> Optional.empty();
         };
     }
 
+    /**
+     * Parses the given character sequence as a whole. Unlike {@link #instanceOf(String)}, <b>this method is
+     * case-insensitive</b>, as per <a href=https://www.rfc-editor.org/rfc/rfc3986#section-3.1>RFC 3986 section
+     * 3.1</a>. It never allocates.
+     *
+     * @param s a non-{@code null} character sequence
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the value is unrecognized
+     * @throws NullPointerException if the provided sequence is {@code null}
+     */
+    public static Optional<HTTPScheme> parse(CharSequence s) {
+        Objects.requireNonNull(s, "Character sequence cannot be null");
+        return match(s, 0, s.length(), false);
+    }
+
+    /**
+     * Parses the given region of a character sequence as a whole, case-insensitively. It never allocates.
+     *
+     * @param s     a non-{@code null} character sequence
+     * @param start the start index, inclusive
+     * @param end   the end index, exclusive
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the value is unrecognized
+     * @throws NullPointerException      if the provided sequence is {@code null}
+     * @throws IndexOutOfBoundsException if the region is out of the sequence's bounds
+     */
+    public static Optional<HTTPScheme> parse(CharSequence s, int start, int end) {
+        Objects.requireNonNull(s, "Character sequence cannot be null");
+        Objects.checkFromToIndex(start, end, s.length());
+        return match(s, start, end, false);
+    }
+
+    /**
+     * Parses the given region of a character array as a whole, case-insensitively. It never allocates.
+     *
+     * @param a      a non-{@code null} character array
+     * @param offset the start index, inclusive
+     * @param length the length of the region
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the value is unrecognized
+     * @throws NullPointerException      if the provided array is {@code null}
+     * @throws IndexOutOfBoundsException if the region is out of the array's bounds
+     */
+    public static Optional<HTTPScheme> parse(char[] a, int offset, int length) {
+        Objects.requireNonNull(a, "Character array cannot be null");
+        Objects.checkFromIndexSize(offset, length, a.length);
+        return match(a, offset, offset + length, false);
+    }
+
+    /**
+     * Parses the given region of an ASCII-encoded byte array as a whole, case-insensitively. It never allocates.
+     *
+     * @param a      a non-{@code null} byte array
+     * @param offset the start index, inclusive
+     * @param length the length of the region
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the value is unrecognized
+     * @throws NullPointerException      if the provided array is {@code null}
+     * @throws IndexOutOfBoundsException if the region is out of the array's bounds
+     */
+    public static Optional<HTTPScheme> parse(byte[] a, int offset, int length) {
+        Objects.requireNonNull(a, "Byte array cannot be null");
+        Objects.checkFromIndexSize(offset, length, a.length);
+        return match(a, offset, offset + length, false);
+    }
+
+    /**
+     * Parses the given region of an ASCII-encoded byte buffer as a whole, case-insensitively. The region is addressed
+     * with absolute indices, so the buffer's position and limit are neither used nor modified. It never allocates.
+     *
+     * @param b      a non-{@code null} byte buffer
+     * @param offset the absolute start index, inclusive
+     * @param length the length of the region
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the value is unrecognized
+     * @throws NullPointerException      if the provided buffer is {@code null}
+     * @throws IndexOutOfBoundsException if the region is out of the buffer's capacity
+     */
+    public static Optional<HTTPScheme> parse(ByteBuffer b, int offset, int length) {
+        Objects.requireNonNull(b, "Byte buffer cannot be null");
+        Objects.checkFromIndexSize(offset, length, b.capacity());
+        return match(b, offset, offset + length, false);
+    }
+
+    /**
+     * Parses the scheme that the given region of a character sequence starts with, case-insensitively. The scheme
+     * must be followed by its {@code ':'} delimiter, which is at index {@code start + scheme.length()}, so parsing can
+     * continue from there. It never allocates.
+     *
+     * @param s     a non-{@code null} character sequence, such as {@code "HTTPS://example.com"}
+     * @param start the start index, inclusive
+     * @param end   the end index, exclusive
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the region does not start
+     * with a recognized scheme followed by {@code ':'}
+     * @throws NullPointerException      if the provided sequence is {@code null}
+     * @throws IndexOutOfBoundsException if the region is out of the sequence's bounds
+     * @see #length()
+     */
+    public static Optional<HTTPScheme> parsePrefix(CharSequence s, int start, int end) {
+        Objects.requireNonNull(s, "Character sequence cannot be null");
+        Objects.checkFromToIndex(start, end, s.length());
+        return match(s, start, end, true);
+    }
+
+    /**
+     * Parses the scheme that the given region of a character array starts with. The contract is the same as that of
+     * {@link #parsePrefix(CharSequence, int, int)}.
+     *
+     * @param a      a non-{@code null} character array
+     * @param offset the start index, inclusive
+     * @param length the length of the region
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the region does not start
+     * with a recognized scheme followed by {@code ':'}
+     * @throws NullPointerException      if the provided array is {@code null}
+     * @throws IndexOutOfBoundsException if the region is out of the array's bounds
+     */
+    public static Optional<HTTPScheme> parsePrefix(char[] a, int offset, int length) {
+        Objects.requireNonNull(a, "Character array cannot be null");
+        Objects.checkFromIndexSize(offset, length, a.length);
+        return match(a, offset, offset + length, true);
+    }
+
+    /**
+     * Parses the scheme that the given region of an ASCII-encoded byte array starts with. The contract is the same as
+     * that of {@link #parsePrefix(CharSequence, int, int)}.
+     *
+     * @param a      a non-{@code null} byte array
+     * @param offset the start index, inclusive
+     * @param length the length of the region
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the region does not start
+     * with a recognized scheme followed by {@code ':'}
+     * @throws NullPointerException      if the provided array is {@code null}
+     * @throws IndexOutOfBoundsException if the region is out of the array's bounds
+     */
+    public static Optional<HTTPScheme> parsePrefix(byte[] a, int offset, int length) {
+        Objects.requireNonNull(a, "Byte array cannot be null");
+        Objects.checkFromIndexSize(offset, length, a.length);
+        return match(a, offset, offset + length, true);
+    }
+
+    /**
+     * Parses the scheme that the given region of an ASCII-encoded byte buffer starts with. The region is addressed
+     * with absolute indices, so the buffer's position and limit are neither used nor modified. The contract is
+     * otherwise the same as that of {@link #parsePrefix(CharSequence, int, int)}.
+     *
+     * @param b      a non-{@code null} byte buffer
+     * @param offset the absolute start index, inclusive
+     * @param length the length of the region
+     * @return an {@link Optional} containing the corresponding instance or an empty one if the region does not start
+     * with a recognized scheme followed by {@code ':'}
+     * @throws NullPointerException      if the provided buffer is {@code null}
+     * @throws IndexOutOfBoundsException if the region is out of the buffer's capacity
+     */
+    public static Optional<HTTPScheme> parsePrefix(ByteBuffer b, int offset, int length) {
+        Objects.requireNonNull(b, "Byte buffer cannot be null");
+        Objects.checkFromIndexSize(offset, length, b.capacity());
+        return match(b, offset, offset + length, true);
+    }
+
+    /*
+     * The matchers below are deliberately duplicated per source type: going through a common accessor would either
+     * allocate a wrapper (e.g., ByteBuffer.wrap) or make the hot loop megamorphic. ORing with 0x20 lowercases ASCII
+     * letters, and since "http" and "s" are all letters, no other character can be folded into a false match.
+     */
+
+    private static Optional<HTTPScheme> match(CharSequence s, int start, int end, boolean prefix) {
+        if (end - start < 4
+                || (s.charAt(start) | 0x20) != 'h'
+                || (s.charAt(start + 1) | 0x20) != 't'
+                || (s.charAt(start + 2) | 0x20) != 't'
+                || (s.charAt(start + 3) | 0x20) != 'p') {
+            return Optional.empty();
+        }
+        int i = start + 4;
+        boolean secure = i < end && (s.charAt(i) | 0x20) == 's';
+        if (secure) {
+            i++;
+        }
+        return result(secure, prefix ? i < end && s.charAt(i) == ':' : i == end);
+    }
+
+    private static Optional<HTTPScheme> match(char[] a, int start, int end, boolean prefix) {
+        if (end - start < 4
+                || (a[start] | 0x20) != 'h'
+                || (a[start + 1] | 0x20) != 't'
+                || (a[start + 2] | 0x20) != 't'
+                || (a[start + 3] | 0x20) != 'p') {
+            return Optional.empty();
+        }
+        int i = start + 4;
+        boolean secure = i < end && (a[i] | 0x20) == 's';
+        if (secure) {
+            i++;
+        }
+        return result(secure, prefix ? i < end && a[i] == ':' : i == end);
+    }
+
+    private static Optional<HTTPScheme> match(byte[] a, int start, int end, boolean prefix) {
+        if (end - start < 4
+                || (a[start] | 0x20) != 'h'
+                || (a[start + 1] | 0x20) != 't'
+                || (a[start + 2] | 0x20) != 't'
+                || (a[start + 3] | 0x20) != 'p') {
+            return Optional.empty();
+        }
+        int i = start + 4;
+        boolean secure = i < end && (a[i] | 0x20) == 's';
+        if (secure) {
+            i++;
+        }
+        return result(secure, prefix ? i < end && a[i] == ':' : i == end);
+    }
+
+    private static Optional<HTTPScheme> match(ByteBuffer b, int start, int end, boolean prefix) {
+        if (end - start < 4
+                || (b.get(start) | 0x20) != 'h'
+                || (b.get(start + 1) | 0x20) != 't'
+                || (b.get(start + 2) | 0x20) != 't'
+                || (b.get(start + 3) | 0x20) != 'p') {
+            return Optional.empty();
+        }
+        int i = start + 4;
+        boolean secure = i < end && (b.get(i) | 0x20) == 's';
+        if (secure) {
+            i++;
+        }
+        return result(secure, prefix ? i < end && b.get(i) == ':' : i == end);
+    }
+
+    private static Optional<HTTPScheme> result(boolean secure, boolean terminated) {
+        if (!terminated) {
+            return Optional.empty();
+        }
+        return secure ? OPTIONAL_SECURE : OPTIONAL_UNSECURE;
+    }
+
     /**
      * A convenient static factory method to fetch the corresponding instance for the given Boolean value.
      *
@@ -87,6 +324,25 @@ public enum HTTPScheme {
         return value;
     }
 
+    /**
+     * Returns the number of characters in this scheme, which is where the scheme ends when it has been found by one of
+     * the {@code parsePrefix} methods.
+     *
+     * @return 5 for {@link #SECURE} and 4 for {@link #UNSECURE}
+     */
+    public int length() {
+        return value.length();
+    }
+
+    /**
+     * Returns the port that a URI with this scheme refers to when it does not specify one.
+     *
+     * @return 443 for {@link #SECURE} and 80 for {@link #UNSECURE}
+     */
+    public int defaultPort() {
+        return secure ? 443 : 80;
+    }
+
     /**
      * Checks whether this scheme represents a secure connection.
      *
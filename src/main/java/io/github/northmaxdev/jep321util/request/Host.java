@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.net.InetAddresses;
+import com.google.common.net.InternetDomainName;
+
+import java.util.Objects;
+
+/**
+ * Models a syntactically valid URI host as per
+ * <a href="https://www.rfc-editor.org/rfc/rfc3986#section-3.2.2">RFC 3986 section 3.2.2</a>, which is an IPv4
+ * address, an IPv6 address (enclosed in square brackets) or a registered domain name.
+ * <p>
+ * Unlike {@link URIBuilder#validHost(String)}, {@link #parse(String)} is safe to use with untrusted input. Unlike
+ * {@link com.google.common.net.HostSpecifier}, it does not require a domain name to have a public suffix (so, for
+ * example, {@code localhost} and {@code my-service.internal} are accepted), and its results are memoized: the parsed
+ * instances of the most recently used strings are kept in a bounded, thread-safe cache, so that parsing a host string
+ * that keeps coming from configuration or request data costs about as much as a hash table lookup.
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class Host {
+
+    private static final int CACHE_SIZE = 4096;
+    private static final BoundedCache<String, Host> CACHE = new BoundedCache<>(CACHE_SIZE);
+
+    private final String value;
+
+    private Host(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Parses a host. IP addresses and domain names are normalized, e.g. {@code Example.COM.} becomes
+     * {@code example.com} and {@code [0:0::1]} becomes {@code [::1]}. Internationalized domain names must be in their
+     * ASCII (Punycode) form.
+     *
+     * @param s a non-{@code null} string
+     * @return an instance of {@code Host}
+     * @throws NullPointerException     if the provided string is {@code null}
+     * @throws IllegalArgumentException if the provided string is not a valid host
+     */
+    public static Host parse(String s) {
+        Objects.requireNonNull(s, "Host string cannot be null");
+
+        Host host = CACHE.get(s);
+        if (host == null) {
+            host = new Host(normalize(s));
+            CACHE.put(s, host);
+        }
+        return host;
+    }
+
+    private static String normalize(String s) {
+        if (InetAddresses.isUriInetAddress(s)) {
+            return InetAddresses.toUriString(InetAddresses.forUriString(s));
+        }
+        if (CharMatcher.ascii().matchesAllOf(s) && InternetDomainName.isValid(s)) {
+            return InternetDomainName.from(s).toString();
+        }
+        throw new IllegalArgumentException("Invalid host: " + s);
+    }
+
+    /**
+     * Returns a snapshot of the counters of the cache that {@link #parse(String)} memoizes its results in.
+     *
+     * @return a non-{@code null} {@link CacheStats}
+     */
+    public static CacheStats cacheStats() {
+        return CACHE.stats();
+    }
+
+    /**
+     * Checks whether this host is equal to the provided object.
+     *
+     * @param obj a possibly {@code null} object
+     * @return {@code true} if and only if the provided object is a host with the same normalized value
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Host other
+                && this.value.equals(other.value);
+    }
+
+    /**
+     * Computes a suitable hash code for this host.
+     *
+     * @return a hash code
+     */
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    /**
+     * Returns the normalized host.
+     *
+     * @return a non-{@code null} string that is compatible with {@link #parse(String)}
+     */
+    @Override
+    public String toString() {
+        return value;
+    }
+}
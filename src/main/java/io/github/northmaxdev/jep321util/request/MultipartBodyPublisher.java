@@ -0,0 +1,550 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * A {@link HttpRequest.BodyPublisher} of {@code multipart/form-data} bodies
+ * (<a href="https://www.rfc-editor.org/rfc/rfc7578">RFC 7578</a>), built with {@link #builder()}.
+ * <p>
+ * The body is never assembled in memory. The boundaries and part headers, as well as text parts, are encoded once
+ * when the publisher is built; files and streams are read in chunks of 16 KiB, only as fast as the HTTP client
+ * requests them, and only while a subscription is active. Every subscription reads the sources anew, so the publisher
+ * can be reused, for example, when a request is retried or redirected.
+ * <p>
+ * The {@link #contentLength() content length} is exact if the size of every part is known: text, byte array and file
+ * parts have a known size, whereas stream parts do not. Files are sized when the publisher is built; if a file then
+ * changes size, the subscription fails with an {@link IOException} rather than sending a body of the wrong length.
+ * <p>
+ * Since the boundary is only known to the publisher, the {@code Content-Type} request header has to be set to
+ * {@link #contentType()}.
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class MultipartBodyPublisher implements HttpRequest.BodyPublisher {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int MAX_BOUNDARY_LENGTH = 70;
+    private static final String BOUNDARY_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final String DEFAULT_FILE_CONTENT_TYPE = "application/octet-stream";
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final String boundary;
+    private final List<Segment> segments;
+    private final long contentLength;
+
+    private MultipartBodyPublisher(String boundary, List<Segment> segments) {
+        this.boundary = boundary;
+        this.segments = segments;
+
+        long length = 0;
+        for (Segment segment : segments) {
+            long segmentLength = segment.length();
+            if (segmentLength == -1) {
+                length = -1;
+                break;
+            }
+            length += segmentLength;
+        }
+        this.contentLength = length;
+    }
+
+    /**
+     * Creates a builder with no parts and a random boundary.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the boundary that delimits the parts.
+     *
+     * @return a non-{@code null}, non-empty string
+     */
+    public String boundary() {
+        return boundary;
+    }
+
+    /**
+     * Returns the value of the {@code Content-Type} request header that goes with this body, which is
+     * {@code multipart/form-data; boundary=} followed by the {@link #boundary() boundary}.
+     *
+     * @return a non-{@code null} string
+     */
+    public String contentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    /**
+     * Returns the exact length of the body in bytes, or {@code -1} if it contains a part whose size is unknown, in
+     * which case the body is sent with chunked transfer encoding.
+     *
+     * @return the content length
+     */
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null");
+        subscriber.onSubscribe(new MultipartSubscription(subscriber));
+    }
+
+    /**
+     * Builder for {@link MultipartBodyPublisher} instances. Parts are sent in the order they have been added, and
+     * several parts may have the same name.
+     * <p>
+     * Part names and file names are sent as quoted strings in UTF-8, with {@code '"'}, CR and LF percent-encoded, as
+     * HTML forms do.
+     * <p>
+     * <b>Instances of this class are mutable and not thread-safe.</b>
+     */
+    public static final class Builder {
+
+        private final List<Part> parts;
+        private String boundary;
+
+        private Builder() {
+            this.parts = new ArrayList<>();
+            this.boundary = randomBoundary();
+        }
+
+        /**
+         * Sets the boundary that delimits the parts, replacing the random one. It must not occur in the content of
+         * any part.
+         *
+         * @param b a non-{@code null} boundary of 1 to 70 characters as per
+         *          <a href="https://www.rfc-editor.org/rfc/rfc2046#section-5.1.1">RFC 2046 section 5.1.1</a>
+         * @return this builder
+         * @throws NullPointerException     if the boundary is {@code null}
+         * @throws IllegalArgumentException if the boundary is empty, too long, contains a character that is not
+         *                                  allowed or ends with a space
+         */
+        public Builder boundary(String b) {
+            Objects.requireNonNull(b, "Boundary cannot be null");
+            if (b.isEmpty() || b.length() > MAX_BOUNDARY_LENGTH) {
+                throw new IllegalArgumentException("Boundary must have 1 to 70 characters: " + b);
+            }
+            for (int i = 0; i < b.length(); i++) {
+                if (!isBoundaryChar(b.charAt(i))) {
+                    throw new IllegalArgumentException("Illegal character in boundary: " + b);
+                }
+            }
+            if (b.charAt(b.length() - 1) == ' ') {
+                throw new IllegalArgumentException("Boundary cannot end with a space: " + b);
+            }
+            boundary = b;
+            return this;
+        }
+
+        /**
+         * Adds a text part, which is sent in UTF-8 without a {@code Content-Type} header.
+         *
+         * @param name  a non-{@code null} part name
+         * @param value a non-{@code null} value
+         * @return this builder
+         * @throws NullPointerException if any argument is {@code null}
+         */
+        public Builder textPart(String name, String value) {
+            Objects.requireNonNull(name, "Name cannot be null");
+            Objects.requireNonNull(value, "Value cannot be null");
+            parts.add(new Part(name, null, null, new BytesSegment(value.getBytes(StandardCharsets.UTF_8))));
+            return this;
+        }
+
+        /**
+         * Adds a file part whose content is a byte array. The array is not copied, so it must not be modified while
+         * the publisher is in use.
+         *
+         * @param name        a non-{@code null} part name
+         * @param filename    a non-{@code null} file name
+         * @param contentType a non-{@code null} media type of the content
+         * @param bytes       a non-{@code null} content
+         * @return this builder
+         * @throws NullPointerException     if any argument is {@code null}
+         * @throws IllegalArgumentException if the media type contains CR or LF
+         */
+        public Builder bytesPart(String name, String filename, String contentType, byte[] bytes) {
+            Objects.requireNonNull(bytes, "Bytes cannot be null");
+            parts.add(filePart(name, filename, contentType, new BytesSegment(bytes)));
+            return this;
+        }
+
+        /**
+         * Adds a file part that is read from the given file, with the file's name and
+         * {@code application/octet-stream} as the media type.
+         *
+         * @param name a non-{@code null} part name
+         * @param file a non-{@code null} path to a regular file
+         * @return this builder
+         * @throws NullPointerException     if any argument is {@code null}
+         * @throws IllegalArgumentException if the path has no file name
+         */
+        public Builder filePart(String name, Path file) {
+            Objects.requireNonNull(file, "File cannot be null");
+            Path filename = file.getFileName();
+            if (filename == null) {
+                throw new IllegalArgumentException("Path has no file name: " + file);
+            }
+            return filePart(name, filename.toString(), DEFAULT_FILE_CONTENT_TYPE, file);
+        }
+
+        /**
+         * Adds a file part that is read from the given file.
+         *
+         * @param name        a non-{@code null} part name
+         * @param filename    a non-{@code null} file name, which does not have to match the one of the path
+         * @param contentType a non-{@code null} media type of the content
+         * @param file        a non-{@code null} path to a regular file
+         * @return this builder
+         * @throws NullPointerException     if any argument is {@code null}
+         * @throws IllegalArgumentException if the media type contains CR or LF
+         */
+        public Builder filePart(String name, String filename, String contentType, Path file) {
+            Objects.requireNonNull(file, "File cannot be null");
+            parts.add(filePart(name, filename, contentType, new FileSegment(file)));
+            return this;
+        }
+
+        /**
+         * Adds a file part that is read from a stream of unknown size, which makes the content length of the body
+         * unknown as well. The supplier is called once per subscription, and the stream it returns is closed after
+         * it has been read or when the subscription ends.
+         *
+         * @param name        a non-{@code null} part name
+         * @param filename    a non-{@code null} file name
+         * @param contentType a non-{@code null} media type of the content
+         * @param stream      a non-{@code null} supplier of the content
+         * @return this builder
+         * @throws NullPointerException     if any argument is {@code null}
+         * @throws IllegalArgumentException if the media type contains CR or LF
+         */
+        public Builder streamPart(String name, String filename, String contentType,
+                                  Supplier<? extends InputStream> stream) {
+            Objects.requireNonNull(stream, "Stream supplier cannot be null");
+            parts.add(filePart(name, filename, contentType, new StreamSegment(stream)));
+            return this;
+        }
+
+        /**
+         * Builds a publisher of the parts added so far. Files are sized at this point. The builder can be used
+         * further without affecting the publisher.
+         *
+         * @return a new {@link MultipartBodyPublisher}
+         */
+        public MultipartBodyPublisher build() {
+            List<Segment> segments = new ArrayList<>();
+            ByteArrayOutputStream pending = new ByteArrayOutputStream();
+            byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+
+            for (int i = 0; i < parts.size(); i++) {
+                Part part = parts.get(i);
+                if (i > 0) {
+                    pending.writeBytes(CRLF);
+                }
+                pending.writeBytes(delimiter);
+                pending.writeBytes(CRLF);
+                pending.writeBytes(part.headers());
+                pending.writeBytes(CRLF);
+
+                Segment body = part.body();
+                if (body instanceof BytesSegment bytes && bytes.length() <= CHUNK_SIZE) {
+                    pending.writeBytes(bytes.bytes()); /* Coalesced with the surrounding delimiters */
+                } else {
+                    flush(pending, segments);
+                    segments.add(body.sized());
+                }
+            }
+
+            if (!parts.isEmpty()) {
+                pending.writeBytes(CRLF);
+            }
+            pending.writeBytes(delimiter);
+            pending.writeBytes(new byte[]{'-', '-', '\r', '\n'});
+            flush(pending, segments);
+            return new MultipartBodyPublisher(boundary, List.copyOf(segments));
+        }
+
+        private static void flush(ByteArrayOutputStream pending, List<Segment> segments) {
+            if (pending.size() > 0) {
+                segments.add(new BytesSegment(pending.toByteArray()));
+                pending.reset();
+            }
+        }
+
+        private static Part filePart(String name, String filename, String contentType, Segment body) {
+            Objects.requireNonNull(name, "Name cannot be null");
+            Objects.requireNonNull(filename, "File name cannot be null");
+            Objects.requireNonNull(contentType, "Content type cannot be null");
+            if (contentType.indexOf('\r') != -1 || contentType.indexOf('\n') != -1) {
+                throw new IllegalArgumentException("Content type cannot contain CR or LF: " + contentType);
+            }
+            return new Part(name, filename, contentType, body);
+        }
+
+        private static String randomBoundary() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            char[] chars = new char[32];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = BOUNDARY_CHARS.charAt(random.nextInt(BOUNDARY_CHARS.length()));
+            }
+            return "jep321util-" + new String(chars);
+        }
+
+        /* bchars from RFC 2046 */
+        private static boolean isBoundaryChar(char c) {
+            return (c >= '0' && c <= '9')
+                    || (c >= 'A' && c <= 'Z')
+                    || (c >= 'a' && c <= 'z')
+                    || "'()+_,-./:=? ".indexOf(c) != -1;
+        }
+    }
+
+    private record Part(String name, String filename, String contentType, Segment body) {
+
+        byte[] headers() {
+            StringBuilder sb = new StringBuilder("Content-Disposition: form-data; name=\"");
+            appendQuoted(sb, name);
+            sb.append('"');
+            if (filename != null) {
+                sb.append("; filename=\"");
+                appendQuoted(sb, filename);
+                sb.append('"');
+            }
+            sb.append("\r\n");
+            if (contentType != null) {
+                sb.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            return sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        /* As per the HTML Living Standard, section 4.10.21.8 ("Multipart form data") */
+        private static void appendQuoted(StringBuilder sb, String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"' -> sb.append("%22");
+                    case '\r' -> sb.append("%0D");
+                    case '\n' -> sb.append("%0A");
+                    default -> sb.append(c);
+                }
+            }
+        }
+    }
+
+    /*
+     * A contiguous piece of the body. Every subscription opens its own cursor over each segment, in order, and closes
+     * it once it is exhausted or the subscription ends.
+     */
+    private interface Segment {
+
+        /* -1 if unknown */
+        long length();
+
+        /* Called when the publisher is built, to capture anything that has to be fixed by then */
+        default Segment sized() {
+            return this;
+        }
+
+        Cursor open() throws IOException;
+    }
+
+    private interface Cursor extends Closeable {
+
+        /* Returns null when exhausted; the returned buffer is handed over to the subscriber */
+        ByteBuffer next() throws IOException;
+
+        @Override
+        default void close() throws IOException {}
+    }
+
+    private record BytesSegment(byte[] bytes) implements Segment {
+
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+
+        @Override
+        public Cursor open() {
+            return new Cursor() {
+                private boolean done;
+
+                @Override
+                public ByteBuffer next() {
+                    if (done) {
+                        return null;
+                    }
+                    done = true;
+                    return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+                }
+            };
+        }
+    }
+
+    private record FileSegment(Path file, long size) implements Segment {
+
+        FileSegment(Path file) {
+            this(file, -1);
+        }
+
+        @Override
+        public long length() {
+            return size;
+        }
+
+        @Override
+        public Segment sized() {
+            try {
+                return new FileSegment(file, Files.size(file));
+            } catch (IOException e) {
+                return this; /* Size unknown, the error (if any) surfaces when the file is read */
+            }
+        }
+
+        @Override
+        public Cursor open() throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            return new Cursor() {
+                private long position;
+
+                @Override
+                public ByteBuffer next() throws IOException {
+                    ByteBuffer buffer = ByteBuffer.allocate(chunkSize());
+                    int n = (buffer.capacity() == 0) ? -1 : channel.read(buffer, position);
+                    if (n == -1) {
+                        if (size != -1 && (position != size || channel.size() != size)) {
+                            throw new IOException("File " + file + " changed size from " + size + " bytes");
+                        }
+                        return null;
+                    }
+                    position += n;
+                    return buffer.flip();
+                }
+
+                private int chunkSize() {
+                    return (size == -1) ? CHUNK_SIZE : (int) Math.min(CHUNK_SIZE, size - position);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+    }
+
+    private record StreamSegment(Supplier<? extends InputStream> stream) implements Segment {
+
+        @Override
+        public long length() {
+            return -1;
+        }
+
+        @Override
+        public Cursor open() throws IOException {
+            InputStream in = stream.get();
+            if (in == null) {
+                throw new IOException("Stream supplier returned null");
+            }
+            return new Cursor() {
+                @Override
+                public ByteBuffer next() throws IOException {
+                    byte[] chunk = in.readNBytes(CHUNK_SIZE);
+                    return (chunk.length == 0) ? null : ByteBuffer.wrap(chunk);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    in.close();
+                }
+            };
+        }
+    }
+
+    /* Pulls buffers from the segments in order, opening each one only once the previous one is exhausted */
+    private final class MultipartSubscription extends PullSubscription {
+
+        private int index;
+        private Cursor cursor;
+
+        MultipartSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            super(subscriber);
+        }
+
+        @Override
+        ByteBuffer next() throws IOException {
+            while (true) {
+                if (cursor == null) {
+                    if (index == segments.size()) {
+                        return null;
+                    }
+                    cursor = segments.get(index++).open();
+                }
+                ByteBuffer buffer = cursor.next();
+                if (buffer == null) {
+                    Cursor exhausted = cursor;
+                    cursor = null;
+                    exhausted.close();
+                } else if (buffer.hasRemaining()) {
+                    return buffer;
+                }
+            }
+        }
+
+        @Override
+        void release() {
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (IOException ignored) {
+                    /* Nothing sensible to do, the subscription is over anyway */
+                }
+                cursor = null;
+            }
+        }
+    }
+}
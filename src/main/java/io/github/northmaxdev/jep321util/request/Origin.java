@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * The origin of an HTTP(S) URI as per <a href="https://www.rfc-editor.org/rfc/rfc6454#section-4">RFC 6454</a>: its
+ * scheme, host and port. Two URIs have the same origin if and only if requests to them go to the same server, which
+ * makes origins the natural key for per-server state such as the compartments of an {@link OriginBulkhead}.
+ * <p>
+ * The port is always explicit, so {@code https://example.com} and {@code https://example.com:443} have the same
+ * origin, and the host is lowercased, so {@code https://Example.COM} has that origin too.
+ *
+ * @param scheme the scheme
+ * @param host   the host, lowercased
+ * @param port   the port, which is the scheme's {@link HTTPScheme#defaultPort() default port} if the URI does not
+ *               specify one
+ * @see URIBuilder#origin()
+ * @see BaseURI#origin()
+ */
+public record Origin(HTTPScheme scheme, String host, int port) {
+
+    /**
+     * Canonical constructor.
+     *
+     * @param scheme the scheme
+     * @param host   the host, which is lowercased
+     * @param port   the port
+     * @throws NullPointerException     if the scheme or the host is {@code null}
+     * @throws IllegalArgumentException if the host is empty or if the port is not a valid port number
+     */
+    public Origin {
+        Objects.requireNonNull(scheme, "Scheme cannot be null");
+        Objects.requireNonNull(host, "Host cannot be null");
+        if (host.isEmpty()) {
+            throw new IllegalArgumentException("Host cannot be empty");
+        }
+        if (port < Ports.MIN || port > Ports.MAX) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+        host = host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Extracts the origin of the given URI, for example, of {@link java.net.http.HttpRequest#uri()}.
+     *
+     * @param uri a non-{@code null} absolute HTTP(S) URI with a host
+     * @return a new {@code Origin}
+     * @throws NullPointerException     if the URI is {@code null}
+     * @throws IllegalArgumentException if the URI's scheme is neither {@code http} nor {@code https} (in any case), or
+     *                                  if it has no host
+     */
+    public static Origin of(URI uri) {
+        Objects.requireNonNull(uri, "URI cannot be null");
+        String s = uri.getScheme();
+        HTTPScheme scheme = (s == null)
+                ? null
+                : HTTPScheme.parse(s).orElse(null);
+        if (scheme == null) {
+            throw new IllegalArgumentException("Not an HTTP(S) URI: " + uri);
+        }
+        String host = uri.getHost();
+        if (host == null) {
+            throw new IllegalArgumentException("URI has no host: " + uri);
+        }
+        int port = uri.getPort();
+        return new Origin(scheme, host, (port == -1) ? scheme.defaultPort() : port);
+    }
+
+    /**
+     * Checks whether the port is the scheme's default one.
+     *
+     * @return {@code true} if the port is the {@link HTTPScheme#defaultPort() default port}, otherwise {@code false}
+     */
+    public boolean hasDefaultPort() {
+        return port == scheme.defaultPort();
+    }
+
+    /**
+     * Serializes this origin as per <a href="https://www.rfc-editor.org/rfc/rfc6454#section-6.2">RFC 6454 section
+     * 6.2</a>, omitting the port if it is the default one, e.g. {@code https://example.com} or
+     * {@code http://localhost:8080}.
+     *
+     * @return a non-{@code null} string
+     */
+    @Override
+    public String toString() {
+        return hasDefaultPort()
+                ? scheme + "://" + host
+                : scheme + "://" + host + ':' + port;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrent calls per {@link Origin}, so that one slow server cannot take every connection and
+ * thread of a shared client and starve the calls to healthy ones.
+ * <pre>{@code
+ * OriginBulkhead bulkhead = OriginBulkhead.of(32, 64);
+ *
+ * try (OriginBulkhead.Permit permit = bulkhead.acquire(Origin.of(request.uri()))) {
+ *     return client.send(request, handler);
+ * }
+ * }</pre>
+ * Every origin gets its own compartment, created on first use, with a fixed number of permits and a bounded number of
+ * waiters:
+ * <ul>
+ *     <li>a call that finds a free permit takes it with a single compare-and-set, without locking</li>
+ *     <li>a call that does not waits for one, unless the compartment already has as many waiters as allowed, in which
+ *     case it is rejected right away instead of queueing behind a server that is not keeping up</li>
+ * </ul>
+ * The compartments are independent of each other, so calls to different origins never contend: the map of
+ * compartments is what stripes the permit counters. Within a compartment, the permits are a single counter on purpose.
+ * Splitting it into stripes would either make the limit approximate or require stealing permits across stripes once
+ * the local one runs dry, which costs more than it saves. Only calls to the same origin contend on the counter, and
+ * each of them is about to make a network call that dwarfs a contended compare-and-set. Each compartment exposes
+ * live gauges ({@link #inFlight(Origin)}, {@link #queued(Origin)}) and a counter of rejections
+ * ({@link #rejected(Origin)}), which reflect what is actually happening rather than what has been configured.
+ * <p>
+ * Compartments are never removed, so the bulkhead is meant for a bounded set of origins, such as the upstream
+ * services of an application.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class OriginBulkhead {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final ConcurrentHashMap<Origin, Compartment> compartments;
+
+    private OriginBulkhead(int maxConcurrent, int maxQueued) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.compartments = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a bulkhead.
+     *
+     * @param maxConcurrent the number of permits of each origin, which must be positive
+     * @param maxQueued     the maximum number of calls waiting for a permit of each origin, which must not be negative
+     *                      (zero means that calls never wait)
+     * @return a new {@code OriginBulkhead}
+     * @throws IllegalArgumentException if either limit is out of range
+     */
+    public static OriginBulkhead of(int maxConcurrent, int maxQueued) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Maximum concurrency must be positive: " + maxConcurrent);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("Maximum queue length cannot be negative: " + maxQueued);
+        }
+        return new OriginBulkhead(maxConcurrent, maxQueued);
+    }
+
+    /**
+     * Takes a permit for the given origin without waiting.
+     *
+     * @param origin a non-{@code null} origin
+     * @return an {@link Optional} containing the permit or an empty one if all the origin's permits are taken
+     * @throws NullPointerException if the origin is {@code null}
+     */
+    public Optional<Permit> tryAcquire(Origin origin) {
+        Compartment compartment = compartmentOf(origin);
+        if (compartment.permits.tryAcquire()) {
+            return Optional.of(new Permit(origin, compartment));
+        }
+        compartment.rejected.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Takes a permit for the given origin, waiting up to the given timeout for one to become available unless the
+     * origin's queue is full.
+     *
+     * @param origin  a non-{@code null} origin
+     * @param timeout a non-{@code null} maximum waiting time
+     * @return an {@link Optional} containing the permit or an empty one if the origin's queue is full or the timeout
+     * elapses
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public Optional<Permit> tryAcquire(Origin origin, Duration timeout) throws InterruptedException {
+        Objects.requireNonNull(timeout, "Timeout cannot be null");
+        Compartment compartment = compartmentOf(origin);
+        if (compartment.permits.tryAcquire() || compartment.await(maxQueued, timeout.toNanos())) {
+            return Optional.of(new Permit(origin, compartment));
+        }
+        compartment.rejected.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Takes a permit for the given origin, waiting for one to become available unless the origin's queue is full.
+     *
+     * @param origin a non-{@code null} origin
+     * @return a non-{@code null} permit, which must be closed once the call is over
+     * @throws NullPointerException       if the origin is {@code null}
+     * @throws RejectedExecutionException if the origin's queue is full
+     * @throws InterruptedException       if the current thread is interrupted while waiting
+     */
+    public Permit acquire(Origin origin) throws InterruptedException {
+        Compartment compartment = compartmentOf(origin);
+        if (compartment.permits.tryAcquire() || compartment.await(maxQueued, Long.MAX_VALUE)) {
+            return new Permit(origin, compartment);
+        }
+        compartment.rejected.increment();
+        throw new RejectedExecutionException("Too many calls waiting for " + origin);
+    }
+
+    /**
+     * Returns the number of permits of the given origin that are currently taken.
+     *
+     * @param origin a non-{@code null} origin
+     * @return a number between 0 and the maximum concurrency
+     * @throws NullPointerException if the origin is {@code null}
+     */
+    public int inFlight(Origin origin) {
+        Compartment compartment = existingCompartmentOf(origin);
+        return (compartment == null) ? 0 : maxConcurrent - compartment.permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of calls that are currently waiting for a permit of the given origin.
+     *
+     * @param origin a non-{@code null} origin
+     * @return a number between 0 and the maximum queue length
+     * @throws NullPointerException if the origin is {@code null}
+     */
+    public int queued(Origin origin) {
+        Compartment compartment = existingCompartmentOf(origin);
+        return (compartment == null) ? 0 : compartment.queued.get();
+    }
+
+    /**
+     * Returns the number of calls to the given origin that have been rejected so far, either right away or after
+     * their timeout elapsed.
+     *
+     * @param origin a non-{@code null} origin
+     * @return a non-negative number
+     * @throws NullPointerException if the origin is {@code null}
+     */
+    public long rejected(Origin origin) {
+        Compartment compartment = existingCompartmentOf(origin);
+        return (compartment == null) ? 0 : compartment.rejected.sum();
+    }
+
+    /**
+     * Returns the origins that have a compartment, i.e. every origin that a permit has been asked for.
+     *
+     * @return a non-{@code null}, unmodifiable snapshot
+     */
+    public Set<Origin> origins() {
+        return Set.copyOf(compartments.keySet());
+    }
+
+    /**
+     * Returns a string representation of this bulkhead's configuration.
+     *
+     * @return a non-{@code null} string
+     */
+    @Override
+    public String toString() {
+        return "OriginBulkhead[maxConcurrent=%d, maxQueued=%d, origins=%d]"
+                .formatted(maxConcurrent, maxQueued, compartments.size());
+    }
+
+    private Compartment compartmentOf(Origin origin) {
+        Objects.requireNonNull(origin, "Origin cannot be null");
+        Compartment compartment = compartments.get(origin); /* Lock-free for existing origins */
+        return (compartment != null)
+                ? compartment
+                : compartments.computeIfAbsent(origin, o -> new Compartment(maxConcurrent));
+    }
+
+    private Compartment existingCompartmentOf(Origin origin) {
+        Objects.requireNonNull(origin, "Origin cannot be null");
+        return compartments.get(origin);
+    }
+
+    private static final class Compartment {
+
+        /* Non-fair, so that taking a free permit is a single CAS */
+        private final Semaphore permits;
+        private final AtomicInteger queued;
+        private final LongAdder rejected;
+
+        Compartment(int maxConcurrent) {
+            this.permits = new Semaphore(maxConcurrent);
+            this.queued = new AtomicInteger();
+            this.rejected = new LongAdder();
+        }
+
+        /* Waits for a permit if there is room in the queue; returns false if there is not or if the timeout elapses */
+        boolean await(int maxQueued, long timeoutNanos) throws InterruptedException {
+            int waiting;
+            do {
+                waiting = queued.get();
+                if (waiting >= maxQueued) {
+                    return false;
+                }
+            } while (!queued.compareAndSet(waiting, waiting + 1));
+
+            try {
+                if (timeoutNanos == Long.MAX_VALUE) {
+                    permits.acquire();
+                    return true;
+                }
+                return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * A permit to make one call to an origin, which must be {@link #close() closed} once the call is over, typically
+     * with a try-with-resources statement.
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private static final VarHandle RELEASED;
+
+        static {
+            try {
+                RELEASED = MethodHandles.lookup().findVarHandle(Permit.class, "released", boolean.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Origin origin;
+        private final Compartment compartment;
+        @SuppressWarnings("unused") /* Accessed through RELEASED */
+        private volatile boolean released;
+
+        private Permit(Origin origin, Compartment compartment) {
+            this.origin = origin;
+            this.compartment = compartment;
+        }
+
+        /**
+         * Returns the origin that this permit is for.
+         *
+         * @return a non-{@code null} {@link Origin}
+         */
+        public Origin origin() {
+            return origin;
+        }
+
+        /**
+         * Gives the permit back. Calling this method more than once has no further effect.
+         */
+        @Override
+        public void close() {
+            if (RELEASED.compareAndSet(this, false, true)) {
+                compartment.permits.release();
+            }
+        }
+    }
+}
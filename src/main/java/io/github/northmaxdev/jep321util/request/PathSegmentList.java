@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.util.Arrays;
+
+/**
+ * Storage for {@link URIBuilder}'s path segments: an insertion-ordered sequence of strings backed by a single array
+ * that grows in place. Elements are accessed by index, so iterating does not allocate.
+ * <p>
+ * <b>Ordering contract:</b> {@link #get(int)} returns the elements in the order in which they were added.
+ * <p>
+ * {@link #equals(Object)}, {@link #hashCode()} and {@link #toString()} follow the contracts of the respective
+ * {@link java.util.List} methods, which is what {@link URIBuilder} relied on before this class existed.
+ */
+final class PathSegmentList {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private String[] elements;
+    private int size;
+
+    PathSegmentList() {
+        this.elements = new String[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    private PathSegmentList(String[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    PathSegmentList copy() {
+        return new PathSegmentList(elements.clone(), size);
+    }
+
+    void add(String element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = element;
+    }
+
+    String get(int index) {
+        return elements[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof PathSegmentList other
+                && Arrays.equals(this.elements, 0, this.size, other.elements, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + elements[i].hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
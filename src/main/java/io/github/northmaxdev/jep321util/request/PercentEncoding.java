@@ -0,0 +1,392 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stateless percent-encoder and decoder as per
+ * <a href="https://www.rfc-editor.org/rfc/rfc3986#section-2.1">RFC 3986 section 2.1</a>, shared by everything in this
+ * package that writes or reads URI components.
+ * <p>
+ * Characters are encoded as their UTF-8 octets, using uppercase hexadecimal digits. Only ASCII letters and digits are
+ * left as-is. This is stricter than what the RFC requires (the rest of the unreserved set, {@code -._~}, is encoded
+ * too), but it is what {@link URIBuilder} has always produced, and changing it would change the resulting URIs.
+ * <p>
+ * All methods scan for the first character that needs encoding (or decoding) before doing anything else, since most
+ * inputs (identifiers, numbers, plain words) do not contain any.
+ */
+final class PercentEncoding {
+
+    private static final boolean[] UNENCODED = new boolean[128];
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            UNENCODED[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNENCODED[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNENCODED[c] = true;
+        }
+    }
+
+    private PercentEncoding() {}
+
+    /**
+     * Checks whether the given character is left as-is by this encoder.
+     */
+    static boolean isUnencoded(char c) {
+        return c < 128 && UNENCODED[c];
+    }
+
+    /**
+     * Returns the index of the first character that needs encoding or the sequence's length if there is none.
+     */
+    static int indexOfFirstEncoded(CharSequence s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (!isUnencoded(s.charAt(i))) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the given string, returning the very same instance if nothing needs encoding.
+     *
+     * @throws IllegalArgumentException if the string contains an unpaired surrogate
+     */
+    static String encode(String s) {
+        int first = indexOfFirstEncoded(s);
+        if (first == s.length()) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(encodedLength(s));
+        sb.append(s, 0, first);
+        encodeRemaining(s, first, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the encoded form of the given sequence to the given builder.
+     *
+     * @throws IllegalArgumentException if the sequence contains an unpaired surrogate
+     */
+    static void encode(CharSequence s, StringBuilder sb) {
+        int first = indexOfFirstEncoded(s);
+        sb.append(s, 0, first);
+        if (first < s.length()) {
+            encodeRemaining(s, first, sb);
+        }
+    }
+
+    /**
+     * Writes the encoded form of the given sequence into the given array, starting at the given offset. The array must
+     * have at least {@link #encodedLength(CharSequence)} elements available past the offset.
+     *
+     * @return the offset right past the last written element
+     * @throws IllegalArgumentException  if the sequence contains an unpaired surrogate
+     * @throws IndexOutOfBoundsException if the array is too small
+     */
+    static int encode(CharSequence s, char[] dst, int offset) {
+        int length = s.length();
+        int pos = offset;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (isUnencoded(c)) {
+                dst[pos++] = c;
+            } else {
+                int codePoint = codePointAt(s, i);
+                if (codePoint > Character.MAX_VALUE) {
+                    i++;
+                }
+                pos = encodeCodePoint(codePoint, dst, pos);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Writes as much of the encoded form of the given sequence as fits into the given buffer, starting at the given
+     * index of the sequence. Characters are never split across buffers: each one is either written completely or not
+     * at all, so the encoding can be resumed with another buffer at the returned index.
+     *
+     * @return the index of the first character that has not been written, which is the sequence's length once it has
+     * been written completely
+     * @throws IllegalArgumentException if the sequence contains an unpaired surrogate
+     */
+    static int encode(CharSequence s, int from, ByteBuffer dst) {
+        int length = s.length();
+        int i = from;
+        while (i < length) {
+            char c = s.charAt(i);
+            if (isUnencoded(c)) {
+                if (!dst.hasRemaining()) {
+                    break;
+                }
+                dst.put((byte) c);
+                i++;
+            } else {
+                int codePoint = codePointAt(s, i);
+                if (dst.remaining() < 3 * utf8Length(codePoint)) {
+                    break;
+                }
+                encodeCodePoint(codePoint, dst);
+                i += Character.charCount(codePoint);
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Computes the length of the given sequence's encoded form without encoding it.
+     *
+     * @throws IllegalArgumentException if the sequence contains an unpaired surrogate
+     */
+    static int encodedLength(CharSequence s) {
+        int length = s.length();
+        int encodedLength = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (isUnencoded(c)) {
+                encodedLength++;
+            } else {
+                int codePoint = codePointAt(s, i);
+                if (codePoint > Character.MAX_VALUE) {
+                    i++;
+                }
+                encodedLength += 3 * utf8Length(codePoint);
+            }
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Decodes the given range of the given string. If the range contains no percent-encoded octets, it is returned as
+     * a plain substring (or as the very same instance if the range covers the whole string). The plus sign is not
+     * treated specially.
+     *
+     * @throws IllegalArgumentException if the range contains a malformed percent-encoded octet or if the octets are
+     *                                  not valid UTF-8
+     */
+    static String decode(String s, int start, int end) {
+        return decode(s, start, end, false);
+    }
+
+    /**
+     * Same as {@link #decode(String, int, int)}, except that the plus sign may optionally be decoded as a space, as
+     * per the {@code application/x-www-form-urlencoded} format.
+     */
+    static String decode(String s, int start, int end, boolean plusAsSpace) {
+        if (!needsDecoding(s, start, end, plusAsSpace)) {
+            return (start == 0 && end == s.length()) ? s : s.substring(start, end);
+        }
+
+        byte[] octets = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= end) {
+                    throw new IllegalArgumentException("Truncated percent-encoded octet at index %d".formatted(i));
+                }
+                int high = Character.digit(s.charAt(i + 1), 16);
+                int low = Character.digit(s.charAt(i + 2), 16);
+                if (high == -1 || low == -1) {
+                    throw new IllegalArgumentException("Malformed percent-encoded octet at index %d".formatted(i));
+                }
+                octets[length++] = (byte) ((high << 4) | low);
+                i += 2;
+            } else if (c == '+' && plusAsSpace) {
+                octets[length++] = ' ';
+            } else if (c < 0x80) {
+                octets[length++] = (byte) c;
+            } else {
+                throw new IllegalArgumentException("Unencoded non-ASCII character at index %d".formatted(i));
+            }
+        }
+
+        try {
+            return UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(octets, 0, length))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Percent-encoded octets are not valid UTF-8: " + s.substring(start, end),
+                    e);
+        }
+    }
+
+    /**
+     * Checks whether the given range of the given string contains anything that {@link #decode(String, int, int,
+     * boolean)} would change.
+     */
+    static boolean needsDecoding(String s, int start, int end, boolean plusAsSpace) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '%' || (c == '+' && plusAsSpace)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void encodeRemaining(CharSequence s, int from, StringBuilder sb) {
+        int length = s.length();
+        for (int i = from; i < length; i++) {
+            char c = s.charAt(i);
+            if (isUnencoded(c)) {
+                sb.append(c);
+            } else {
+                int codePoint = codePointAt(s, i);
+                if (codePoint > Character.MAX_VALUE) {
+                    i++;
+                }
+                encodeCodePoint(codePoint, sb);
+            }
+        }
+    }
+
+    private static int codePointAt(CharSequence s, int index) {
+        char c = s.charAt(index);
+        if (Character.isHighSurrogate(c)) {
+            if (index + 1 == s.length()) {
+                throw new IllegalArgumentException("Trailing high surrogate at end of input");
+            }
+            char next = s.charAt(index + 1);
+            if (!Character.isLowSurrogate(next)) {
+                throw new IllegalArgumentException("Expected low surrogate at index %d".formatted(index + 1));
+            }
+            return Character.toCodePoint(c, next);
+        }
+        if (Character.isLowSurrogate(c)) {
+            throw new IllegalArgumentException("Unexpected low surrogate at index %d".formatted(index));
+        }
+        return c;
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        } else if (codePoint < 0x800) {
+            return 2;
+        } else if (codePoint < 0x10000) {
+            return 3;
+        } else {
+            return 4;
+        }
+    }
+
+    private static void encodeCodePoint(int codePoint, StringBuilder sb) {
+        switch (utf8Length(codePoint)) {
+            case 1 -> appendOctet(codePoint, sb);
+            case 2 -> {
+                appendOctet(0xC0 | (codePoint >>> 6), sb);
+                appendOctet(0x80 | (codePoint & 0x3F), sb);
+            }
+            case 3 -> {
+                appendOctet(0xE0 | (codePoint >>> 12), sb);
+                appendOctet(0x80 | ((codePoint >>> 6) & 0x3F), sb);
+                appendOctet(0x80 | (codePoint & 0x3F), sb);
+            }
+            default -> {
+                appendOctet(0xF0 | (codePoint >>> 18), sb);
+                appendOctet(0x80 | ((codePoint >>> 12) & 0x3F), sb);
+                appendOctet(0x80 | ((codePoint >>> 6) & 0x3F), sb);
+                appendOctet(0x80 | (codePoint & 0x3F), sb);
+            }
+        }
+    }
+
+    private static int encodeCodePoint(int codePoint, char[] dst, int pos) {
+        return switch (utf8Length(codePoint)) {
+            case 1 -> putOctet(codePoint, dst, pos);
+            case 2 -> {
+                pos = putOctet(0xC0 | (codePoint >>> 6), dst, pos);
+                yield putOctet(0x80 | (codePoint & 0x3F), dst, pos);
+            }
+            case 3 -> {
+                pos = putOctet(0xE0 | (codePoint >>> 12), dst, pos);
+                pos = putOctet(0x80 | ((codePoint >>> 6) & 0x3F), dst, pos);
+                yield putOctet(0x80 | (codePoint & 0x3F), dst, pos);
+            }
+            default -> {
+                pos = putOctet(0xF0 | (codePoint >>> 18), dst, pos);
+                pos = putOctet(0x80 | ((codePoint >>> 12) & 0x3F), dst, pos);
+                pos = putOctet(0x80 | ((codePoint >>> 6) & 0x3F), dst, pos);
+                yield putOctet(0x80 | (codePoint & 0x3F), dst, pos);
+            }
+        };
+    }
+
+    private static void encodeCodePoint(int codePoint, ByteBuffer dst) {
+        switch (utf8Length(codePoint)) {
+            case 1 -> putOctet(codePoint, dst);
+            case 2 -> {
+                putOctet(0xC0 | (codePoint >>> 6), dst);
+                putOctet(0x80 | (codePoint & 0x3F), dst);
+            }
+            case 3 -> {
+                putOctet(0xE0 | (codePoint >>> 12), dst);
+                putOctet(0x80 | ((codePoint >>> 6) & 0x3F), dst);
+                putOctet(0x80 | (codePoint & 0x3F), dst);
+            }
+            default -> {
+                putOctet(0xF0 | (codePoint >>> 18), dst);
+                putOctet(0x80 | ((codePoint >>> 12) & 0x3F), dst);
+                putOctet(0x80 | ((codePoint >>> 6) & 0x3F), dst);
+                putOctet(0x80 | (codePoint & 0x3F), dst);
+            }
+        }
+    }
+
+    private static void appendOctet(int octet, StringBuilder sb) {
+        sb.append('%')
+                .append(HEX_DIGITS[octet >>> 4])
+                .append(HEX_DIGITS[octet & 0xF]);
+    }
+
+    private static int putOctet(int octet, char[] dst, int pos) {
+        dst[pos] = '%';
+        dst[pos + 1] = HEX_DIGITS[octet >>> 4];
+        dst[pos + 2] = HEX_DIGITS[octet & 0xF];
+        return pos + 3;
+    }
+
+    private static void putOctet(int octet, ByteBuffer dst) {
+        dst.put((byte) '%')
+                .put((byte) HEX_DIGITS[octet >>> 4])
+                .put((byte) HEX_DIGITS[octet & 0xF]);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hands out unique port numbers from a configurable range or {@link PortSet}, for example, to stub servers that are
+ * started in parallel by a test suite. Unlike {@link Ports#random()}, two allocations never return the same port
+ * unless it has been released in between.
+ * <p>
+ * Reservations are tracked in a bitset with one bit per port, laid out like the one of {@link PortSet}. Claiming and
+ * releasing a port are single atomic bitwise operations on the word that contains its bit, so the allocator never
+ * locks. An allocation that loses the race for a bit to another thread retries with the next free bit of the same
+ * word, so it is lock-free rather than wait-free. Every allocation starts scanning at a random position, which
+ * spreads concurrent allocations across the bitset and keeps such retries rare.
+ * <p>
+ * Optionally, the allocator probes whether a claimed port can actually be bound on the local machine before handing
+ * it out, and skips it otherwise.
+ * <p>
+ * <b>Instances of this class are mutable</b> (they keep track of reservations), but they are thread-safe.
+ */
+public final class PortAllocator {
+
+    /**
+     * The lowest port of the dynamic (private, ephemeral) range as per
+     * <a href="https://www.rfc-editor.org/rfc/rfc6335#section-6">RFC 6335 section 6</a>, which is 49152.
+     */
+    public static final int EPHEMERAL_MIN = 49152;
+
+    /**
+     * The highest port of the dynamic (private, ephemeral) range as per
+     * <a href="https://www.rfc-editor.org/rfc/rfc6335#section-6">RFC 6335 section 6</a>, which is 65535.
+     */
+    public static final int EPHEMERAL_MAX = Ports.MAX;
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final PortSet ports;
+    private final boolean probeBindability;
+    private final int base; /* Index of the first PortSet word that has any port in it */
+    private final long[] allowed; /* Slice of the PortSet words, starting at base */
+    private final long[] words; /* Same layout as allowed, but a set bit means that the port is reserved */
+
+    private PortAllocator(PortSet ports, boolean probeBindability) {
+        this.ports = ports;
+        this.probeBindability = probeBindability;
+
+        int first = ports.first().orElse(Ports.MIN) >>> 6;
+        int last = ports.last().orElse(Ports.MIN) >>> 6;
+        this.base = first;
+        this.allowed = new long[ports.isEmpty() ? 0 : last - first + 1];
+        for (int w = 0; w < allowed.length; w++) {
+            allowed[w] = ports.word(first + w);
+        }
+        this.words = new long[allowed.length];
+    }
+
+    /**
+     * Creates an allocator for the given range that does not probe bindability.
+     *
+     * @param min the lowest port to hand out
+     * @param max the highest port to hand out
+     * @return an instance of {@code PortAllocator} without any reservations
+     * @throws IllegalArgumentException if either value is illegal as per {@link Ports#isValid(int)} or if the lowest
+     *                                  value is greater than the highest one
+     */
+    public static PortAllocator ofRange(int min, int max) {
+        return new PortAllocator(PortSet.range(min, max), false);
+    }
+
+    /**
+     * Creates an allocator for the given range.
+     *
+     * @param min              the lowest port to hand out
+     * @param max              the highest port to hand out
+     * @param probeBindability whether to skip the ports that cannot be bound on the local machine at the moment of
+     *                         allocation
+     * @return an instance of {@code PortAllocator} without any reservations
+     * @throws IllegalArgumentException if either value is illegal as per {@link Ports#isValid(int)} or if the lowest
+     *                                  value is greater than the highest one
+     */
+    public static PortAllocator ofRange(int min, int max, boolean probeBindability) {
+        return new PortAllocator(PortSet.range(min, max), probeBindability);
+    }
+
+    /**
+     * Creates an allocator for an arbitrary set of ports, for example, a range minus a deny list.
+     *
+     * @param ports            a non-{@code null} {@link PortSet} of the ports to hand out
+     * @param probeBindability whether to skip the ports that cannot be bound on the local machine at the moment of
+     *                         allocation
+     * @return an instance of {@code PortAllocator} without any reservations
+     * @throws NullPointerException if the set is {@code null}
+     */
+    public static PortAllocator of(PortSet ports, boolean probeBindability) {
+        Objects.requireNonNull(ports, "Ports cannot be null");
+        return new PortAllocator(ports, probeBindability);
+    }
+
+    /**
+     * Creates an allocator for the dynamic range, [{@value EPHEMERAL_MIN}, {@value EPHEMERAL_MAX}], that probes
+     * bindability.
+     *
+     * @return an instance of {@code PortAllocator} without any reservations
+     */
+    public static PortAllocator ephemeral() {
+        return new PortAllocator(PortSet.range(EPHEMERAL_MIN, EPHEMERAL_MAX), true);
+    }
+
+    /**
+     * Reserves any port that is currently not reserved.
+     *
+     * @return an {@link OptionalInt} containing the reserved port or an empty one if every port is
+     * either reserved or (when probing) cannot be bound
+     */
+    public OptionalInt allocate() {
+        int wordCount = words.length;
+        if (wordCount == 0) {
+            return OptionalInt.empty();
+        }
+        int first = ThreadLocalRandom.current().nextInt(wordCount);
+
+        for (int n = 0; n < wordCount; n++) {
+            int w = (first + n) % wordCount;
+            long skipped = 0L; /* Bits that have been claimed but failed the probe during this call */
+
+            long free;
+            while ((free = ~((long) WORDS.getVolatile(words, w) | skipped) & allowed[w]) != 0L) {
+                long bit = Long.lowestOneBit(free);
+                long previous = (long) WORDS.getAndBitwiseOr(words, w, bit);
+                if ((previous & bit) != 0L) {
+                    continue; /* Another thread got there first, retry with a fresh view of the word */
+                }
+
+                int port = (base + w) * Long.SIZE + Long.numberOfTrailingZeros(bit);
+                if (!probeBindability || isBindable(port)) {
+                    return OptionalInt.of(port);
+                }
+                WORDS.getAndBitwiseAnd(words, w, ~bit);
+                skipped |= bit;
+            }
+        }
+
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Reserves the given port, if it is currently not reserved. Bindability is never probed.
+     *
+     * @param port a port handed out by this allocator
+     * @return {@code true} if the port has been reserved by this call, {@code false} if it was already reserved
+     * @throws IllegalArgumentException if the port is not handed out by this allocator
+     */
+    public boolean reserve(int port) {
+        long bit = bitOf(port);
+        long previous = (long) WORDS.getAndBitwiseOr(words, wordOf(port), bit);
+        return (previous & bit) == 0L;
+    }
+
+    /**
+     * Releases the given port so that it can be handed out again.
+     *
+     * @param port a port handed out by this allocator
+     * @return {@code true} if the port has been released by this call, {@code false} if it was not reserved
+     * @throws IllegalArgumentException if the port is not handed out by this allocator
+     */
+    public boolean release(int port) {
+        long bit = bitOf(port);
+        long previous = (long) WORDS.getAndBitwiseAnd(words, wordOf(port), ~bit);
+        return (previous & bit) != 0L;
+    }
+
+    /**
+     * Checks whether the given port is currently reserved.
+     *
+     * @param port a port handed out by this allocator
+     * @return {@code true} if the port is reserved
+     * @throws IllegalArgumentException if the port is not handed out by this allocator
+     */
+    public boolean isReserved(int port) {
+        return ((long) WORDS.getVolatile(words, wordOf(port)) & bitOf(port)) != 0L;
+    }
+
+    /**
+     * Counts the currently reserved ports. Under concurrent modification, the result is only an approximation.
+     *
+     * @return a non-negative integer
+     */
+    public int reservedCount() {
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            count += Long.bitCount((long) WORDS.getVolatile(words, w));
+        }
+        return count;
+    }
+
+    private int wordOf(int port) {
+        if (!ports.contains(port)) {
+            throw new IllegalArgumentException("Port %d is not handed out by this allocator".formatted(port));
+        }
+        return (port >>> 6) - base;
+    }
+
+    private long bitOf(int port) {
+        if (!ports.contains(port)) {
+            throw new IllegalArgumentException("Port %d is not handed out by this allocator".formatted(port));
+        }
+        return 1L << port;
+    }
+
+    private static boolean isBindable(int port) {
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.setReuseAddress(false);
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a string representation of this allocator.
+     *
+     * @return a non-{@code null} string
+     */
+    @Override
+    public String toString() {
+        return "PortAllocator{ports=%s, probeBindability=%b, reserved=%d}"
+                .formatted(ports, probeBindability, reservedCount());
+    }
+}
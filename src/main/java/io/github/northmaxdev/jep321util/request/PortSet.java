@@ -0,0 +1,492 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.function.IntConsumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable set of valid port numbers (as per {@link Ports#isValid(int)}), for example, an allow list or a deny
+ * list.
+ * <p>
+ * Every instance is backed by a fixed 8 KB bitset with one bit per port, so membership checks are a single array
+ * access and set operations work on 64 ports at a time.
+ * <p>
+ * The string form is a comma-separated list of ports and inclusive ranges, such as {@code 80,443,8000-8100}. It is
+ * accepted by {@link #parse(String)} and produced by {@link #toString()}.
+ */
+public final class PortSet {
+
+    private static final int WORD_COUNT = (Ports.MAX + 1) / Long.SIZE;
+    private static final PortSet EMPTY = new PortSet(new long[WORD_COUNT]);
+    private static final PortSet ALL = range(Ports.MIN, Ports.MAX);
+
+    private final long[] words; /* Bit (p % 64) of word (p / 64) is set if and only if port p is a member */
+    private final int size;
+
+    private PortSet(long[] words) {
+        this.words = words;
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        this.size = count;
+    }
+
+    /**
+     * Returns the set without any ports.
+     *
+     * @return a non-{@code null} empty {@code PortSet}
+     */
+    public static PortSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the set of all valid ports, [{@value Ports#MIN}, {@value Ports#MAX}].
+     *
+     * @return a non-{@code null} {@code PortSet}
+     */
+    public static PortSet all() {
+        return ALL;
+    }
+
+    /**
+     * Creates a set of the given ports. Duplicates are ignored.
+     *
+     * @param ports valid port values
+     * @return a non-{@code null} {@code PortSet}
+     * @throws NullPointerException     if the array is {@code null}
+     * @throws IllegalArgumentException if any value is illegal as per {@link Ports#isValid(int)}
+     */
+    public static PortSet of(int... ports) {
+        Objects.requireNonNull(ports, "Ports cannot be null");
+        long[] words = new long[WORD_COUNT];
+        for (int port : ports) {
+            requireValid(port);
+            words[port >>> 6] |= 1L << port;
+        }
+        return new PortSet(words);
+    }
+
+    /**
+     * Creates a set of the ports within [{@code min}, {@code max}] (both ends inclusive).
+     *
+     * @param min the lowest port of the range
+     * @param max the highest port of the range
+     * @return a non-{@code null} {@code PortSet}
+     * @throws IllegalArgumentException if either value is illegal as per {@link Ports#isValid(int)} or if the lowest
+     *                                  value is greater than the highest one
+     */
+    public static PortSet range(int min, int max) {
+        long[] words = new long[WORD_COUNT];
+        setRange(words, min, max);
+        return new PortSet(words);
+    }
+
+    /**
+     * Parses a comma-separated list of ports and inclusive ranges, such as {@code 80,443,8000-8100}. Whitespace
+     * around the elements is ignored; overlapping elements are allowed. An empty (or blank) string yields the empty
+     * set.
+     *
+     * @param s a non-{@code null} string
+     * @return a non-{@code null} {@code PortSet}
+     * @throws NullPointerException     if the string is {@code null}
+     * @throws IllegalArgumentException if the string is malformed or contains an illegal port
+     */
+    public static PortSet parse(String s) {
+        Objects.requireNonNull(s, "String cannot be null");
+        if (s.isBlank()) {
+            return EMPTY;
+        }
+
+        long[] words = new long[WORD_COUNT];
+        int start = 0;
+        while (start <= s.length()) {
+            int end = s.indexOf(',', start);
+            if (end < 0) {
+                end = s.length();
+            }
+
+            int dash = s.indexOf('-', start);
+            if (dash < 0 || dash > end) {
+                int port = parsePort(s, start, end);
+                words[port >>> 6] |= 1L << port;
+            } else {
+                int min = parsePort(s, start, dash);
+                int max = parsePort(s, dash + 1, end);
+                if (min > max) {
+                    throw new IllegalArgumentException("Illegal port range in \"%s\": %d-%d".formatted(s, min, max));
+                }
+                setRange(words, min, max);
+            }
+
+            start = end + 1;
+        }
+        return new PortSet(words);
+    }
+
+    private static int parsePort(String s, int start, int end) {
+        while (start < end && Character.isWhitespace(s.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+        int port = Ports.parse(s, start, end);
+        if (port < 0) {
+            throw new IllegalArgumentException("Illegal port in \"%s\": \"%s\"".formatted(s, s.substring(start, end)));
+        }
+        return port;
+    }
+
+    private static void setRange(long[] words, int min, int max) {
+        requireValid(min);
+        requireValid(max);
+        if (min > max) {
+            throw new IllegalArgumentException("Illegal port range: [%d, %d]".formatted(min, max));
+        }
+
+        int first = min >>> 6;
+        int last = max >>> 6;
+        long firstMask = -1L << min;        /* Shift distances are taken modulo 64 */
+        long lastMask = -1L >>> (63 - (max & 63));
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+        } else {
+            words[first] |= firstMask;
+            Arrays.fill(words, first + 1, last, -1L);
+            words[last] |= lastMask;
+        }
+    }
+
+    private static void requireValid(int port) {
+        if (!Ports.isValid(port)) {
+            throw new IllegalArgumentException("Illegal port value: " + port);
+        }
+    }
+
+    /**
+     * Checks whether the given port is a member of this set.
+     *
+     * @param port an integer value
+     * @return {@code true} if the port is a member, {@code false} otherwise (including when the value is not a valid
+     * port)
+     */
+    public boolean contains(int port) {
+        return Ports.isValid(port) && (words[port >>> 6] & (1L << port)) != 0L;
+    }
+
+    /**
+     * Returns the number of ports in this set.
+     *
+     * @return an integer within [0, 65536]
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether this set has no ports.
+     *
+     * @return {@code true} if the set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the lowest port in this set.
+     *
+     * @return an {@link OptionalInt} containing the lowest port or an empty one if the set is empty
+     */
+    public OptionalInt first() {
+        int port = nextPort(Ports.MIN);
+        return port < 0 ? OptionalInt.empty() : OptionalInt.of(port);
+    }
+
+    /**
+     * Returns the highest port in this set.
+     *
+     * @return an {@link OptionalInt} containing the highest port or an empty one if the set is empty
+     */
+    public OptionalInt last() {
+        for (int w = WORD_COUNT - 1; w >= 0; w--) {
+            if (words[w] != 0L) {
+                return OptionalInt.of(w * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[w]));
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Finds the lowest port in this set that is greater than or equal to the given value. This allows iterating
+     * without boxing: {@code for (int p = set.nextPort(0); p >= 0; p = set.nextPort(p + 1))}.
+     *
+     * @param from the value to start searching from; values below {@value Ports#MIN} are treated as such
+     * @return the found port, or -1 if there is none
+     */
+    public int nextPort(int from) {
+        if (from > Ports.MAX) {
+            return -1;
+        }
+        from = Math.max(from, Ports.MIN);
+
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0L) {
+                return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == WORD_COUNT) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    /**
+     * Performs the given action for every port in this set, in ascending order.
+     *
+     * @param action a non-{@code null} action
+     * @throws NullPointerException if the action is {@code null}
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+        for (int w = 0; w < WORD_COUNT; w++) {
+            long word = words[w];
+            while (word != 0L) {
+                action.accept(w * Long.SIZE + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Constructs a stream of the ports in this set, in ascending order.
+     *
+     * @return a non-{@code null} {@link IntStream}
+     */
+    public IntStream stream() {
+        return IntStream.iterate(nextPort(Ports.MIN), p -> p >= 0, p -> nextPort(p + 1));
+    }
+
+    /**
+     * Copies the ports in this set into a new array, in ascending order.
+     *
+     * @return a non-{@code null} array of length {@link #size()}
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int w = 0; w < WORD_COUNT; w++) {
+            long word = words[w];
+            while (word != 0L) {
+                result[i++] = w * Long.SIZE + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Picks a uniformly distributed random port from this set.
+     *
+     * @return a port in this set
+     * @throws IllegalStateException if this set is empty
+     * @see URIBuilder#randomPort(PortSet)
+     */
+    public int random() {
+        return random(RandomGenerator.getDefault());
+    }
+
+    /**
+     * Picks a uniformly distributed random port from this set using the provided random number generator, for
+     * example, to be passed to {@link URIBuilder#port(int)}.
+     *
+     * @param generator a non-{@code null} instance of {@link RandomGenerator}
+     * @return a port in this set
+     * @throws NullPointerException  if the provided generator is {@code null}
+     * @throws IllegalStateException if this set is empty
+     */
+    public int random(RandomGenerator generator) {
+        Objects.requireNonNull(generator, "Generator must not be null");
+        if (size == 0) {
+            throw new IllegalStateException("Cannot pick a port from an empty set");
+        }
+
+        int remaining = generator.nextInt(size);
+        for (int w = 0; ; w++) {
+            int count = Long.bitCount(words[w]);
+            if (remaining < count) {
+                long word = words[w];
+                for (int i = 0; i < remaining; i++) {
+                    word &= word - 1;
+                }
+                return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            remaining -= count;
+        }
+    }
+
+    /**
+     * Computes the set of ports that are members of this set, the other set, or both.
+     *
+     * @param other a non-{@code null} {@code PortSet}
+     * @return a non-{@code null} {@code PortSet}
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public PortSet union(PortSet other) {
+        Objects.requireNonNull(other, "Other set cannot be null");
+        long[] result = new long[WORD_COUNT];
+        for (int w = 0; w < WORD_COUNT; w++) {
+            result[w] = words[w] | other.words[w];
+        }
+        return new PortSet(result);
+    }
+
+    /**
+     * Computes the set of ports that are members of both this set and the other set.
+     *
+     * @param other a non-{@code null} {@code PortSet}
+     * @return a non-{@code null} {@code PortSet}
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public PortSet intersection(PortSet other) {
+        Objects.requireNonNull(other, "Other set cannot be null");
+        long[] result = new long[WORD_COUNT];
+        for (int w = 0; w < WORD_COUNT; w++) {
+            result[w] = words[w] & other.words[w];
+        }
+        return new PortSet(result);
+    }
+
+    /**
+     * Computes the set of ports that are members of this set but not of the other set.
+     *
+     * @param other a non-{@code null} {@code PortSet}
+     * @return a non-{@code null} {@code PortSet}
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public PortSet difference(PortSet other) {
+        Objects.requireNonNull(other, "Other set cannot be null");
+        long[] result = new long[WORD_COUNT];
+        for (int w = 0; w < WORD_COUNT; w++) {
+            result[w] = words[w] & ~other.words[w];
+        }
+        return new PortSet(result);
+    }
+
+    /**
+     * Computes the set of valid ports that are not members of this set.
+     *
+     * @return a non-{@code null} {@code PortSet}
+     */
+    public PortSet complement() {
+        long[] result = new long[WORD_COUNT];
+        for (int w = 0; w < WORD_COUNT; w++) {
+            result[w] = ~words[w];
+        }
+        return new PortSet(result);
+    }
+
+    /* Package-private so that PortAllocator can take a slice of the bitset without iterating */
+    long word(int index) {
+        return words[index];
+    }
+
+    /**
+     * Checks whether this set is equal to the provided object.
+     *
+     * @param obj a possibly {@code null} object
+     * @return {@code true} if and only if the provided object is a {@code PortSet} that contains exactly the same ports
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof PortSet other) {
+            return Arrays.equals(words, other.words);
+        }
+        return false;
+    }
+
+    /**
+     * Computes a suitable hash code for this set.
+     *
+     * @return a hash code
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    /**
+     * Returns the string form of this set, which is a comma-separated list of ports and inclusive ranges in ascending
+     * order, such as {@code 80,443,8000-8100}. Adjacent ports are always merged into ranges. The result can be passed
+     * to {@link #parse(String)} to obtain an equal set.
+     *
+     * @return a non-{@code null} string, empty if this set is empty
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int start = nextPort(Ports.MIN);
+        while (start >= 0) {
+            int end = nextAbsent(start);
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+            sb.append(start);
+            if (end - 1 > start) {
+                sb.append('-').append(end - 1);
+            }
+            start = nextPort(end);
+        }
+        return sb.toString();
+    }
+
+    private int nextAbsent(int from) {
+        if (from > Ports.MAX) {
+            return Ports.MAX + 1;
+        }
+        int w = from >>> 6;
+        long word = ~words[w] & (-1L << from);
+        while (true) {
+            if (word != 0L) {
+                return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == WORD_COUNT) {
+                return Ports.MAX + 1;
+            }
+            word = ~words[w];
+        }
+    }
+}
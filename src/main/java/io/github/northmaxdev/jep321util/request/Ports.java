@@ -62,6 +62,26 @@ public final class Ports {
         return port >= MIN && port <= MAX;
     }
 
+    /**
+     * Parses the decimal port value in the given range of the given sequence.
+     *
+     * @return the port value or -1 if the range is empty, contains anything but digits or the value is illegal
+     */
+    static int parse(CharSequence s, int start, int end) {
+        if (start == end || end - start > 5) {
+            return -1;
+        }
+        int port = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            port = port * 10 + (c - '0');
+        }
+        return isValid(port) ? port : -1;
+    }
+
     /**
      * Generates a random port number within the legal boundaries.
      *
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Subscription of the body publishers of this package: pulls one buffer from next() per unit of demand and hands it
+ * to the subscriber, until next() runs out, fails, or the subscription is cancelled, after which release() is called
+ * exactly once.
+ *
+ * Like the publishers of the response package, the work is serialized with a work-in-progress counter: whichever
+ * thread signals (request/cancel) either runs the loop or makes the thread that is already running it go around once
+ * more. next() and release() are therefore confined to the loop, and so is any state they use.
+ */
+abstract class PullSubscription implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super ByteBuffer> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private boolean terminated; /* Confined to drainLoop() */
+
+    PullSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    /* Returns null once the body is complete; the returned buffer is handed over to the subscriber */
+    abstract ByteBuffer next() throws IOException;
+
+    void release() {}
+
+    @Override
+    public final void request(long n) {
+        if (n <= 0) {
+            error = new IllegalArgumentException("Requested a non-positive number of items: " + n);
+        } else {
+            demand.getAndAccumulate(n, (current, added) -> {
+                long sum = current + added;
+                return (sum < 0) ? Long.MAX_VALUE : sum; /* Saturate on overflow */
+            });
+        }
+        drain();
+    }
+
+    @Override
+    public final void cancel() {
+        cancelled = true;
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            drainLoop();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainLoop() {
+        if (terminated) {
+            return;
+        }
+        while (true) {
+            if (cancelled) {
+                terminate();
+                return;
+            }
+            Throwable e = error;
+            if (e != null) {
+                terminate();
+                subscriber.onError(e);
+                return;
+            }
+            if (demand.get() == 0) {
+                return;
+            }
+
+            ByteBuffer buffer;
+            try {
+                buffer = next();
+            } catch (IOException | RuntimeException ex) {
+                terminate();
+                subscriber.onError(ex);
+                return;
+            }
+            if (buffer == null) {
+                terminate();
+                subscriber.onComplete();
+                return;
+            }
+            demand.decrementAndGet();
+            subscriber.onNext(buffer);
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        release();
+    }
+}
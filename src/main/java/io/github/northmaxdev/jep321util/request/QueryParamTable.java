@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.util.Arrays;
+
+/**
+ * Storage for {@link URIBuilder}'s query parameters: an insertion-ordered table of unique names and their values,
+ * backed by a single array of interleaved names and values that grows in place. Entries are accessed by index, so
+ * iterating does not allocate.
+ * <p>
+ * <b>Ordering contract:</b> {@link #nameAt(int)} and {@link #valueAt(int)} return the entries in the order in which
+ * their names were first added. Putting an existing name replaces its value and preserves its position.
+ * <p>
+ * Small tables (which is the vast majority of them) are searched linearly. Once a table outgrows that, it maintains an
+ * open-addressing index of its names, so that putting remains constant-time.
+ * <p>
+ * {@link #equals(Object)}, {@link #hashCode()} and {@link #toString()} follow the contracts of the respective
+ * {@link java.util.Map} methods, which is what {@link URIBuilder} relied on before this class existed. In particular,
+ * equality does not depend on the order of the entries.
+ */
+final class QueryParamTable {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int LINEAR_SEARCH_THRESHOLD = 8;
+
+    private String[] entries; /* Names at even positions, their values right after them */
+    private int size;
+    private int[] index; /* Entry number + 1, 0 marks an empty slot, null until the threshold is exceeded */
+
+    QueryParamTable() {
+        this.entries = new String[INITIAL_CAPACITY * 2];
+        this.size = 0;
+        this.index = null;
+    }
+
+    private QueryParamTable(String[] entries, int size, int[] index) {
+        this.entries = entries;
+        this.size = size;
+        this.index = index;
+    }
+
+    QueryParamTable copy() {
+        return new QueryParamTable(entries.clone(), size, (index == null) ? null : index.clone());
+    }
+
+    void put(String name, String value) {
+        int i = indexOf(name);
+        if (i != -1) {
+            entries[2 * i + 1] = value;
+            return;
+        }
+
+        if (2 * size == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[2 * size] = name;
+        entries[2 * size + 1] = value;
+        size++;
+
+        if (index != null && 2 * size <= index.length) {
+            addToIndex(size - 1);
+        } else if (size > LINEAR_SEARCH_THRESHOLD) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * Returns the position of the entry with the given name or -1 if there is none.
+     */
+    int indexOf(String name) {
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                if (entries[2 * i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = index.length - 1;
+        for (int slot = spread(name.hashCode()) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int i = index[slot] - 1;
+            if (entries[2 * i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String nameAt(int i) {
+        return entries[2 * i];
+    }
+
+    String valueAt(int i) {
+        return entries[2 * i + 1];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void rebuildIndex() {
+        index = new int[Integer.highestOneBit(size) * 4];
+        for (int i = 0; i < size; i++) {
+            addToIndex(i);
+        }
+    }
+
+    private void addToIndex(int i) {
+        int mask = index.length - 1;
+        int slot = spread(entries[2 * i].hashCode()) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = i + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Unlike {@link #equals(Object)}, takes the order of the entries into account.
+     */
+    boolean equalsInOrder(QueryParamTable other) {
+        return Arrays.equals(this.entries, 0, 2 * this.size, other.entries, 0, 2 * other.size);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof QueryParamTable other) || this.size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            int j = other.indexOf(this.nameAt(i));
+            if (j == -1 || !this.valueAt(i).equals(other.valueAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < size; i++) {
+            hash += nameAt(i).hashCode() ^ valueAt(i).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(nameAt(i)).append('=').append(valueAt(i));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A read-only view of the parameters of a raw (that is, still percent-encoded) URI query, such as
+ * {@code q=%D0%94%D0%B6%D0%B0%D0%B2%D0%B0&page=2&tag=a&tag=b}. This is the reading counterpart of
+ * {@link URIBuilder#param(String, String)}.
+ * <p>
+ * Parsing makes a single pass over the query that only records where each parameter's name and value start and end.
+ * Names and values are percent-decoded lazily, when they are accessed, and only if they actually contain anything to
+ * decode, so looking parameters up by a name that does not need decoding does not allocate anything for the
+ * parameters that do not match. Repeated names are preserved, in order; see {@link #all(String)} and
+ * {@link #asMap()}.
+ * <p>
+ * A parameter without a {@code =} separator has an empty value. Empty parameters (e.g. between {@code &&}) are
+ * skipped. Malformed percent-encoded octets are reported only when the name or value that contains them is accessed.
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class QueryParameters {
+
+    private static final QueryParameters EMPTY = new QueryParameters("", false);
+
+    private final String query;
+    private final boolean plusAsSpace;
+    private final int[] bounds; /* Per parameter: the name's start, the separator's position and the value's end */
+    private final int size;
+    private volatile String[] decoded; /* Per parameter: the decoded name and value, null until accessed */
+    private volatile Map<String, List<String>> map;
+
+    private QueryParameters(String query, boolean plusAsSpace) {
+        this.query = query;
+        this.plusAsSpace = plusAsSpace;
+
+        int[] bounds = new int[3 * 4];
+        int size = 0;
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end == -1) {
+                end = query.length();
+            }
+            if (end > start) {
+                int separator = query.indexOf('=', start);
+                if (separator == -1 || separator > end) {
+                    separator = end;
+                }
+                if (3 * size == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[3 * size] = start;
+                bounds[3 * size + 1] = separator;
+                bounds[3 * size + 2] = end;
+                size++;
+            }
+            start = end + 1;
+        }
+
+        this.bounds = bounds;
+        this.size = size;
+    }
+
+    /**
+     * Parses a raw query as per <a href="https://www.rfc-editor.org/rfc/rfc3986#section-3.4">RFC 3986 section
+     * 3.4</a>. The plus sign is taken literally.
+     *
+     * @param rawQuery a possibly {@code null} raw query, without the leading {@code ?}; {@code null} is treated as an
+     *                 empty query
+     * @return an instance of {@code QueryParameters}
+     */
+    public static QueryParameters parse(String rawQuery) {
+        return (rawQuery == null || rawQuery.isEmpty()) ? EMPTY : new QueryParameters(rawQuery, false);
+    }
+
+    /**
+     * Parses a raw query in the {@code application/x-www-form-urlencoded} format, as sent by HTML forms. The plus sign
+     * is decoded as a space.
+     *
+     * @param rawQuery a possibly {@code null} raw query, without the leading {@code ?}; {@code null} is treated as an
+     *                 empty query
+     * @return an instance of {@code QueryParameters}
+     */
+    public static QueryParameters parseForm(String rawQuery) {
+        return (rawQuery == null || rawQuery.isEmpty()) ? EMPTY : new QueryParameters(rawQuery, true);
+    }
+
+    /**
+     * Parses the raw query of the given URI as per {@link #parse(String)}.
+     *
+     * @param uri a non-{@code null} URI
+     * @return an instance of {@code QueryParameters}
+     * @throws NullPointerException if the URI is {@code null}
+     */
+    public static QueryParameters of(URI uri) {
+        Objects.requireNonNull(uri, "URI cannot be null");
+        return parse(uri.getRawQuery());
+    }
+
+    /**
+     * Returns the number of parameters, counting repeated names as many times as they occur.
+     *
+     * @return a non-negative integer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether there are no parameters.
+     *
+     * @return {@code true} if there are no parameters
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the decoded name of the parameter at the given position.
+     *
+     * @param index a position within [0, {@link #size()})
+     * @return a non-{@code null} string
+     * @throws IndexOutOfBoundsException if the position is out of bounds
+     * @throws IllegalArgumentException  if the name is malformed
+     */
+    public String nameAt(int index) {
+        Objects.checkIndex(index, size);
+        return decodedAt(2 * index, bounds[3 * index], bounds[3 * index + 1]);
+    }
+
+    /**
+     * Returns the decoded value of the parameter at the given position.
+     *
+     * @param index a position within [0, {@link #size()})
+     * @return a non-{@code null} string, which is empty if the parameter has no value
+     * @throws IndexOutOfBoundsException if the position is out of bounds
+     * @throws IllegalArgumentException  if the value is malformed
+     */
+    public String valueAt(int index) {
+        Objects.checkIndex(index, size);
+        int separator = bounds[3 * index + 1];
+        int end = bounds[3 * index + 2];
+        return (separator == end) ? "" : decodedAt(2 * index + 1, separator + 1, end);
+    }
+
+    /**
+     * Checks whether there is at least one parameter with the given name.
+     *
+     * @param name a non-{@code null} decoded name
+     * @return {@code true} if there is such a parameter
+     * @throws NullPointerException if the name is {@code null}
+     */
+    public boolean contains(String name) {
+        return indexOf(name, 0) != -1;
+    }
+
+    /**
+     * Returns the value of the first parameter with the given name.
+     *
+     * @param name a non-{@code null} decoded name
+     * @return an {@link Optional} containing the decoded value or an empty one if there is no such parameter
+     * @throws NullPointerException     if the name is {@code null}
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    public Optional<String> first(String name) {
+        int index = indexOf(name, 0);
+        return (index == -1) ? Optional.empty() : Optional.of(valueAt(index));
+    }
+
+    /**
+     * Returns the values of all the parameters with the given name.
+     *
+     * @param name a non-{@code null} decoded name
+     * @return a non-{@code null} unmodifiable list of decoded values in the order in which they occur, which is empty
+     * if there is no such parameter
+     * @throws NullPointerException     if the name is {@code null}
+     * @throws IllegalArgumentException if any of the values is malformed
+     */
+    public List<String> all(String name) {
+        int index = indexOf(name, 0);
+        if (index == -1) {
+            return List.of();
+        }
+        List<String> values = new ArrayList<>(1);
+        do {
+            values.add(valueAt(index));
+            index = indexOf(name, index + 1);
+        } while (index != -1);
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Returns a multimap view of the parameters, which maps each distinct name to all of its values. The view is
+     * built (decoding every name and value) on the first call.
+     *
+     * @return a non-{@code null} unmodifiable map, whose keys are in the order of their first occurrence and whose
+     * values are unmodifiable lists in the order of occurrence
+     * @throws IllegalArgumentException if any of the names or values is malformed
+     */
+    public Map<String, List<String>> asMap() {
+        Map<String, List<String>> result = map;
+        if (result == null) {
+            Map<String, List<String>> builder = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                builder.computeIfAbsent(nameAt(i), name -> new ArrayList<>(1)).add(valueAt(i));
+            }
+            builder.replaceAll((name, values) -> Collections.unmodifiableList(values));
+            result = Collections.unmodifiableMap(builder);
+            map = result;
+        }
+        return result;
+    }
+
+    private int indexOf(String name, int fromIndex) {
+        Objects.requireNonNull(name, "Name cannot be null");
+        for (int i = fromIndex; i < size; i++) {
+            int start = bounds[3 * i];
+            int separator = bounds[3 * i + 1];
+            if (PercentEncoding.needsDecoding(query, start, separator, plusAsSpace)) {
+                if (nameAt(i).equals(name)) {
+                    return i;
+                }
+            } else if (separator - start == name.length() && query.startsWith(name, start)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String decodedAt(int slot, int start, int end) {
+        if (!PercentEncoding.needsDecoding(query, start, end, plusAsSpace)) {
+            return query.substring(start, end);
+        }
+
+        String[] cache = decoded;
+        if (cache == null) {
+            cache = new String[2 * size];
+            decoded = cache;
+        }
+        String value = cache[slot];
+        if (value == null) {
+            value = PercentEncoding.decode(query, start, end, plusAsSpace);
+            cache[slot] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether this instance is equal to the provided object.
+     *
+     * @param obj a possibly {@code null} object
+     * @return {@code true} if and only if the provided object was parsed from the same raw query in the same format
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof QueryParameters other
+                && this.query.equals(other.query)
+                && this.plusAsSpace == other.plusAsSpace;
+    }
+
+    /**
+     * Computes a suitable hash code for this instance.
+     *
+     * @return a hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * query.hashCode() + Boolean.hashCode(plusAsSpace);
+    }
+
+    /**
+     * Returns the raw query this instance was parsed from.
+     *
+     * @return a non-{@code null} string, which is empty for an empty query
+     */
+    @Override
+    public String toString() {
+        return query;
+    }
+}
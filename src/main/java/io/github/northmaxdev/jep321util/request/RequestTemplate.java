@@ -0,0 +1,329 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A reusable blueprint for {@link HttpRequest} instances that share everything but their URI and body: a
+ * {@link BaseURI}, a method, a timeout and a fixed set of headers (authorization, accept, user agent and the like).
+ * <pre>{@code
+ * RequestTemplate orders = RequestTemplate.builder(api.pathSegment("orders"))
+ *         .method("GET")
+ *         .header("Accept", "application/json")
+ *         .header("Authorization", token)
+ *         .timeout(Duration.ofSeconds(5))
+ *         .build();
+ *
+ * HttpRequest request = orders.newRequest(orders.baseURI().pathSegment(12345));
+ * }</pre>
+ * The fixed parts are validated once, when the template is built, by the same {@link HttpRequest.Builder} rules that
+ * would apply to every request otherwise. The headers are then kept as a single immutable {@link HttpHeaders}
+ * instance that every request shares, so stamping out a request neither copies nor re-validates them: it only builds
+ * the URI (see {@link BaseURI#build()}) and allocates the request itself.
+ * <p>
+ * Instances of this class are immutable and thread-safe, and so are the requests they create.
+ */
+public final class RequestTemplate {
+
+    private final BaseURI baseURI;
+    private final String method;
+    private final HttpHeaders headers;
+    private final Optional<Duration> timeout;
+    private final Optional<HttpClient.Version> version;
+    private final boolean expectContinue;
+
+    private RequestTemplate(BaseURI baseURI, String method, HttpHeaders headers, Optional<Duration> timeout,
+                            Optional<HttpClient.Version> version, boolean expectContinue) {
+        this.baseURI = baseURI;
+        this.method = method;
+        this.headers = headers;
+        this.timeout = timeout;
+        this.version = version;
+        this.expectContinue = expectContinue;
+    }
+
+    /**
+     * Creates a builder for templates of {@code GET} requests to the given base URI, without headers.
+     *
+     * @param base a non-{@code null} base URI, typically obtained with {@link URIBuilder#freeze()}
+     * @return a new {@link Builder}
+     * @throws NullPointerException if the base URI is {@code null}
+     */
+    public static Builder builder(BaseURI base) {
+        Objects.requireNonNull(base, "Base URI cannot be null");
+        return new Builder(base);
+    }
+
+    /**
+     * Returns the base URI, from which the URIs of individual requests are typically derived.
+     *
+     * @return a non-{@code null} {@link BaseURI}
+     */
+    public BaseURI baseURI() {
+        return baseURI;
+    }
+
+    /**
+     * Returns the request method.
+     *
+     * @return a non-{@code null} method name
+     */
+    public String method() {
+        return method;
+    }
+
+    /**
+     * Returns the headers that every request carries.
+     *
+     * @return a non-{@code null} {@link HttpHeaders} instance
+     */
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    /**
+     * Creates a request to the base URI itself, without a body.
+     *
+     * @return a new {@link HttpRequest}
+     */
+    public HttpRequest newRequest() {
+        return newRequest(baseURI);
+    }
+
+    /**
+     * Creates a request to the given URI, without a body.
+     *
+     * @param uri a non-{@code null} URI, typically derived from {@link #baseURI()}
+     * @return a new {@link HttpRequest}
+     * @throws NullPointerException if the URI is {@code null}
+     */
+    public HttpRequest newRequest(BaseURI uri) {
+        Objects.requireNonNull(uri, "URI cannot be null");
+        return new TemplatedRequest(this, uri.build(), Optional.empty());
+    }
+
+    /**
+     * Creates a request to the given URI, with the given body.
+     *
+     * @param uri  a non-{@code null} URI, typically derived from {@link #baseURI()}
+     * @param body a non-{@code null} body publisher
+     * @return a new {@link HttpRequest}
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public HttpRequest newRequest(BaseURI uri, BodyPublisher body) {
+        Objects.requireNonNull(uri, "URI cannot be null");
+        Objects.requireNonNull(body, "Body cannot be null");
+        return new TemplatedRequest(this, uri.build(), Optional.of(body));
+    }
+
+    /**
+     * Returns a string representation of this template: its method, base URI and headers.
+     *
+     * @return a non-{@code null} string
+     */
+    @Override
+    public String toString() {
+        return method + ' ' + baseURI.build() + ' ' + headers.map();
+    }
+
+    /**
+     * Builder for {@link RequestTemplate} instances. Nothing is validated until {@link #build()}.
+     * <p>
+     * <b>Instances of this class are mutable and not thread-safe.</b>
+     */
+    public static final class Builder {
+
+        private final BaseURI base;
+        private final List<String> headers; /* Names and values, interleaved */
+        private String method;
+        private Duration timeout;
+        private HttpClient.Version version;
+        private boolean expectContinue;
+
+        private Builder(BaseURI base) {
+            this.base = base;
+            this.headers = new ArrayList<>();
+            this.method = "GET";
+        }
+
+        /**
+         * Sets the request method.
+         *
+         * @param m a non-{@code null} method name
+         * @return this builder
+         * @throws NullPointerException if the method is {@code null}
+         * @see HttpRequest.Builder#method(String, BodyPublisher)
+         */
+        public Builder method(String m) {
+            method = Objects.requireNonNull(m, "Method cannot be null");
+            return this;
+        }
+
+        /**
+         * Adds a header. Adding the same name more than once gives the header several values.
+         *
+         * @param name  a non-{@code null} header name
+         * @param value a non-{@code null} header value
+         * @return this builder
+         * @throws NullPointerException if any argument is {@code null}
+         * @see HttpRequest.Builder#header(String, String)
+         */
+        public Builder header(String name, String value) {
+            headers.add(Objects.requireNonNull(name, "Header name cannot be null"));
+            headers.add(Objects.requireNonNull(value, "Header value cannot be null"));
+            return this;
+        }
+
+        /**
+         * Sets the timeout of every request.
+         *
+         * @param t a non-{@code null}, positive duration
+         * @return this builder
+         * @throws NullPointerException if the duration is {@code null}
+         * @see HttpRequest.Builder#timeout(Duration)
+         */
+        public Builder timeout(Duration t) {
+            timeout = Objects.requireNonNull(t, "Timeout cannot be null");
+            return this;
+        }
+
+        /**
+         * Sets the preferred HTTP protocol version of every request.
+         *
+         * @param v a non-{@code null} version
+         * @return this builder
+         * @throws NullPointerException if the version is {@code null}
+         * @see HttpRequest.Builder#version(HttpClient.Version)
+         */
+        public Builder version(HttpClient.Version v) {
+            version = Objects.requireNonNull(v, "Version cannot be null");
+            return this;
+        }
+
+        /**
+         * Sets whether every request asks for {@code 100 Continue} before sending its body.
+         *
+         * @param enable whether to expect {@code 100 Continue}
+         * @return this builder
+         * @see HttpRequest.Builder#expectContinue(boolean)
+         */
+        public Builder expectContinue(boolean enable) {
+            expectContinue = enable;
+            return this;
+        }
+
+        /**
+         * Validates the configuration and builds a template. The builder can be used further without affecting the
+         * template.
+         *
+         * @return a new {@link RequestTemplate}
+         * @throws IllegalArgumentException if the method, a header or the timeout is not accepted by
+         *                                  {@link HttpRequest.Builder} (for example, a restricted header such as
+         *                                  {@code Host} or a non-positive timeout)
+         */
+        public RequestTemplate build() {
+            /* A throwaway request applies the JDK's own validation rules, and normalizes the headers along the way */
+            HttpRequest.Builder prototype = HttpRequest.newBuilder(base.build())
+                    .method(method, BodyPublishers.noBody())
+                    .expectContinue(expectContinue);
+            for (int i = 0; i < headers.size(); i += 2) {
+                prototype.header(headers.get(i), headers.get(i + 1));
+            }
+            if (timeout != null) {
+                prototype.timeout(timeout);
+            }
+            if (version != null) {
+                prototype.version(version);
+            }
+            HttpRequest request = prototype.build();
+            return new RequestTemplate(base, request.method(), request.headers(), request.timeout(),
+                    request.version(), expectContinue);
+        }
+    }
+
+    private static final class TemplatedRequest extends HttpRequest {
+
+        private final RequestTemplate template;
+        private final URI uri;
+        private final Optional<BodyPublisher> body;
+
+        TemplatedRequest(RequestTemplate template, URI uri, Optional<BodyPublisher> body) {
+            this.template = template;
+            this.uri = uri;
+            this.body = body;
+        }
+
+        @Override
+        public Optional<BodyPublisher> bodyPublisher() {
+            return body;
+        }
+
+        @Override
+        public String method() {
+            return template.method;
+        }
+
+        @Override
+        public Optional<Duration> timeout() {
+            return template.timeout;
+        }
+
+        @Override
+        public boolean expectContinue() {
+            return template.expectContinue;
+        }
+
+        @Override
+        public URI uri() {
+            return uri;
+        }
+
+        @Override
+        public Optional<HttpClient.Version> version() {
+            return template.version;
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return template.headers;
+        }
+
+        @Override
+        public String toString() {
+            return uri + " " + template.method;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Construction of {@link URI} instances from strings that are well-formed by construction, shared by everything in
+ * this package that assembles URIs.
+ * <p>
+ * {@link URI}'s only public way in is its parser, which validates every character of its input. Most of that work
+ * goes into the scheme and the authority, which are the same across every URI a builder or a template produces. For
+ * that reason, the {@code resolve} methods parse only the path and the query, and take everything else from a
+ * <i>root</i> URI (that is, {@code scheme://authority/}) that has already been parsed once. {@link URI#resolve(URI)}
+ * copies the root's components instead of parsing them, and the result is equal (as per {@link URI#equals(Object)}) to
+ * what parsing the whole string would have produced.
+ */
+final class TrustedURIs {
+
+    private static final URI ROOT_PATH = URI.create("/");
+
+    private TrustedURIs() {}
+
+    /**
+     * Parses a whole URI string.
+     *
+     * @throws IllegalStateException if the string is malformed, which is always a bug in this package
+     */
+    static URI parse(String s) {
+        try {
+            return new URI(s);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("""
+                    Attempting to build a URI resulted in malformed syntax. \
+                    This is most likely a bug and/or the developer's oversight. \
+                    Please report this to whoever maintains the source code currently.""", e);
+        }
+    }
+
+    /**
+     * Returns the root of the given URI, that is, the same URI with the path {@code /} and without a query or a
+     * fragment. Nothing is parsed besides a constant.
+     */
+    static URI rootOf(URI uri) {
+        return uri.resolve(ROOT_PATH);
+    }
+
+    /**
+     * Appends a relative reference to a root URI. The reference is a path without the leading slash, optionally
+     * followed by a query, where every segment and every query parameter has been encoded by {@link PercentEncoding}.
+     * Such a reference never contains a dot segment, a colon or an empty segment, so it can neither be mistaken for
+     * an absolute URI nor be altered by path normalization.
+     *
+     * @throws IllegalStateException if the reference is malformed, which is always a bug in this package
+     */
+    static URI resolve(URI root, String relative) {
+        if (relative.isEmpty()) {
+            return root;
+        }
+        return root.resolve(parse(relative));
+    }
+}
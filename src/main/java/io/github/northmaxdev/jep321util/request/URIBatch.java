@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generates {@link URI} instances in bulk from a common base that differ in a single value: either an added last
+ * path segment or a single query parameter. For example, expanding the IDs {@code 1}, {@code 2} and {@code 3} with
+ * {@code URIBatch.ofPathSegment(base)} where {@code base} is {@code https://example.com/orders?expand=items} produces
+ * {@code https://example.com/orders/1?expand=items}, {@code https://example.com/orders/2?expand=items} and
+ * {@code https://example.com/orders/3?expand=items}.
+ * <p>
+ * Everything except the varying value is percent-encoded exactly once, when the batch is created, and the scheme and
+ * the authority are never parsed again. Expanding a value writes the constant parts and the encoded value into a
+ * single presized buffer (a non-negative {@code long} is written as digits, without an intermediate string), turns
+ * it into a string and has {@link URI} parse that string. Since {@link URI} cannot be assembled from parts that have
+ * already been validated, that parser still goes over the constant path and query on every expansion, and it
+ * allocates the components of an intermediate relative {@link URI} besides the resulting one. The batch therefore
+ * saves the encoding and the authority parsing, not the parsing of the path and the query.
+ * <p>
+ * Instances of this class are immutable and thread-safe. The returned streams are as parallel as their sources, and
+ * {@link #toArray(long[])} always runs in parallel.
+ *
+ * @apiNote Each expanded URI is equal to the one that deriving the same value from the base would produce, that is
+ * {@code base.pathSegment(value).build()} or {@code base.param(name, value).build()}.
+ */
+public final class URIBatch {
+
+    private static final int MAX_LONG_LENGTH = Long.toString(Long.MAX_VALUE).length();
+
+    private final URI root;
+    private final String prefix; /* Everything between the root and the value, encoded */
+    private final String suffix; /* Everything after the value, encoded */
+
+    private URIBatch(URI root, String prefix, String suffix) {
+        this.root = root;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Creates a batch where each value is added to the base as its last path segment.
+     *
+     * @param base a non-{@code null} base
+     * @return an instance of {@code URIBatch}
+     * @throws NullPointerException if the base is {@code null}
+     * @see BaseURI#pathSegment(String)
+     */
+    public static URIBatch ofPathSegment(BaseURI base) {
+        Objects.requireNonNull(base, "Base cannot be null");
+
+        String path = base.encodedPath();
+        String query = base.encodedQuery();
+        return new URIBatch(
+                base.root(),
+                path.isEmpty() ? "" : (path + '/'),
+                query.isEmpty() ? "" : ('?' + query));
+    }
+
+    /**
+     * Creates a batch where each value is added to the base's current configuration as its last path segment.
+     *
+     * @param base a non-{@code null} builder, which is not retained
+     * @return an instance of {@code URIBatch}
+     * @throws NullPointerException if the builder is {@code null}
+     * @see URIBuilder#freeze()
+     */
+    public static URIBatch ofPathSegment(URIBuilder base) {
+        Objects.requireNonNull(base, "Base cannot be null");
+        return ofPathSegment(base.freeze());
+    }
+
+    /**
+     * Creates a batch where each value is set as the value of the given query parameter. If the base already has a
+     * parameter with the same name, its value is replaced and its position is preserved.
+     *
+     * @param base a non-{@code null} base
+     * @param name the parameter's name, must be neither {@code null} nor empty
+     * @return an instance of {@code URIBatch}
+     * @throws NullPointerException     if either the base or the name is {@code null}
+     * @throws IllegalArgumentException if the name is empty
+     * @see BaseURI#param(String, String)
+     */
+    public static URIBatch ofParam(BaseURI base, String name) {
+        Objects.requireNonNull(base, "Base cannot be null");
+        Objects.requireNonNull(name, "Parameter name cannot be null");
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Parameter name cannot be empty");
+        }
+
+        String encodedName = PercentEncoding.encode(name);
+        String path = base.encodedPath();
+        String query = base.encodedQuery();
+
+        int start = BaseURI.indexOfParam(query, encodedName);
+        if (start == -1) {
+            String separator = query.isEmpty() ? "" : "&";
+            return new URIBatch(base.root(), path + '?' + query + separator + encodedName + '=', "");
+        }
+
+        int valueStart = start + encodedName.length() + 1;
+        int valueEnd = BaseURI.indexOfParamEnd(query, valueStart);
+        return new URIBatch(
+                base.root(),
+                path + '?' + query.substring(0, valueStart),
+                query.substring(valueEnd));
+    }
+
+    /**
+     * Creates a batch where each value is set as the value of the given query parameter in the base's current
+     * configuration.
+     *
+     * @param base a non-{@code null} builder, which is not retained
+     * @param name the parameter's name, must be neither {@code null} nor empty
+     * @return an instance of {@code URIBatch}
+     * @throws NullPointerException     if either the builder or the name is {@code null}
+     * @throws IllegalArgumentException if the name is empty
+     * @see URIBuilder#freeze()
+     */
+    public static URIBatch ofParam(URIBuilder base, String name) {
+        Objects.requireNonNull(base, "Base cannot be null");
+        return ofParam(base.freeze(), name);
+    }
+
+    /**
+     * Expands a single value.
+     *
+     * @param value a string that is neither {@code null} nor empty
+     * @return a non-{@code null} {@link URI}
+     * @throws NullPointerException     if the value is {@code null}
+     * @throws IllegalArgumentException if the value is empty
+     */
+    public URI expand(String value) {
+        Objects.requireNonNull(value, "Value cannot be null");
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Value cannot be empty");
+        }
+
+        StringBuilder sb = new StringBuilder(prefix.length() + PercentEncoding.encodedLength(value) + suffix.length());
+        sb.append(prefix);
+        PercentEncoding.encode(value, sb);
+        sb.append(suffix);
+
+        return TrustedURIs.resolve(root, sb.toString());
+    }
+
+    /**
+     * {@link #expand(String)} overload for values of type {@code long}.
+     *
+     * @param value a {@code long} value
+     * @return a non-{@code null} {@link URI}
+     */
+    public URI expand(long value) {
+        if (value < 0) {
+            return expand(Long.toString(value)); /* PercentEncoding encodes the minus sign */
+        }
+        /* Digits are never encoded, so they can be written straight into the buffer */
+        StringBuilder sb = new StringBuilder(prefix.length() + MAX_LONG_LENGTH + suffix.length());
+        sb.append(prefix).append(value).append(suffix);
+        return TrustedURIs.resolve(root, sb.toString());
+    }
+
+    /**
+     * Lazily expands every value of the given stream.
+     *
+     * @param values a non-{@code null} stream, which may be parallel
+     * @return a non-{@code null} stream with one {@link URI} per value, in the same order
+     * @throws NullPointerException if the stream is {@code null}
+     */
+    public Stream<URI> stream(LongStream values) {
+        Objects.requireNonNull(values, "Values cannot be null");
+        return values.mapToObj(this::expand);
+    }
+
+    /**
+     * Lazily expands every value of the given iterable.
+     *
+     * @param values a non-{@code null} iterable, whose elements must be neither {@code null} nor empty
+     * @return a non-{@code null} sequential stream with one {@link URI} per value, in the same order; it may be
+     * turned parallel with {@link Stream#parallel()}, which splits the iterable's {@link java.util.Spliterator}
+     * @throws NullPointerException if the iterable is {@code null}
+     */
+    public Stream<URI> stream(Iterable<String> values) {
+        Objects.requireNonNull(values, "Values cannot be null");
+        return StreamSupport.stream(values.spliterator(), false)
+                .map(this::expand);
+    }
+
+    /**
+     * Expands every value of the given array in parallel.
+     *
+     * @param values a non-{@code null} array
+     * @return a non-{@code null} array with one {@link URI} per value, in the same order
+     * @throws NullPointerException if the array is {@code null}
+     */
+    public URI[] toArray(long[] values) {
+        Objects.requireNonNull(values, "Values cannot be null");
+        return Arrays.stream(values)
+                .parallel()
+                .mapToObj(this::expand)
+                .toArray(URI[]::new);
+    }
+}
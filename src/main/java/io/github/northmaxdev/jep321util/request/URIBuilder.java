@@ -25,18 +25,10 @@
 package io.github.northmaxdev.jep321util.request;
 
 import com.google.common.net.HostSpecifier;
-import com.google.common.net.PercentEscaper;
 
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
-import static java.util.stream.Collectors.joining;
-
 /**
  * Builder for {@link URI} instances.
  * <p>
@@ -53,12 +45,9 @@ public final class URIBuilder {
     private HTTPScheme scheme;
     private String hostAsStr;
     private Integer port;
-    private final List<String> pathSegments;
-    // FIXME:
-    //  Use a Map interface that provides an insertion-order contract, which is promised by URIBuilder::build.
-    //  Right now it works because of its implementation, but it's not enforced in any way by the field's interface type.
-    private final Map<String, String> params;
-    private final PercentEscaper percentEscaper;
+    private final PathSegmentList pathSegments;
+    private final QueryParamTable params; /* Its ordering contract is what URIBuilder::build promises */
+    private URI root; /* Not part of the configuration, see URIBuilder::build */
 
     /**
      * Constructs a builder with the following configuration:
@@ -80,6 +69,26 @@ public final class URIBuilder {
         return builder.host(h);
     }
 
+    /**
+     * Constructs a builder with the following configuration:
+     * <ul>
+     *     <li>Scheme: HTTPS</li>
+     *     <li>Host: <i>set to the provided {@link Host} instance</i></li>
+     *     <li>Port: <i>default</i></li>
+     *     <li>Path segments: <i>none</i> (i.e. the root path)</li>
+     *     <li>Query parameters: <i>none</i></li>
+     * </ul>
+     *
+     * @param h a non-{@code null} {@code Host} instance
+     * @return an instance of {@code URIBuilder}
+     * @throws NullPointerException if the provided {@code Host} is {@code null}
+     * @see URIBuilder#host(Host)
+     */
+    public static URIBuilder withHost(Host h) {
+        URIBuilder builder = new URIBuilder();
+        return builder.host(h);
+    }
+
     /**
      * Constructs a builder with the following configuration:
      * <ul>
@@ -119,18 +128,190 @@ public final class URIBuilder {
         return builder.localhost();
     }
 
+    /**
+     * Constructs a builder with the configuration of the given URI. This is the inverse of {@link #build()}: for any
+     * builder {@code b}, {@code URIBuilder.from(b.build())} is equal to {@code b}.
+     * <p>
+     * Path segments and query parameters are percent-decoded. Only the ones that actually contain percent-encoded
+     * octets are decoded, the rest are taken as-is. A single trailing slash in the path is ignored.
+     *
+     * @param uri a non-{@code null} URI with the {@code http} or {@code https} scheme and a host, and without a user
+     *            info subcomponent, a fragment, empty path segments, empty query parameter names or values or
+     *            repeated query parameter names
+     * @return an instance of {@code URIBuilder}
+     * @throws NullPointerException     if the provided URI is {@code null}
+     * @throws IllegalArgumentException if the provided URI cannot be represented by a builder
+     */
+    public static URIBuilder from(URI uri) {
+        Objects.requireNonNull(uri, "URI cannot be null");
+
+        if (uri.isOpaque() || uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("URI must be hierarchical and have both a scheme and a host: " + uri);
+        }
+        if (uri.getRawUserInfo() != null || uri.getRawFragment() != null) {
+            throw new IllegalArgumentException("URI with a user info or a fragment cannot be represented: " + uri);
+        }
+
+        URIBuilder builder = new URIBuilder()
+                .scheme(parseScheme(uri.getScheme(), 0, uri.getScheme().length()))
+                .validHost(uri.getHost()); /* Already validated by the URI parser */
+
+        if (uri.getPort() != -1) {
+            builder.port(uri.getPort());
+        }
+
+        String path = uri.getRawPath();
+        builder.addRawPathSegments(path, 0, path.length());
+
+        String query = uri.getRawQuery();
+        if (query != null) {
+            builder.addRawParams(query, 0, query.length());
+        }
+
+        return builder;
+    }
+
+    /**
+     * Constructs a builder with the configuration of the URI in the given string. This is the inverse of
+     * {@link #build()} for builders with a normalized host: for any builder {@code b} whose host is already in the
+     * form produced by {@link Host#parse(String)}, {@code URIBuilder.parse(b.build().toString())} is equal to
+     * {@code b}.
+     * <p>
+     * The string is parsed in a single pass without constructing a {@link URI}, and the host is validated and
+     * normalized with {@link Host#parse(String)}, so this method is safe to use with untrusted input. Because of
+     * that, a builder whose host was set as-is, e.g. {@code withValidHost("Example.COM")}, is not equal to the result
+     * of parsing the URI it builds. Path segments and query parameters are treated the same way as by
+     * {@link #from(URI)}.
+     *
+     * @param s a non-{@code null} string that contains an absolute URI with the {@code http} or {@code https} scheme,
+     *          with the same restrictions as those of {@link #from(URI)}
+     * @return an instance of {@code URIBuilder}
+     * @throws NullPointerException     if the provided string is {@code null}
+     * @throws IllegalArgumentException if the provided string is not a URI or cannot be represented by a builder
+     */
+    public static URIBuilder parse(String s) {
+        Objects.requireNonNull(s, "URI string cannot be null");
+
+        int schemeEnd = s.indexOf("://");
+        if (schemeEnd == -1) {
+            throw new IllegalArgumentException("URI string is missing a scheme: " + s);
+        }
+        URIBuilder builder = new URIBuilder().scheme(parseScheme(s, 0, schemeEnd));
+
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = authorityStart;
+        while (authorityEnd < s.length() && "/?#".indexOf(s.charAt(authorityEnd)) == -1) {
+            authorityEnd++;
+        }
+
+        int hostEnd;
+        if (s.startsWith("[", authorityStart)) {
+            hostEnd = s.indexOf(']', authorityStart) + 1;
+            if (hostEnd == 0 || hostEnd > authorityEnd) {
+                throw new IllegalArgumentException("URI string has a malformed IPv6 host: " + s);
+            }
+        } else {
+            hostEnd = s.indexOf(':', authorityStart);
+            if (hostEnd == -1 || hostEnd > authorityEnd) {
+                hostEnd = authorityEnd;
+            }
+        }
+        builder.host(Host.parse(s.substring(authorityStart, hostEnd)));
+
+        if (hostEnd < authorityEnd) {
+            int port = (s.charAt(hostEnd) == ':') ? Ports.parse(s, hostEnd + 1, authorityEnd) : -1;
+            if (port == -1) {
+                throw new IllegalArgumentException("URI string has a malformed authority: " + s);
+            }
+            builder.port(port);
+        }
+
+        if (s.indexOf('#', authorityEnd) != -1) {
+            throw new IllegalArgumentException("URI with a fragment cannot be represented: " + s);
+        }
+
+        int queryStart = s.indexOf('?', authorityEnd);
+        int pathEnd = (queryStart == -1) ? s.length() : queryStart;
+        builder.addRawPathSegments(s, authorityEnd, pathEnd);
+        if (queryStart != -1) {
+            builder.addRawParams(s, queryStart + 1, s.length());
+        }
+
+        return builder;
+    }
+
+    private static HTTPScheme parseScheme(String s, int start, int end) {
+        return HTTPScheme.parse(s, start, end)
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported scheme: " + s.substring(start, end)));
+    }
+
+    private void addRawPathSegments(String s, int start, int end) {
+        if (start == end) {
+            return;
+        }
+        if (s.charAt(start) != '/') {
+            throw new IllegalArgumentException("Path must be absolute: " + s.substring(start, end));
+        }
+
+        int segmentStart = start + 1;
+        while (segmentStart < end) {
+            int segmentEnd = s.indexOf('/', segmentStart);
+            if (segmentEnd == -1 || segmentEnd > end) {
+                segmentEnd = end;
+            }
+            if (segmentEnd == segmentStart) {
+                throw new IllegalArgumentException("Empty path segments cannot be represented: " + s);
+            }
+            pathSegments.add(PercentEncoding.decode(s, segmentStart, segmentEnd));
+            segmentStart = segmentEnd + 1;
+        }
+    }
+
+    private void addRawParams(String s, int start, int end) {
+        int paramStart = start;
+        while (paramStart < end) {
+            int paramEnd = s.indexOf('&', paramStart);
+            if (paramEnd == -1 || paramEnd > end) {
+                paramEnd = end;
+            }
+            int separator = s.indexOf('=', paramStart);
+            if (separator <= paramStart || separator >= paramEnd - 1) {
+                throw new IllegalArgumentException("Query parameters without a name or a value cannot be represented: "
+                        + s);
+            }
+            String name = PercentEncoding.decode(s, paramStart, separator);
+            if (params.indexOf(name) != -1) {
+                /* A builder holds one value per name, so keeping either would silently lose the other */
+                throw new IllegalArgumentException("Repeated query parameters cannot be represented: " + s);
+            }
+            String value = PercentEncoding.decode(s, separator + 1, paramEnd);
+            params.put(name, value);
+            paramStart = paramEnd + 1;
+        }
+    }
+
     private URIBuilder() {
         this.scheme = HTTPScheme.SECURE;
         this.hostAsStr = null; /* Broken invariant */
         this.port = null;
+        this.root = null;
 
-        this.pathSegments = new LinkedList<>(); /* Insertion order is important */
-        this.params = new LinkedHashMap<>(); /* Insertion order is important */
-        /*
-         * Note: Guava v31.1-jre JavaDoc doesn't explicitly specify whether an empty string for safeChars is OK,
-         * but it must non-null and there aren't any additional safe characters, so here goes nothing.
-         */
-        this.percentEscaper = new PercentEscaper("", false);
+        this.pathSegments = new PathSegmentList();
+        this.params = new QueryParamTable();
+    }
+
+    private URIBuilder(URIBuilder other) {
+        this.scheme = other.scheme;
+        this.hostAsStr = other.hostAsStr;
+        this.port = other.port;
+        this.root = other.root;
+
+        this.pathSegments = other.pathSegments.copy();
+        this.params = other.params.copy();
+    }
+
+    URIBuilder copy() {
+        return new URIBuilder(this);
     }
 
     /**
@@ -142,6 +323,7 @@ public final class URIBuilder {
      */
     public URIBuilder scheme(HTTPScheme s) {
         this.scheme = Objects.requireNonNull(s, "Scheme cannot be null");
+        this.root = null;
         return this;
     }
 
@@ -152,6 +334,7 @@ public final class URIBuilder {
      */
     public URIBuilder https() {
         this.scheme = HTTPScheme.SECURE;
+        this.root = null;
         return this;
     }
 
@@ -162,6 +345,7 @@ public final class URIBuilder {
      */
     public URIBuilder http() {
         this.scheme = HTTPScheme.UNSECURE;
+        this.root = null;
         return this;
     }
 
@@ -174,6 +358,21 @@ public final class URIBuilder {
      */
     public URIBuilder host(HostSpecifier h) {
         this.hostAsStr = Objects.requireNonNull(h, "Host cannot be null").toString();
+        this.root = null;
+        return this;
+    }
+
+    /**
+     * Sets the URI's host.
+     *
+     * @param h a non-{@code null} host
+     * @return this builder
+     * @throws NullPointerException if the given host is {@code null}
+     * @see Host#parse(String)
+     */
+    public URIBuilder host(Host h) {
+        this.hostAsStr = Objects.requireNonNull(h, "Host cannot be null").toString();
+        this.root = null;
         return this;
     }
 
@@ -187,7 +386,7 @@ public final class URIBuilder {
      * <b>This method is intended primarily for cases where the host is known/guaranteed to be syntactically valid</b>
      * - for instance, when declaring a {@code static final} constant in a class definition. For these reasons, the
      * provided string is <b>not</b> validated to be correct, and it is a programmatic error to use this method in any
-     * other case.
+     * other case. Use {@link #host(Host)} together with {@link Host#parse(String)} instead.
      *
      * @param s a non-{@code null} string that contains a valid IPv4 address, an IPv6 address or a registered domain
      *          name
@@ -196,6 +395,7 @@ public final class URIBuilder {
      */
     public URIBuilder validHost(String s) {
         this.hostAsStr = Objects.requireNonNull(s, "Host string cannot be null");
+        this.root = null;
         return this;
     }
 
@@ -206,6 +406,7 @@ public final class URIBuilder {
      */
     public URIBuilder localhost() {
         this.hostAsStr = "localhost";
+        this.root = null;
         return this;
     }
 
@@ -222,6 +423,7 @@ public final class URIBuilder {
             throw new IllegalArgumentException("Illegal port value: " + p);
         }
         this.port = p;
+        this.root = null;
         return this;
     }
 
@@ -232,6 +434,7 @@ public final class URIBuilder {
      */
     public URIBuilder defaultPort() {
         this.port = null;
+        this.root = null;
         return this;
     }
 
@@ -244,6 +447,24 @@ public final class URIBuilder {
      */
     public URIBuilder randomPort() {
         this.port = Ports.random();
+        this.root = null;
+        return this;
+    }
+
+    /**
+     * Sets the URI's port to a random one from the given set, for example, one that excludes well-known ports.
+     *
+     * @param ports a non-{@code null}, non-empty {@link PortSet}
+     * @return this builder
+     * @throws NullPointerException  if the set is {@code null}
+     * @throws IllegalStateException if the set is empty
+     * @implNote This is functionally equivalent to calling {@code port(ports.random())}
+     * @see PortSet#random()
+     */
+    public URIBuilder randomPort(PortSet ports) {
+        Objects.requireNonNull(ports, "Ports cannot be null");
+        this.port = ports.random();
+        this.root = null;
         return this;
     }
 
@@ -456,6 +677,8 @@ public final class URIBuilder {
      * @throws IllegalStateException if for whatever reason the builder's configuration produces a malformed URI
      *                               <i>(make sure to read the exception message)</i>
      * @apiNote Query parameters are serialized in the same order as they were added
+     * @implNote The scheme and the authority are parsed and verified by the first call only. Subsequent calls on the
+     * same builder parse the path and the query alone, up until the scheme, the host or the port is changed.
      */
     public URI build() {
         /*
@@ -465,8 +688,77 @@ public final class URIBuilder {
          * of this permit in either of them.
          */
 
-        StringBuilder sb = new StringBuilder()
-                .append(scheme.toString())
+        if (root != null) {
+            StringBuilder sb = new StringBuilder();
+            appendPathAndQuery(sb);
+            return TrustedURIs.resolve(root, sb.toString());
+        }
+
+        StringBuilder sb = new StringBuilder();
+        appendRoot(sb);
+        appendPathAndQuery(sb);
+
+        /* The first build verifies the scheme and the authority, subsequent ones reuse them until either changes */
+        URI uri = TrustedURIs.parse(sb.toString());
+        this.root = TrustedURIs.rootOf(uri);
+        return uri;
+    }
+
+    /**
+     * Returns the {@link URI} that has previously been built for a configuration identical to this builder's one,
+     * building and caching it if there is none.
+     *
+     * @param cache a non-{@code null} cache
+     * @return a non-{@code null} {@link URI}
+     * @throws NullPointerException  if the cache is {@code null}
+     * @throws IllegalStateException if for whatever reason the builder's configuration produces a malformed URI
+     *                               <i>(make sure to read the exception message)</i>
+     * @apiNote Unlike {@link #equals(Object)}, identical configurations also have their query parameters in the same
+     * order
+     * @see URICache
+     */
+    public URI build(URICache cache) {
+        Objects.requireNonNull(cache, "Cache cannot be null");
+        return cache.build(this);
+    }
+
+    /**
+     * Returns the origin (scheme, host and port) of the URI that {@link #build()} would produce, with the port being
+     * the scheme's default one if it has not been set.
+     *
+     * @return a non-{@code null} {@link Origin}
+     * @see Origin
+     */
+    public Origin origin() {
+        return new Origin(scheme, hostAsStr, (port == null) ? scheme.defaultPort() : port);
+    }
+
+    /**
+     * Takes an immutable snapshot of this builder's current configuration. The snapshot is unaffected by any
+     * subsequent changes to this builder.
+     *
+     * @return a non-{@code null} {@link BaseURI}
+     * @throws IllegalStateException if for whatever reason the builder's configuration produces a malformed URI
+     *                               <i>(make sure to read the exception message)</i>
+     * @see BaseURI
+     */
+    public BaseURI freeze() {
+        if (root == null) {
+            StringBuilder sb = new StringBuilder();
+            appendRoot(sb);
+            this.root = TrustedURIs.parse(sb.toString());
+        }
+
+        StringBuilder path = new StringBuilder();
+        appendPath(path);
+        StringBuilder query = new StringBuilder();
+        appendQuery(query);
+
+        return new BaseURI(scheme, hostAsStr, port, root, path.toString(), query.toString());
+    }
+
+    private void appendRoot(StringBuilder sb) {
+        sb.append(scheme.toString())
                 .append("://")
                 .append(hostAsStr);
 
@@ -476,36 +768,40 @@ public final class URIBuilder {
         }
 
         sb.append('/');
+    }
 
-        if (!pathSegments.isEmpty()) {
-            String path = pathSegments.stream()
-                    .map(percentEscaper::escape)
-                    .collect(joining("/"));
-            sb.append(path);
+    private void appendPathAndQuery(StringBuilder sb) {
+        appendPath(sb);
+        if (!params.isEmpty()) {
+            sb.append('?');
+            appendQuery(sb);
         }
+    }
 
-        if (!params.isEmpty()) {
-            String query = params.entrySet()
-                    .stream()
-                    .map(entry -> {
-                        String escapedName = percentEscaper.escape(entry.getKey());
-                        String escapedValue = percentEscaper.escape(entry.getValue());
-                        return escapedName + '=' + escapedValue;
-                    })
-                    .collect(joining("&", "?", ""));
-            sb.append(query);
+    private void appendPath(StringBuilder sb) {
+        for (int i = 0; i < pathSegments.size(); i++) {
+            if (i > 0) {
+                sb.append('/');
+            }
+            PercentEncoding.encode(pathSegments.get(i), sb);
         }
+    }
 
-        try {
-            return new URI(sb.toString());
-        } catch (URISyntaxException e) {
-            throw new IllegalStateException("""
-                    Attempting to build a URI resulted in malformed syntax. \
-                    This is most likely a bug and/or the developer's oversight. \
-                    Please report this to whoever maintains the source code currently.""", e);
+    private void appendQuery(StringBuilder sb) {
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            PercentEncoding.encode(params.nameAt(i), sb);
+            sb.append('=');
+            PercentEncoding.encode(params.valueAt(i), sb);
         }
     }
 
+    boolean hasSameConfiguration(URIBuilder other) {
+        return this.equals(other) && this.params.equalsInOrder(other.params);
+    }
+
     /**
      * Checks whether this builder is equal to the provided object.
      *
@@ -519,8 +815,7 @@ public final class URIBuilder {
                 && Objects.equals(this.hostAsStr, other.hostAsStr)
                 && Objects.equals(this.port, other.port)
                 && Objects.equals(this.pathSegments, other.pathSegments)
-                && Objects.equals(this.params, other.params)
-                && Objects.equals(this.percentEscaper, other.percentEscaper);
+                && Objects.equals(this.params, other.params);
     }
 
     /**
@@ -530,7 +825,7 @@ public final class URIBuilder {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(scheme, hostAsStr, port, pathSegments, params, percentEscaper);
+        return Objects.hash(scheme, hostAsStr, port, pathSegments, params);
     }
 
     /**
@@ -540,7 +835,7 @@ public final class URIBuilder {
      */
     @Override
     public String toString() {
-        return "URIBuilder{scheme=%s, host=%s, port=%d, pathSegments=%s, params=%s, percentEscaper=%s}"
-                .formatted(scheme, hostAsStr, port, pathSegments, params, percentEscaper);
+        return "URIBuilder{scheme=%s, host=%s, port=%d, pathSegments=%s, params=%s}"
+                .formatted(scheme, hostAsStr, port, pathSegments, params);
     }
 }
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * A bounded, thread-safe cache of built {@link URI} instances, keyed by {@link URIBuilder} configurations. It is meant
+ * for call sites that keep building identical URIs: {@link URIBuilder#build(URICache)} returns the previously built
+ * instance for an identical configuration instead of building a new one.
+ * <p>
+ * Once the cache is full, the least recently used entries are evicted. The cache's counters ({@link #stats()}) show
+ * whether it pays for itself.
+ *
+ * @implNote Looking up a configuration costs computing its hash code and comparing it to at most a few cached ones.
+ * Only a miss copies the builder's configuration, since the builder itself is mutable.
+ */
+public final class URICache {
+
+    private final BoundedCache<Key, URI> cache;
+
+    private URICache(int maximumSize) {
+        this.cache = new BoundedCache<>(maximumSize);
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maximumSize the maximum number of cached URIs, must be positive
+     * @return an instance of {@code URICache}
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public static URICache withMaximumSize(int maximumSize) {
+        return new URICache(maximumSize);
+    }
+
+    URI build(URIBuilder builder) {
+        URI uri = cache.get(new Key(builder));
+        if (uri == null) {
+            uri = builder.build();
+            cache.put(new Key(builder.copy()), uri);
+        }
+        return uri;
+    }
+
+    /**
+     * Returns the number of currently cached URIs.
+     *
+     * @return a non-negative integer
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Evicts all cached URIs. The counters are not reset.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Returns a snapshot of this cache's counters.
+     *
+     * @return a non-{@code null} {@link CacheStats}
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /*
+     * URIBuilder::equals does not take the order of query parameters into account, but the built URIs do.
+     */
+    private record Key(URIBuilder config) {
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key other
+                    && this.config.hasSameConfiguration(other.config);
+        }
+
+        @Override
+        public int hashCode() {
+            return config.hashCode();
+        }
+    }
+}
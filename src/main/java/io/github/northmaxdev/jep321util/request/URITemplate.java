@@ -0,0 +1,308 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A precompiled template for {@link URI} instances that share the same shape, for example
+ * {@code https://example.com/orders/{id}/items?page={page}}.
+ * <p>
+ * Everything that is constant (the scheme, the host, the port, the constant path segments and the constant query
+ * parameters) is percent-encoded and joined once, when the template is parsed. Expanding the template then only
+ * encodes the values bound to its variables and appends them between the precompiled parts. The scheme and the
+ * authority are also parsed only once, so expanding the template does not parse them again.
+ * <p>
+ * The template syntax is a strict subset of the URI syntax: {@code scheme://host[:port][/segment...][?name=value...]}
+ * where the scheme is either {@code http} or {@code https}, and where any whole path segment or any whole query
+ * parameter value may be replaced with a variable in the form of {@code {name}}. Constant parts are written as-is,
+ * <b>without</b> percent-encoding, exactly like the values that are passed to {@link URIBuilder}.
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ *
+ * @apiNote For any given template, expanding it produces the same URI as the equivalent {@link URIBuilder}
+ * configuration would.
+ */
+public final class URITemplate {
+
+    private final String template;
+    private final URI root;
+    private final String[] literals; /* Already encoded and relative to the root, one more than there are variables */
+    private final List<String> variableNames;
+    private final int literalsLength;
+
+    private URITemplate(String template, URI root, List<String> literals, List<String> variableNames) {
+        this.template = template;
+        this.root = root;
+        this.literals = literals.toArray(String[]::new);
+        this.variableNames = List.copyOf(variableNames);
+
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalsLength = length;
+    }
+
+    /**
+     * Parses and compiles a template.
+     *
+     * @param s a non-{@code null} template string, such as {@code https://example.com/orders/{id}?page={page}}
+     * @return an instance of {@code URITemplate}
+     * @throws NullPointerException     if the provided string is {@code null}
+     * @throws IllegalArgumentException if the provided string is not a valid template
+     */
+    public static URITemplate parse(String s) {
+        Objects.requireNonNull(s, "Template string cannot be null");
+
+        int schemeEnd = s.indexOf("://");
+        if (schemeEnd == -1) {
+            throw new IllegalArgumentException("Template is missing a scheme: " + s);
+        }
+        HTTPScheme scheme = HTTPScheme.parse(s, 0, schemeEnd)
+                .orElseThrow(() -> new IllegalArgumentException("Template has an unsupported scheme: " + s));
+
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = indexOfAny(s, authorityStart, '/', '?');
+        int hostEnd;
+        if (s.startsWith("[", authorityStart)) {
+            hostEnd = s.indexOf(']', authorityStart) + 1;
+            if (hostEnd == 0 || hostEnd > authorityEnd) {
+                throw new IllegalArgumentException("Template has a malformed IPv6 host: " + s);
+            }
+        } else {
+            hostEnd = indexOfAny(s, authorityStart, ':', '/', '?');
+        }
+
+        StringBuilder literal = new StringBuilder()
+                .append(scheme.toString())
+                .append("://")
+                .append(s, authorityStart, hostEnd);
+
+        if (hostEnd < authorityEnd) {
+            if (s.charAt(hostEnd) != ':') {
+                throw new IllegalArgumentException("Template has a malformed authority: " + s);
+            }
+            int port = Ports.parse(s, hostEnd + 1, authorityEnd);
+            if (port == -1) {
+                throw new IllegalArgumentException("Template has a malformed or illegal port: " + s);
+            }
+            literal.append(':').append(port);
+        }
+
+        literal.append('/');
+        URI root = parseRoot(literal.toString(), s);
+        literal.setLength(0);
+
+        List<String> literals = new ArrayList<>();
+        List<String> variableNames = new ArrayList<>();
+
+        int queryStart = s.indexOf('?', authorityEnd);
+        int pathEnd = (queryStart == -1) ? s.length() : queryStart;
+
+        if (authorityEnd + 1 < pathEnd) {
+            String[] segments = s.substring(authorityEnd + 1, pathEnd).split("/", -1);
+            for (int i = 0; i < segments.length; i++) {
+                if (i > 0) {
+                    literal.append('/');
+                }
+                String segment = segments[i];
+                if (segment.isEmpty()) {
+                    throw new IllegalArgumentException("Template has an empty path segment: " + s);
+                }
+                appendPart(segment, literal, literals, variableNames);
+            }
+        }
+
+        if (queryStart != -1) {
+            if (queryStart == s.length() - 1) {
+                throw new IllegalArgumentException("Template has an empty query: " + s);
+            }
+            Set<String> paramNames = new HashSet<>();
+            String[] params = s.substring(queryStart + 1).split("&", -1);
+            for (int i = 0; i < params.length; i++) {
+                String param = params[i];
+                int separator = param.indexOf('=');
+                if (separator <= 0 || separator == param.length() - 1) {
+                    throw new IllegalArgumentException("Template has a malformed query parameter: " + s);
+                }
+
+                String name = param.substring(0, separator);
+                if (isVariable(name) || !isLiteral(name)) {
+                    throw new IllegalArgumentException("Template has an unsupported query parameter name: " + s);
+                }
+                if (!paramNames.add(name)) {
+                    throw new IllegalArgumentException("Template has a duplicate query parameter: " + s);
+                }
+
+                literal.append(i == 0 ? '?' : '&')
+                        .append(PercentEncoding.encode(name))
+                        .append('=');
+                appendPart(param.substring(separator + 1), literal, literals, variableNames);
+            }
+        }
+
+        literals.add(literal.toString());
+        return new URITemplate(s, root, literals, variableNames);
+    }
+
+    private static URI parseRoot(String root, String template) {
+        try {
+            /* A null host means that the authority is not a valid IPv4 address, IPv6 address or domain name */
+            URI uri = new URI(root);
+            if (uri.getHost() != null) {
+                return uri;
+            }
+        } catch (URISyntaxException ignored) {
+            /* Falls through to the exception below */
+        }
+        throw new IllegalArgumentException("Template has an invalid host: " + template);
+    }
+
+    private static void appendPart(String part,
+                                   StringBuilder literal,
+                                   List<String> literals,
+                                   List<String> variableNames) {
+        if (isVariable(part)) {
+            String variableName = part.substring(1, part.length() - 1);
+            if (variableNames.contains(variableName)) {
+                throw new IllegalArgumentException("Template has a duplicate variable: " + variableName);
+            }
+            literals.add(literal.toString());
+            literal.setLength(0);
+            variableNames.add(variableName);
+        } else if (isLiteral(part)) {
+            PercentEncoding.encode(part, literal);
+        } else {
+            throw new IllegalArgumentException("Template has a malformed variable: " + part);
+        }
+    }
+
+    private static boolean isVariable(String part) {
+        return part.length() > 2
+                && part.charAt(0) == '{'
+                && part.charAt(part.length() - 1) == '}'
+                && isLiteral(part.substring(1, part.length() - 1));
+    }
+
+    private static boolean isLiteral(String part) {
+        return part.indexOf('{') == -1 && part.indexOf('}') == -1;
+    }
+
+    private static int indexOfAny(String s, int fromIndex, char... chars) {
+        for (int i = fromIndex; i < s.length(); i++) {
+            char c = s.charAt(i);
+            for (char candidate : chars) {
+                if (c == candidate) {
+                    return i;
+                }
+            }
+        }
+        return s.length();
+    }
+
+    /**
+     * Expands this template. The values are bound to the variables in the order in which the variables appear in the
+     * template (see {@link #variableNames()}) and are percent-encoded the same way {@link URIBuilder} does it.
+     *
+     * @param values the variables' values, each must be neither {@code null} nor empty
+     * @return a non-{@code null} {@link URI}
+     * @throws NullPointerException     if the array or any of its values is {@code null}
+     * @throws IllegalArgumentException if the number of values does not match the number of variables or if any of
+     *                                  the values is empty
+     */
+    public URI expand(String... values) {
+        Objects.requireNonNull(values, "Values cannot be null");
+        if (values.length != variableNames.size()) {
+            throw new IllegalArgumentException("Expected %d value(s) but got %d"
+                    .formatted(variableNames.size(), values.length));
+        }
+
+        int length = literalsLength;
+        for (String value : values) {
+            Objects.requireNonNull(value, "Value cannot be null");
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("Value cannot be empty");
+            }
+            length += PercentEncoding.encodedLength(value);
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        sb.append(literals[0]);
+        for (int i = 0; i < values.length; i++) {
+            PercentEncoding.encode(values[i], sb);
+            sb.append(literals[i + 1]);
+        }
+
+        return TrustedURIs.resolve(root, sb.toString());
+    }
+
+    /**
+     * Returns the names of this template's variables in the order in which they appear in the template.
+     *
+     * @return a non-{@code null} unmodifiable list
+     */
+    public List<String> variableNames() {
+        return variableNames;
+    }
+
+    /**
+     * Checks whether this template is equal to the provided object.
+     *
+     * @param obj a possibly {@code null} object
+     * @return {@code true} if and only if the provided object is a template parsed from the same string
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof URITemplate other
+                && this.template.equals(other.template);
+    }
+
+    /**
+     * Computes a suitable hash code for this template.
+     *
+     * @return a hash code
+     */
+    @Override
+    public int hashCode() {
+        return template.hashCode();
+    }
+
+    /**
+     * Returns the string this template was parsed from.
+     *
+     * @return a non-{@code null} string that is compatible with {@link #parse(String)}
+     */
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.net.http.HttpResponse.BodyHandler;
+
+/**
+ * Body handlers that collect the body into a {@code byte[]}, as an alternative to
+ * {@link java.net.http.HttpResponse.BodyHandlers#ofByteArray()}, which keeps every received buffer until the end and
+ * then copies them all into a new array, so the peak memory use is twice the size of the body.
+ * <p>
+ * When the response has a {@code Content-Length} header, the resulting array ends up with exactly that size, and
+ * every buffer is copied straight into its place. Up to 1 MiB, the array is allocated once; beyond that, it grows
+ * towards the announced length as the body arrives, so that a wrong {@code Content-Length} cannot cause a huge
+ * allocation up-front. Otherwise (e.g., for chunked responses), the array grows geometrically and is trimmed to size
+ * at the end. In both cases, a body that turns out to be larger than the
+ * configured limit fails with an {@link java.io.IOException} and is cancelled; an announced length over the limit
+ * fails before the body is read at all.
+ */
+public final class ByteArrayBodyHandlers {
+
+    /**
+     * The largest array size that is supported by common JVMs, which is {@value}.
+     */
+    public static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private ByteArrayBodyHandlers() {}
+
+    /**
+     * Creates a handler that is only limited by the maximum array size.
+     *
+     * @return a non-{@code null} {@link BodyHandler}
+     * @see #MAX_ARRAY_SIZE
+     */
+    public static BodyHandler<byte[]> ofByteArray() {
+        return ofByteArray(MAX_ARRAY_SIZE);
+    }
+
+    /**
+     * Creates a handler that rejects bodies larger than the given limit.
+     *
+     * @param maxSize the largest acceptable body size, in bytes
+     * @return a non-{@code null} {@link BodyHandler}
+     * @throws IllegalArgumentException if the limit is negative or greater than {@value #MAX_ARRAY_SIZE}
+     */
+    public static BodyHandler<byte[]> ofByteArray(int maxSize) {
+        if (maxSize < 0 || maxSize > MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("Illegal maximum size: " + maxSize);
+        }
+        return responseInfo -> new ByteArraySubscriber(maxSize, ResponseHeaders.contentLength(responseInfo.headers()));
+    }
+}
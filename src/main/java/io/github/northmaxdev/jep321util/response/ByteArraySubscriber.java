@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/*
+ * Copies every buffer straight into its final place in a single array. When the length is announced, that array ends
+ * up with exactly the right size and is returned as it is; otherwise it grows geometrically and is trimmed once at the
+ * end. Either way, the body is copied once (plus the occasional growth), never collected and concatenated.
+ *
+ * The announced length is only trusted up to MAX_PRESIZE bytes. Beyond that, the array starts at that size and grows
+ * towards the announced length as the data actually arrives, so a wrong or hostile Content-Length (or one sent with a
+ * HEAD or 304 response, which have no body at all) cannot make it allocate more than the body really needs.
+ */
+final class ByteArraySubscriber implements BodySubscriber<byte[]> {
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int MAX_PRESIZE = 1024 * 1024;
+
+    private final int maxSize;
+    private final long expectedSize; /* -1 if unknown */
+    private final CompletableFuture<byte[]> body;
+    private Flow.Subscription subscription;
+    private byte[] bytes;
+    private int size;
+
+    ByteArraySubscriber(int maxSize, long expectedSize) {
+        this.maxSize = maxSize;
+        this.expectedSize = expectedSize;
+        this.body = new CompletableFuture<>();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+
+        if (expectedSize > maxSize) {
+            fail(tooLarge());
+            return;
+        }
+        bytes = new byte[(int) ((expectedSize >= 0)
+                ? Math.min(expectedSize, MAX_PRESIZE)
+                : Math.min(INITIAL_CAPACITY, maxSize))];
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        if (body.isDone()) {
+            return;
+        }
+
+        for (ByteBuffer buffer : item) {
+            int remaining = buffer.remaining();
+            if (remaining > maxSize - size) {
+                fail(tooLarge());
+                return;
+            }
+            if (remaining > bytes.length - size) {
+                /*
+                 * Either the announced length is larger than the presized array, the length is unknown or the server
+                 * sent more than it announced. Only in the first case is the growth capped at the announced length,
+                 * so that the last copy lands on exactly the right size.
+                 */
+                long needed = (long) size + remaining;
+                long limit = (expectedSize >= needed) ? expectedSize : maxSize;
+                long doubled = Math.max(2L * bytes.length, INITIAL_CAPACITY);
+                bytes = Arrays.copyOf(bytes, (int) Math.min(Math.max(doubled, needed), limit));
+            }
+            buffer.get(bytes, size, remaining);
+            size += remaining;
+        }
+
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        bytes = null;
+        body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (body.isDone()) {
+            return;
+        }
+        byte[] result = (size == bytes.length) ? bytes : Arrays.copyOf(bytes, size);
+        bytes = null;
+        body.complete(result);
+    }
+
+    @Override
+    public CompletionStage<byte[]> getBody() {
+        return body;
+    }
+
+    private IOException tooLarge() {
+        return new IOException("Response body exceeds the limit of %d bytes".formatted(maxSize));
+    }
+
+    private void fail(IOException e) {
+        subscription.cancel();
+        bytes = null;
+        body.completeExceptionally(e);
+    }
+}
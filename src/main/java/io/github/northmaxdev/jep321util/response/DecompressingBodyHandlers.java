@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Body handlers that transparently decompress the body as it arrives, according to its {@code Content-Encoding}, and
+ * pass the result to any other body handler, such as {@link java.net.http.HttpResponse.BodyHandlers#ofString()},
+ * {@link LineDelimitedBodyHandlers#ofConsumer(java.util.function.Consumer)} or
+ * {@link FileBodyHandlers#ofFile(java.nio.file.Path)}. Neither the compressed nor the decompressed body is ever
+ * buffered as a whole.
+ * <p>
+ * The supported encodings are {@code gzip} (and its alias {@code x-gzip}) and {@code deflate}, including the raw
+ * deflate data that some servers send instead of the zlib format. A body without a {@code Content-Encoding}, or with
+ * {@code identity}, is passed through as it is. Any other encoding fails the body with an {@link IOException}, as does
+ * a corrupt or truncated compressed body.
+ * <p>
+ * The wrapped handler sees the response without the {@code Content-Encoding} and {@code Content-Length} headers,
+ * because neither of them describes the body that it receives.
+ * <p>
+ * <b>The JDK HTTP client does not ask for compressed responses by itself</b>: the request has to have an
+ * {@code Accept-Encoding} header, for example, {@value #ACCEPT_ENCODING}.
+ */
+public final class DecompressingBodyHandlers {
+
+    /**
+     * The value of the {@code Accept-Encoding} request header that advertises exactly the encodings supported by this
+     * class, which is {@value}.
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private DecompressingBodyHandlers() {}
+
+    /**
+     * Wraps the given handler so that it receives the decompressed body.
+     *
+     * @param handler a non-{@code null} handler for the decompressed body
+     * @param <T>     the type of the response body
+     * @return a non-{@code null} {@link BodyHandler}
+     * @throws NullPointerException if the handler is {@code null}
+     */
+    public static <T> BodyHandler<T> of(BodyHandler<T> handler) {
+        Objects.requireNonNull(handler, "Handler cannot be null");
+        return responseInfo -> {
+            List<String> encodings = encodingsOf(responseInfo.headers());
+            if (encodings.isEmpty()) {
+                return handler.apply(responseInfo);
+            }
+
+            BodySubscriber<T> downstream = handler.apply(new DecodedResponseInfo(responseInfo));
+            if (encodings.size() == 1) {
+                switch (encodings.get(0)) {
+                    case "gzip", "x-gzip" -> {
+                        return new InflatingSubscriber<>(downstream, true);
+                    }
+                    case "deflate" -> {
+                        return new InflatingSubscriber<>(downstream, false);
+                    }
+                    default -> { /* Unsupported */ }
+                }
+            }
+            return new RejectingSubscriber<>(downstream,
+                    new IOException("Unsupported Content-Encoding: " + String.join(", ", encodings)));
+        };
+    }
+
+    /* Lowercase, in the order of application, without "identity" */
+    private static List<String> encodingsOf(HttpHeaders headers) {
+        List<String> encodings = new ArrayList<>(1);
+        for (String value : headers.allValues("Content-Encoding")) {
+            for (String token : value.split(",")) {
+                String encoding = token.strip().toLowerCase(Locale.ROOT);
+                if (!encoding.isEmpty() && !encoding.equals("identity")) {
+                    encodings.add(encoding);
+                }
+            }
+        }
+        return encodings;
+    }
+
+    private record DecodedResponseInfo(ResponseInfo original, HttpHeaders headers) implements ResponseInfo {
+
+        DecodedResponseInfo(ResponseInfo original) {
+            this(original, HttpHeaders.of(original.headers().map(), (name, value) ->
+                    !name.equalsIgnoreCase("Content-Encoding") && !name.equalsIgnoreCase("Content-Length")));
+        }
+
+        @Override
+        public int statusCode() {
+            return original.statusCode();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return original.version();
+        }
+    }
+
+    /* Fails the downstream subscriber right away and cancels the body */
+    private static final class RejectingSubscriber<T> implements BodySubscriber<T> {
+
+        private final BodySubscriber<T> downstream;
+        private final IOException failure;
+
+        RejectingSubscriber(BodySubscriber<T> downstream, IOException failure) {
+            this.downstream = downstream;
+            this.failure = failure;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+            downstream.onSubscribe(subscription);
+            downstream.onError(failure);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {}
+
+        @Override
+        public void onError(Throwable throwable) {}
+
+        @Override
+        public void onComplete() {}
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return downstream.getBody();
+        }
+    }
+}
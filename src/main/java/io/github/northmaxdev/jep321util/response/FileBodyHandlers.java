@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.net.http.HttpResponse.BodyHandler;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Body handlers that download the body into a file in a single pass, as an alternative to
+ * {@link java.net.http.HttpResponse.BodyHandlers#ofFile(Path)}.
+ * <p>
+ * When the response has a {@code Content-Length} header, the file is sized up front, and it is truncated to the
+ * number of bytes actually received once the body completes. Every batch of buffers received from the HTTP client is
+ * written with a single gathering {@link java.nio.channels.FileChannel} write, and, if requested, a
+ * {@link MessageDigest} is computed from the same buffers on the way.
+ * <p>
+ * The file is created if it does not exist and truncated if it does. If the body fails, the partially written file
+ * is left in place, truncated to the bytes that have actually been written, so it is never mistaken for a complete
+ * download of the announced size.
+ */
+public final class FileBodyHandlers {
+
+    private FileBodyHandlers() {}
+
+    /**
+     * Creates a handler that writes the body into the given file.
+     *
+     * @param path a non-{@code null} path of the target file
+     * @return a non-{@code null} {@link BodyHandler} whose body completes once the file has been written and closed
+     * @throws NullPointerException if the path is {@code null}
+     */
+    public static BodyHandler<FileDownload> ofFile(Path path) {
+        Objects.requireNonNull(path, "Path cannot be null");
+        return responseInfo -> new FileDownloadSubscriber(
+                path, ResponseHeaders.contentLength(responseInfo.headers()), null);
+    }
+
+    /**
+     * Creates a handler that writes the body into the given file and computes its digest while doing so.
+     *
+     * @param path            a non-{@code null} path of the target file
+     * @param digestAlgorithm a non-{@code null} name of a {@link MessageDigest} algorithm, such as {@code "SHA-256"}
+     * @return a non-{@code null} {@link BodyHandler} whose body completes once the file has been written and closed
+     * @throws NullPointerException     if either argument is {@code null}
+     * @throws IllegalArgumentException if the algorithm is not available
+     */
+    public static BodyHandler<FileDownload> ofFile(Path path, String digestAlgorithm) {
+        Objects.requireNonNull(path, "Path cannot be null");
+        Objects.requireNonNull(digestAlgorithm, "Digest algorithm cannot be null");
+        newDigest(digestAlgorithm); /* Fail fast rather than on every response */
+        return responseInfo -> new FileDownloadSubscriber(
+                path, ResponseHeaders.contentLength(responseInfo.headers()), newDigest(digestAlgorithm));
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unavailable digest algorithm: " + algorithm, e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The outcome of downloading a response body into a file with {@link FileBodyHandlers}.
+ *
+ * @param path   the file that the body has been written to
+ * @param size   the number of bytes written
+ * @param digest the lowercase hexadecimal digest of the body, if one has been requested
+ */
+public record FileDownload(Path path, long size, Optional<String> digest) {
+
+    /**
+     * Canonical constructor.
+     *
+     * @param path   the file that the body has been written to
+     * @param size   the number of bytes written
+     * @param digest the lowercase hexadecimal digest of the body, if one has been requested
+     * @throws NullPointerException     if the path or the digest is {@code null}
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public FileDownload {
+        Objects.requireNonNull(path, "Path cannot be null");
+        Objects.requireNonNull(digest, "Digest cannot be null");
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative: " + size);
+        }
+    }
+}
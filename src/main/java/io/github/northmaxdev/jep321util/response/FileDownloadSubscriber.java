@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/*
+ * Writes every batch of buffers with a single gathering write (looping only on short writes) and feeds the same
+ * buffers to the digest beforehand, so the body is traversed once on the way to the file. Like BodyHandlers.ofFile,
+ * the writes are blocking and happen on the thread that delivers the body.
+ */
+final class FileDownloadSubscriber implements BodySubscriber<FileDownload> {
+
+    private static final ByteBuffer[] NO_BUFFERS = new ByteBuffer[0];
+
+    private final Path path;
+    private final long expectedSize; /* -1 if unknown */
+    private final MessageDigest digest; /* null if not requested */
+    private final CompletableFuture<FileDownload> body;
+    private Flow.Subscription subscription;
+    private FileChannel channel;
+    private ByteBuffer[] sources;
+    private long written;
+
+    FileDownloadSubscriber(Path path, long expectedSize, MessageDigest digest) {
+        this.path = path;
+        this.expectedSize = expectedSize;
+        this.digest = digest;
+        this.body = new CompletableFuture<>();
+        this.sources = NO_BUFFERS;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+
+        try {
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            if (expectedSize > 0) {
+                /* Java has no fallocate(); writing the last byte sizes the file once, up front */
+                channel.write(ByteBuffer.wrap(new byte[1]), expectedSize - 1);
+                channel.position(0);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        if (body.isDone()) {
+            return;
+        }
+
+        ByteBuffer[] batch = item.toArray(sources);
+        sources = batch; /* Reused for later batches unless they are bigger */
+        int count = item.size();
+
+        try {
+            if (digest != null) {
+                for (int i = 0; i < count; i++) {
+                    ByteBuffer buffer = batch[i];
+                    int position = buffer.position();
+                    digest.update(buffer);
+                    buffer.position(position);
+                }
+            }
+
+            int offset = 0;
+            while (offset < count) {
+                written += channel.write(batch, offset, count - offset);
+                while (offset < count && !batch[offset].hasRemaining()) {
+                    offset++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            return;
+        } finally {
+            Arrays.fill(batch, 0, count, null); /* Do not hold on to the buffers until the next batch */
+        }
+
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        truncateAndCloseQuietly();
+        body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (body.isDone()) {
+            return;
+        }
+        try (FileChannel c = channel) {
+            if (c.size() > written) {
+                c.truncate(written); /* The body was shorter than announced */
+            }
+        } catch (IOException | RuntimeException e) {
+            body.completeExceptionally(e);
+            return;
+        }
+
+        Optional<String> hex = (digest == null)
+                ? Optional.empty()
+                : Optional.of(HexFormat.of().formatHex(digest.digest()));
+        body.complete(new FileDownload(path, written, hex));
+    }
+
+    @Override
+    public CompletionStage<FileDownload> getBody() {
+        return body;
+    }
+
+    private void fail(Exception e) {
+        subscription.cancel();
+        truncateAndCloseQuietly();
+        body.completeExceptionally(e);
+    }
+
+    /* Without the truncation, a failed download that was sized up front would look complete on disk */
+    private void truncateAndCloseQuietly() {
+        if (channel != null) {
+            try (FileChannel c = channel) {
+                if (c.size() > written) {
+                    c.truncate(written);
+                }
+            } catch (IOException | RuntimeException ignored) {
+                /* The body is failing anyway */
+            }
+        }
+    }
+}
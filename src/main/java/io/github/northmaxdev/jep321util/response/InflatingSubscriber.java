@@ -0,0 +1,348 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/*
+ * Inflates a gzip (RFC 1952) or deflate (RFC 9110 section 8.4.1.2: zlib, RFC 1950, or raw RFC 1951, as sent by some
+ * servers) body as it arrives and forwards the result to another subscriber.
+ *
+ * Input buffers are handed to the Inflater as they are, without copying. Output goes into 16 KB chunks that are
+ * filled across batches: every batch forwards slices of what has been inflated since the previous one, and those
+ * regions are never written to again. The chunks are not pooled either, since the downstream subscriber may hold on
+ * to the buffers that it has received (e.g., BodySubscribers.ofByteArray keeps them until the end).
+ *
+ * The gzip header and trailer are parsed byte by byte with a small state machine, because they may be split across
+ * any buffer boundaries; concatenated gzip members are supported. Anything after the end of the compressed data is
+ * ignored, as browsers do.
+ *
+ * Demand is passed through: every upstream batch is forwarded as one downstream batch, and when a batch inflates to
+ * nothing (e.g., it only contains a header), one more upstream batch is requested in its place.
+ */
+final class InflatingSubscriber<T> implements BodySubscriber<T> {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /* Gzip header stages are in the order that they appear in */
+    private static final int HEADER_FIXED = 0;
+    private static final int HEADER_EXTRA_LENGTH = 1;
+    private static final int HEADER_EXTRA = 2;
+    private static final int HEADER_NAME = 3;
+    private static final int HEADER_COMMENT = 4;
+    private static final int HEADER_CRC = 5;
+    private static final int BODY = 6;
+    private static final int TRAILER = 7;
+    private static final int SNIFF = 8; /* First two bytes of a deflate body, to tell zlib from raw */
+    private static final int DONE = 9;
+
+    private final BodySubscriber<T> downstream;
+    private final boolean gzip;
+    private final CRC32 crc;
+    private final byte[] scratch; /* Sniffed bytes or trailer */
+
+    private Flow.Subscription subscription;
+    private Inflater inflater;
+    private int state;
+    private int count; /* Bytes consumed in the current state */
+    private int flags;
+    private int extraLength;
+    private int members;
+    private ByteBuffer out;
+    private int forwarded; /* Position in out up to which the data has been forwarded */
+    private List<ByteBuffer> batch;
+    private boolean failed;
+
+    InflatingSubscriber(BodySubscriber<T> downstream, boolean gzip) {
+        this.downstream = downstream;
+        this.gzip = gzip;
+        this.crc = new CRC32();
+        this.scratch = new byte[8];
+        this.state = gzip ? HEADER_FIXED : SNIFF;
+        this.out = ByteBuffer.allocate(CHUNK_SIZE);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        downstream.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        if (failed) {
+            return;
+        }
+
+        List<ByteBuffer> inflated = new ArrayList<>();
+        batch = inflated;
+        try {
+            for (ByteBuffer buffer : item) {
+                feed(buffer);
+            }
+            forward();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        } finally {
+            batch = null;
+        }
+
+        if (inflated.isEmpty()) {
+            subscription.request(1);
+        } else {
+            downstream.onNext(inflated);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (failed) {
+            return;
+        }
+        end();
+        downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (failed) {
+            return;
+        }
+        boolean atBoundary = state == DONE
+                || (count == 0 && (state == HEADER_FIXED || state == SNIFF));
+        end();
+        if (atBoundary) {
+            downstream.onComplete();
+        } else {
+            downstream.onError(new EOFException("Unexpected end of compressed body"));
+        }
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return downstream.getBody();
+    }
+
+    private void feed(ByteBuffer in) throws IOException {
+        while (true) {
+            switch (state) {
+                case BODY -> {
+                    inflater.setInput(in);
+                    inflate();
+                    if (!inflater.finished()) {
+                        return;
+                    }
+                    state = gzip ? TRAILER : DONE;
+                    count = 0;
+                }
+                case DONE -> {
+                    in.position(in.limit());
+                    return;
+                }
+                default -> {
+                    if (!in.hasRemaining()) {
+                        return;
+                    }
+                    consume(in.get() & 0xFF);
+                }
+            }
+        }
+    }
+
+    private void consume(int b) throws IOException {
+        switch (state) {
+            case HEADER_FIXED -> {
+                if (count == 0 && b != 0x1F && members > 0) {
+                    state = DONE; /* Trailing garbage after a complete member */
+                    return;
+                }
+                if ((count == 0 && b != 0x1F) || (count == 1 && b != 0x8B)) {
+                    throw new ZipException("Not in GZIP format");
+                }
+                if (count == 2 && b != 8) {
+                    throw new ZipException("Unsupported GZIP compression method: " + b);
+                }
+                if (count == 3) {
+                    flags = b;
+                }
+                if (++count == 10) {
+                    nextHeaderStage();
+                }
+            }
+            case HEADER_EXTRA_LENGTH -> {
+                extraLength |= b << (8 * count);
+                if (++count == 2) {
+                    nextHeaderStage();
+                }
+            }
+            case HEADER_EXTRA -> {
+                if (++count == extraLength) {
+                    nextHeaderStage();
+                }
+            }
+            case HEADER_NAME, HEADER_COMMENT -> {
+                if (b == 0) {
+                    nextHeaderStage();
+                }
+            }
+            case HEADER_CRC -> {
+                if (++count == 2) {
+                    nextHeaderStage();
+                }
+            }
+            case TRAILER -> {
+                scratch[count++] = (byte) b;
+                if (count == 8) {
+                    verifyTrailer();
+                    members++;
+                    state = HEADER_FIXED;
+                    count = 0;
+                    flags = 0;
+                    extraLength = 0;
+                }
+            }
+            case SNIFF -> {
+                scratch[count++] = (byte) b;
+                if (count == 2) {
+                    int cmf = scratch[0] & 0xFF;
+                    int flg = scratch[1] & 0xFF;
+                    boolean zlib = (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+                    inflater = new Inflater(!zlib);
+                    inflater.setInput(scratch, 0, 2);
+                    inflate();
+                    state = inflater.finished() ? DONE : BODY;
+                }
+            }
+            default -> throw new AssertionError("Unexpected state: " + state);
+        }
+    }
+
+    private void nextHeaderStage() {
+        count = 0;
+        for (int next = state + 1; ; next++) {
+            boolean present = switch (next) {
+                case HEADER_EXTRA_LENGTH -> (flags & FEXTRA) != 0;
+                case HEADER_EXTRA -> extraLength > 0;
+                case HEADER_NAME -> (flags & FNAME) != 0;
+                case HEADER_COMMENT -> (flags & FCOMMENT) != 0;
+                case HEADER_CRC -> (flags & FHCRC) != 0;
+                default -> true;
+            };
+            if (present) {
+                state = next;
+                break;
+            }
+        }
+
+        if (state == BODY) {
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            } else {
+                inflater.reset();
+            }
+            crc.reset();
+        }
+    }
+
+    private void inflate() throws IOException {
+        try {
+            while (true) {
+                if (!out.hasRemaining()) {
+                    forward();
+                    out = ByteBuffer.allocate(CHUNK_SIZE);
+                    forwarded = 0;
+                }
+                int start = out.position();
+                int n = inflater.inflate(out);
+                if (gzip && n > 0) {
+                    crc.update(out.array(), out.arrayOffset() + start, n);
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("Preset dictionaries are not supported");
+                }
+                if (inflater.finished() || (n == 0 && inflater.needsInput())) {
+                    return;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+
+    private void verifyTrailer() throws ZipException {
+        if (readIntLE(0) != (int) crc.getValue()) {
+            throw new ZipException("Corrupt GZIP trailer: CRC mismatch");
+        }
+        if (readIntLE(4) != (int) inflater.getBytesWritten()) {
+            throw new ZipException("Corrupt GZIP trailer: size mismatch");
+        }
+    }
+
+    private int readIntLE(int offset) {
+        return (scratch[offset] & 0xFF)
+                | (scratch[offset + 1] & 0xFF) << 8
+                | (scratch[offset + 2] & 0xFF) << 16
+                | (scratch[offset + 3] & 0xFF) << 24;
+    }
+
+    private void forward() {
+        int end = out.position();
+        if (end > forwarded) {
+            batch.add(out.slice(forwarded, end - forwarded));
+            forwarded = end;
+        }
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        subscription.cancel();
+        end();
+        downstream.onError(e);
+    }
+
+    /* Releases the native zlib memory right away instead of waiting for the Inflater's cleaner */
+    private void end() {
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+}
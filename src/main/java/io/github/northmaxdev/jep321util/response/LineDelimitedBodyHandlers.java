@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Body handlers and subscribers for line-delimited bodies, such as
+ * <a href="https://github.com/ndjson/ndjson-spec">newline-delimited JSON</a>, that process the body one line at a
+ * time, as it arrives, instead of buffering it completely.
+ * <p>
+ * Lines are split incrementally across buffer boundaries and the bytes are decoded straight out of the buffers
+ * received from the HTTP client. Line terminators are the same as those of {@link java.io.BufferedReader}:
+ * {@code "\n"}, {@code "\r\n"} and a lone {@code "\r"}; an unterminated last line is delivered as well. Malformed
+ * input fails the body with a {@link java.nio.charset.CharacterCodingException}.
+ * <p>
+ * Every handler and subscriber requests the next part of the body only when the lines of the previous one have been
+ * processed, so memory use is bounded by the longest line and the size of a single part, whatever the size of the
+ * body.
+ */
+public final class LineDelimitedBodyHandlers {
+
+    private LineDelimitedBodyHandlers() {}
+
+    /**
+     * Creates a handler that passes every line to the given consumer. The consumer is invoked sequentially, on the
+     * thread that delivers the body. If the consumer throws an exception, the body is cancelled and the response
+     * completes exceptionally with that exception.
+     * <p>
+     * The charset is taken from the {@code Content-Type} header, with UTF-8 being the default.
+     *
+     * @param consumer a non-{@code null} consumer of lines
+     * @return a non-{@code null} {@link BodyHandler} whose body completes once every line has been consumed
+     * @throws NullPointerException if the consumer is {@code null}
+     */
+    public static BodyHandler<Void> ofConsumer(Consumer<? super String> consumer) {
+        Objects.requireNonNull(consumer, "Consumer cannot be null");
+        return responseInfo -> new LineConsumingSubscriber<>(
+                new LineSplitter(charsetOf(responseInfo.headers())), LineParser.STRINGS, consumer);
+    }
+
+    /**
+     * Creates a handler that republishes the lines to a single {@link Flow.Subscriber}, with real backpressure: the
+     * body is read only as fast as the subscriber requests lines. The publisher is available as soon as the headers
+     * have been received; the body is not read until it is subscribed to. Subscribing more than once signals
+     * {@link IllegalStateException} to every subscriber but the first.
+     * <p>
+     * The charset is taken from the {@code Content-Type} header, with UTF-8 being the default.
+     *
+     * @return a non-{@code null} {@link BodyHandler}
+     */
+    public static BodyHandler<Flow.Publisher<String>> ofPublisher() {
+        return responseInfo -> new LinePublishingSubscriber<>(
+                new LineSplitter(charsetOf(responseInfo.headers())), LineParser.STRINGS);
+    }
+
+    /**
+     * Creates a subscriber that passes every line to the given consumer. This is the subscriber used by
+     * {@link #ofConsumer(Consumer)}, with an explicit charset.
+     *
+     * @param consumer a non-{@code null} consumer of lines
+     * @param charset  a non-{@code null} charset to decode the body with
+     * @return a non-{@code null} {@link BodySubscriber}
+     * @throws NullPointerException if either argument is {@code null}
+     */
+    public static BodySubscriber<Void> consumingSubscriber(Consumer<? super String> consumer, Charset charset) {
+        Objects.requireNonNull(consumer, "Consumer cannot be null");
+        Objects.requireNonNull(charset, "Charset cannot be null");
+        return new LineConsumingSubscriber<>(new LineSplitter(charset), LineParser.STRINGS, consumer);
+    }
+
+    /**
+     * Creates a subscriber that republishes the lines. This is the subscriber used by {@link #ofPublisher()}, with an
+     * explicit charset.
+     *
+     * @param charset a non-{@code null} charset to decode the body with
+     * @return a non-{@code null} {@link BodySubscriber}
+     * @throws NullPointerException if the charset is {@code null}
+     */
+    public static BodySubscriber<Flow.Publisher<String>> publishingSubscriber(Charset charset) {
+        Objects.requireNonNull(charset, "Charset cannot be null");
+        return new LinePublishingSubscriber<>(new LineSplitter(charset), LineParser.STRINGS);
+    }
+
+    private static Charset charsetOf(HttpHeaders headers) {
+        String contentType = headers.firstValue("Content-Type").orElse("");
+        int start = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (start == -1) {
+            return StandardCharsets.UTF_8;
+        }
+        start += "charset=".length();
+        int end = contentType.indexOf(';', start);
+        String name = contentType.substring(start, (end == -1) ? contentType.length() : end).strip();
+        if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/*
+ * Republishes the body as items parsed from its lines to a single downstream subscriber, honoring its demand. Upstream
+ * is only asked for the next batch once every item of the previous batch has been delivered and the downstream
+ * subscriber wants more, so at most one batch worth of items is ever held in memory.
+ *
+ * All the state that is not atomic or volatile is confined to drain(), which is serialized with the usual
+ * work-in-progress counter: whichever thread signals (upstream, downstream request/cancel) either runs the loop or
+ * makes the thread that is already running it go around once more.
+ */
+final class LinePublishingSubscriber<T> implements BodySubscriber<Flow.Publisher<T>>, Flow.Publisher<T> {
+
+    private final LineSplitter splitter;
+    private final LineSplitter.Sink sink;
+    private final CompletableFuture<Flow.Publisher<T>> body;
+
+    private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+    private final AtomicReference<Flow.Subscriber<? super T>> downstream = new AtomicReference<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile List<ByteBuffer> batch;
+    private volatile boolean requested;
+    private volatile boolean upstreamDone;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+
+    /* Confined to drain() */
+    private final ArrayDeque<T> items = new ArrayDeque<>();
+    private boolean finished;
+    private boolean terminated;
+
+    LinePublishingSubscriber(LineSplitter splitter, LineParser<T> parser) {
+        Consumer<T> output = items::add;
+        this.splitter = splitter;
+        this.sink = (chars, start, end) -> parser.parse(chars, start, end, output);
+        this.body = CompletableFuture.completedFuture(this);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (!upstream.compareAndSet(null, subscription) || cancelled || error != null) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        if (batch != null) {
+            /* Only one batch is ever requested at a time, so this can only be a misbehaving upstream */
+            error = new IllegalStateException("Received a batch before the previous one was consumed");
+            cancelUpstream();
+        } else {
+            batch = item;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public CompletionStage<Flow.Publisher<T>> getBody() {
+        return body;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null");
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("This publisher only supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new DownstreamSubscription());
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            drainLoop();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainLoop() {
+        Flow.Subscriber<? super T> subscriber = downstream.get();
+        if (terminated || subscriber == null) {
+            return;
+        }
+        if (cancelled) {
+            terminate();
+            return;
+        }
+
+        while (true) {
+            Throwable e = error;
+            if (e != null) {
+                terminate();
+                subscriber.onError(e);
+                return;
+            }
+
+            while (!items.isEmpty() && demand.get() > 0) {
+                subscriber.onNext(items.poll());
+                demand.decrementAndGet();
+                if (cancelled) {
+                    terminate();
+                    return;
+                }
+            }
+            if (!items.isEmpty()) {
+                return; /* Wait for demand */
+            }
+
+            List<ByteBuffer> item = batch;
+            if (item != null) {
+                /*
+                 * The request is only considered fulfilled once its batch has been taken. Clearing the flag any
+                 * earlier (e.g. in onNext) would let a concurrent drain that has already seen no batch request
+                 * another one while this one is still held, which the next onNext would then overwrite.
+                 */
+                batch = null;
+                requested = false;
+                try {
+                    for (ByteBuffer buffer : item) {
+                        splitter.feed(buffer, sink);
+                    }
+                } catch (CharacterCodingException ex) {
+                    failFromDecoding(ex);
+                }
+                continue;
+            }
+
+            if (upstreamDone) {
+                if (!finished) {
+                    finished = true;
+                    try {
+                        splitter.finish(sink);
+                    } catch (CharacterCodingException ex) {
+                        error = ex;
+                    }
+                    continue;
+                }
+                terminate();
+                subscriber.onComplete();
+                return;
+            }
+
+            Flow.Subscription subscription = upstream.get();
+            if (subscription != null && !requested && demand.get() > 0) {
+                requested = true;
+                subscription.request(1);
+            }
+            return;
+        }
+    }
+
+    private void failFromDecoding(CharacterCodingException e) {
+        cancelUpstream();
+        items.clear();
+        error = e;
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription = upstream.get();
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        items.clear();
+        batch = null;
+    }
+
+    private final class DownstreamSubscription implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested a non-positive number of items: " + n);
+                cancelUpstream();
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> {
+                    long sum = current + added;
+                    return (sum < 0) ? Long.MAX_VALUE : sum; /* Saturate on overflow */
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            cancelUpstream();
+            drain();
+        }
+    }
+}
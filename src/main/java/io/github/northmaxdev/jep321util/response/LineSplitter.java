@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/*
+ * Incrementally decodes a byte stream that arrives in arbitrary chunks and splits it into lines. Bytes are decoded
+ * straight from the incoming buffers into a single reusable char[]; only the bytes of a character that straddles two
+ * buffers are copied (into a tiny carry-over buffer). Each line is handed out as a region of that char[], so the
+ * caller decides whether (and how) to materialize it.
+ *
+ * Line terminators are the same as those of BufferedReader: "\n", "\r\n" and a lone "\r", even if split across
+ * buffers. Instances are not thread-safe.
+ */
+final class LineSplitter {
+
+    @FunctionalInterface
+    interface Sink {
+
+        /* The region is only valid for the duration of the call */
+        void line(char[] chars, int start, int end);
+    }
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final CharsetDecoder decoder;
+    private final ByteBuffer carry; /* Write mode; holds the leading bytes of an incomplete character */
+    private CharBuffer chars; /* Write mode; [0, position) is the incomplete line, [0, scanned) has been scanned */
+    private int scanned;
+    private boolean skipLF;
+
+    LineSplitter(Charset charset) {
+        this(charset, CodingErrorAction.REPORT);
+    }
+
+    LineSplitter(Charset charset, CodingErrorAction onError) {
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(onError)
+                .onUnmappableCharacter(onError);
+        this.carry = ByteBuffer.allocate(16); /* Longer than any multibyte sequence of a standard charset */
+        this.chars = CharBuffer.allocate(INITIAL_CAPACITY);
+    }
+
+    /* Consumes the whole buffer */
+    void feed(ByteBuffer in, Sink sink) throws CharacterCodingException {
+        while (carry.position() > 0 && in.hasRemaining()) {
+            carry.put(in.get()).flip();
+            decode(carry, false, sink);
+            carry.compact();
+        }
+        decode(in, false, sink);
+        if (in.hasRemaining()) {
+            carry.put(in);
+        }
+    }
+
+    /* Signals the end of input, flushing the last line if it is not terminated */
+    void finish(Sink sink) throws CharacterCodingException {
+        carry.flip();
+        decode(carry, true, sink);
+        carry.clear();
+
+        CoderResult result;
+        while ((result = decoder.flush(chars)).isOverflow()) {
+            grow();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        split(sink);
+
+        if (chars.position() > 0) {
+            sink.line(chars.array(), 0, chars.position());
+        }
+        chars.clear();
+        scanned = 0;
+        skipLF = false;
+        decoder.reset();
+    }
+
+    private void decode(ByteBuffer in, boolean endOfInput, Sink sink) throws CharacterCodingException {
+        while (true) {
+            CoderResult result = decoder.decode(in, chars, endOfInput);
+            int decoded = chars.position();
+            split(sink);
+            if (result.isUnderflow()) {
+                return;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (chars.position() == decoded) {
+                /*
+                 * Splitting freed nothing, so the next character does not fit into what is left, which can be more
+                 * than zero chars (e.g. one char left for a surrogate pair): the line is longer than the buffer
+                 */
+                grow();
+            }
+        }
+    }
+
+    private void split(Sink sink) {
+        char[] a = chars.array();
+        int end = chars.position();
+        int lineStart = 0;
+
+        for (int i = scanned; i < end; i++) {
+            char c = a[i];
+            if (skipLF) {
+                skipLF = false;
+                if (c == '\n') {
+                    lineStart = i + 1;
+                    continue;
+                }
+            }
+            if (c == '\n' || c == '\r') {
+                sink.line(a, lineStart, i);
+                lineStart = i + 1;
+                skipLF = (c == '\r');
+            }
+        }
+
+        if (lineStart > 0) {
+            System.arraycopy(a, lineStart, a, 0, end - lineStart);
+            chars.position(end - lineStart);
+        }
+        scanned = chars.position();
+    }
+
+    private void grow() {
+        CharBuffer bigger = CharBuffer.allocate(chars.capacity() * 2);
+        chars.flip();
+        bigger.put(chars);
+        chars = bigger;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.util.Objects;
+
+/**
+ * A single event of an <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">event stream</a>
+ * ({@code text/event-stream}).
+ *
+ * @param type the event type, which is {@code "message"} unless the event has an {@code event} field
+ * @param data the event data, with the values of multiple {@code data} fields joined by {@code '\n'}
+ * @param id   the last event ID at the time this event was dispatched (it may have been set by an earlier event), or
+ *             an empty string if there is none
+ */
+public record ServerSentEvent(String type, String data, String id) {
+
+    /**
+     * Canonical constructor.
+     *
+     * @param type the event type
+     * @param data the event data
+     * @param id   the last event ID
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public ServerSentEvent {
+        Objects.requireNonNull(type, "Type cannot be null");
+        Objects.requireNonNull(data, "Data cannot be null");
+        Objects.requireNonNull(id, "ID cannot be null");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Body handlers for <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">Server-Sent Events</a>
+ * ({@code text/event-stream}) that parse the events incrementally as the body arrives.
+ * <p>
+ * The body is always decoded as UTF-8, with malformed input replaced, as the standard requires. The lines are split
+ * and the {@code event}, {@code data}, {@code id} and {@code retry} fields are parsed without allocating a string per
+ * line or per field. An event that is still incomplete when the body ends is discarded.
+ * <p>
+ * To resume after a disconnect, send the {@link ServerSentEventStream#lastEventId() last event ID} of the previous
+ * stream in the {@code Last-Event-ID} request header, and pass it to {@link #ofPublisher(String)} as well, so that
+ * the events of the new stream carry it until the server sends a new one.
+ */
+public final class ServerSentEventBodyHandlers {
+
+    private ServerSentEventBodyHandlers() {}
+
+    /**
+     * Creates a handler for a new event stream, without a last event ID.
+     *
+     * @return a non-{@code null} {@link BodyHandler}
+     */
+    public static BodyHandler<ServerSentEventStream> ofPublisher() {
+        return ofPublisher("");
+    }
+
+    /**
+     * Creates a handler for an event stream that resumes a previous one.
+     *
+     * @param lastEventId a non-{@code null} last event ID of the previous stream, or an empty string if there is none
+     * @return a non-{@code null} {@link BodyHandler}
+     * @throws NullPointerException if the last event ID is {@code null}
+     */
+    public static BodyHandler<ServerSentEventStream> ofPublisher(String lastEventId) {
+        Objects.requireNonNull(lastEventId, "Last event ID cannot be null");
+        return responseInfo -> {
+            ServerSentEventParser parser = new ServerSentEventParser(lastEventId);
+            LineSplitter splitter = new LineSplitter(StandardCharsets.UTF_8, CodingErrorAction.REPLACE);
+            LinePublishingSubscriber<ServerSentEvent> events = new LinePublishingSubscriber<>(splitter, parser);
+            ServerSentEventStream stream = new ServerSentEventStream(events, parser);
+            return BodySubscribers.mapping(events, publisher -> stream);
+        };
+    }
+}
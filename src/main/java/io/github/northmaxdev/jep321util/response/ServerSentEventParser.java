@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.util.function.Consumer;
+
+/*
+ * Interprets the lines of an event stream as per the HTML Living Standard, section 9.2.6 ("Interpreting an event
+ * stream"). Fields are matched directly on the char[] regions handed out by LineSplitter, and the data is assembled
+ * in a single reusable StringBuilder, so the only strings allocated are the data of each dispatched event and, when
+ * they change, the event type and the event ID.
+ *
+ * parse() is confined to the thread that drains the body; the last event ID and the reconnection time are volatile
+ * because they are read by the application at any time.
+ */
+final class ServerSentEventParser implements LineParser<ServerSentEvent> {
+
+    private static final String DEFAULT_TYPE = "message";
+
+    private final StringBuilder data;
+    private String type; /* null if the event type buffer is empty */
+    private String lastType; /* The last type seen, to reuse the instance when it repeats */
+    private volatile String lastEventId;
+    private volatile long retryMillis;
+    private boolean started;
+
+    ServerSentEventParser(String lastEventId) {
+        this.data = new StringBuilder();
+        this.lastEventId = lastEventId;
+        this.retryMillis = -1;
+    }
+
+    String lastEventId() {
+        return lastEventId;
+    }
+
+    /* Returns -1 if the server has not sent one */
+    long retryMillis() {
+        return retryMillis;
+    }
+
+    @Override
+    public void parse(char[] chars, int start, int end, Consumer<? super ServerSentEvent> output) {
+        if (!started) {
+            started = true;
+            if (start < end && chars[start] == '\uFEFF') {
+                start++; /* A leading byte order mark is ignored */
+            }
+        }
+
+        if (start == end) {
+            dispatch(output);
+            return;
+        }
+        if (chars[start] == ':') {
+            return; /* Comment */
+        }
+
+        int colon = indexOf(chars, start, end, ':');
+        int nameEnd = (colon == -1) ? end : colon;
+        int valueStart = (colon == -1) ? end : colon + 1;
+        if (valueStart < end && chars[valueStart] == ' ') {
+            valueStart++;
+        }
+
+        if (regionEquals(chars, start, nameEnd, "data")) {
+            data.append(chars, valueStart, end - valueStart).append('\n');
+        } else if (regionEquals(chars, start, nameEnd, "event")) {
+            if (valueStart == end) {
+                type = null;
+            } else {
+                lastType = reuse(lastType, chars, valueStart, end);
+                type = lastType;
+            }
+        } else if (regionEquals(chars, start, nameEnd, "id")) {
+            if (indexOf(chars, valueStart, end, '\0') == -1) {
+                lastEventId = reuse(lastEventId, chars, valueStart, end);
+            }
+        } else if (regionEquals(chars, start, nameEnd, "retry")) {
+            long millis = parseDigits(chars, valueStart, end);
+            if (millis != -1) {
+                retryMillis = millis;
+            }
+        }
+        /* Any other field is ignored */
+    }
+
+    private void dispatch(Consumer<? super ServerSentEvent> output) {
+        if (data.isEmpty()) {
+            type = null;
+            return;
+        }
+        data.setLength(data.length() - 1); /* Trailing '\n' */
+        ServerSentEvent event = new ServerSentEvent((type == null) ? DEFAULT_TYPE : type, data.toString(), lastEventId);
+        data.setLength(0);
+        type = null;
+        output.accept(event);
+    }
+
+    private static int indexOf(char[] chars, int start, int end, char c) {
+        for (int i = start; i < end; i++) {
+            if (chars[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(char[] chars, int start, int end, String s) {
+        if (end - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (chars[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String reuse(String previous, char[] chars, int start, int end) {
+        return (previous != null && regionEquals(chars, start, end, previous))
+                ? previous
+                : new String(chars, start, end - start);
+    }
+
+    /* Returns -1 unless the region is a non-empty run of ASCII digits; saturates instead of overflowing */
+    private static long parseDigits(char[] chars, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = (value > (Long.MAX_VALUE - 9) / 10) ? Long.MAX_VALUE : value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
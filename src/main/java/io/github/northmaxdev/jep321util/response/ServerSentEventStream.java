@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+
+/**
+ * The events of a response body, as produced by {@link ServerSentEventBodyHandlers}. Besides publishing the events,
+ * it keeps track of the state that a client needs in order to reconnect: the last event ID, which is to be sent in
+ * the {@code Last-Event-ID} request header, and the reconnection time requested by the server.
+ * <p>
+ * Like the publishers of {@link LineDelimitedBodyHandlers}, it supports a single subscriber, and the body is read only
+ * as fast as that subscriber requests events.
+ */
+public final class ServerSentEventStream implements Flow.Publisher<ServerSentEvent> {
+
+    private final Flow.Publisher<ServerSentEvent> events;
+    private final ServerSentEventParser parser;
+
+    ServerSentEventStream(Flow.Publisher<ServerSentEvent> events, ServerSentEventParser parser) {
+        this.events = events;
+        this.parser = parser;
+    }
+
+    /**
+     * Subscribes to the events. Subscribing more than once signals {@link IllegalStateException} to every subscriber
+     * but the first.
+     *
+     * @param subscriber a non-{@code null} subscriber
+     * @throws NullPointerException if the subscriber is {@code null}
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ServerSentEvent> subscriber) {
+        events.subscribe(subscriber);
+    }
+
+    /**
+     * Returns the last event ID received so far. It may be updated by an {@code id} field that has not been part of a
+     * dispatched event (yet).
+     *
+     * @return an {@link Optional} containing the last event ID or an empty one if there is none
+     */
+    public Optional<String> lastEventId() {
+        String id = parser.lastEventId();
+        return id.isEmpty() ? Optional.empty() : Optional.of(id);
+    }
+
+    /**
+     * Returns the reconnection time most recently requested by the server with a {@code retry} field.
+     *
+     * @return an {@link Optional} containing the reconnection time or an empty one if the server has not requested
+     * one
+     */
+    public Optional<Duration> retry() {
+        long millis = parser.retryMillis();
+        return (millis == -1) ? Optional.empty() : Optional.of(Duration.ofMillis(millis));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.net.http.HttpResponse.BodyHandler;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Body handlers that keep small bodies in memory and transparently spill large ones to a temporary file, so that
+ * memory use stays bounded under concurrency without paying for disk I/O on every response. The result is a
+ * {@link SpooledBody}, which gives the same view of the body either way and <b>has to be closed</b> to delete the
+ * temporary file.
+ * <p>
+ * Up to the given threshold, the body is kept in memory; once the next received buffer would exceed it, that buffer
+ * and the rest of the body go to a temporary file. When the response has a {@code Content-Length} header that exceeds
+ * the threshold, the whole body goes to the file right away. If the body fails, the file is deleted immediately.
+ */
+public final class SpillingBodyHandlers {
+
+    private SpillingBodyHandlers() {}
+
+    /**
+     * Creates a handler that spills to the default temporary-file directory.
+     *
+     * @param memoryThreshold the largest number of bytes to keep in memory
+     * @return a non-{@code null} {@link BodyHandler}
+     * @throws IllegalArgumentException if the threshold is negative or greater than
+     *                                  {@value ByteArrayBodyHandlers#MAX_ARRAY_SIZE}
+     */
+    public static BodyHandler<SpooledBody> of(int memoryThreshold) {
+        requireValidThreshold(memoryThreshold);
+        return responseInfo -> new SpillingSubscriber(
+                memoryThreshold, ResponseHeaders.contentLength(responseInfo.headers()), null);
+    }
+
+    /**
+     * Creates a handler that spills to the given directory.
+     *
+     * @param memoryThreshold the largest number of bytes to keep in memory
+     * @param directory       a non-{@code null} path of an existing directory to create temporary files in
+     * @return a non-{@code null} {@link BodyHandler}
+     * @throws NullPointerException     if the directory is {@code null}
+     * @throws IllegalArgumentException if the threshold is negative or greater than
+     *                                  {@value ByteArrayBodyHandlers#MAX_ARRAY_SIZE}
+     */
+    public static BodyHandler<SpooledBody> of(int memoryThreshold, Path directory) {
+        requireValidThreshold(memoryThreshold);
+        Objects.requireNonNull(directory, "Directory cannot be null");
+        return responseInfo -> new SpillingSubscriber(
+                memoryThreshold, ResponseHeaders.contentLength(responseInfo.headers()), directory);
+    }
+
+    private static void requireValidThreshold(int memoryThreshold) {
+        if (memoryThreshold < 0 || memoryThreshold > ByteArrayBodyHandlers.MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("Illegal memory threshold: " + memoryThreshold);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/*
+ * Copies buffers into memory until the next one does not fit under the threshold, then writes that buffer and every
+ * later one to a temporary file with gathering writes. A body that is announced to be larger than the threshold goes
+ * to the file right away, so that the memory is not taken for nothing. On failure, the file is deleted immediately.
+ */
+final class SpillingSubscriber implements BodySubscriber<SpooledBody> {
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final int threshold;
+    private final long expectedSize; /* -1 if unknown */
+    private final Path directory; /* null for the default temporary-file directory */
+    private final CompletableFuture<SpooledBody> body;
+    private Flow.Subscription subscription;
+    private byte[] memory;
+    private int memorySize;
+    private Path file;
+    private FileChannel channel;
+    private long size;
+
+    SpillingSubscriber(int threshold, long expectedSize, Path directory) {
+        this.threshold = threshold;
+        this.expectedSize = expectedSize;
+        this.directory = directory;
+        this.body = new CompletableFuture<>();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+
+        if (expectedSize > threshold) {
+            memory = NO_BYTES;
+            try {
+                spill();
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                return;
+            }
+        } else {
+            memory = new byte[(expectedSize >= 0) ? (int) expectedSize : Math.min(INITIAL_CAPACITY, threshold)];
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        if (body.isDone()) {
+            return;
+        }
+
+        try {
+            int count = item.size();
+            int i = 0;
+            for (; i < count && channel == null; i++) {
+                ByteBuffer buffer = item.get(i);
+                int remaining = buffer.remaining();
+                if (remaining > threshold - memorySize) {
+                    spill();
+                    break;
+                }
+                if (remaining > memory.length - memorySize) {
+                    long doubled = Math.max(2L * memory.length, INITIAL_CAPACITY);
+                    int capacity = (int) Math.min(Math.max(doubled, (long) memorySize + remaining), threshold);
+                    memory = Arrays.copyOf(memory, capacity);
+                }
+                buffer.get(memory, memorySize, remaining);
+                memorySize += remaining;
+                size += remaining;
+            }
+
+            if (i < count) {
+                ByteBuffer[] rest = item.subList(i, count).toArray(new ByteBuffer[0]);
+                int offset = 0;
+                while (offset < rest.length) {
+                    size += channel.write(rest, offset, rest.length - offset);
+                    while (offset < rest.length && !rest[offset].hasRemaining()) {
+                        offset++;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            return;
+        }
+
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        discard();
+        body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (body.isDone()) {
+            return;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+        body.complete(new SpooledBody(memory, memorySize, file, size));
+        memory = null;
+    }
+
+    @Override
+    public CompletionStage<SpooledBody> getBody() {
+        return body;
+    }
+
+    private void spill() throws IOException {
+        file = (directory == null)
+                ? Files.createTempFile("jep321util-", ".body")
+                : Files.createTempFile(directory, "jep321util-", ".body");
+        channel = FileChannel.open(file, StandardOpenOption.WRITE);
+    }
+
+    private void fail(Exception e) {
+        subscription.cancel();
+        discard();
+        body.completeExceptionally(e);
+    }
+
+    private void discard() {
+        memory = null;
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException ignored) {
+            /* The body is failing anyway */
+        }
+    }
+}
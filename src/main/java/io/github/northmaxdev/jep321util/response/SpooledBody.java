@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response body collected by {@link SpillingBodyHandlers}: its beginning is kept in memory and, if it is large
+ * enough, the rest of it is kept in a temporary file. Either way, it can be read through {@link #openStream()} or
+ * {@link #openChannel()} as many times as needed, including concurrently.
+ * <p>
+ * <b>Instances must be closed</b>, preferably with try-with-resources, to delete the temporary file. Closing is
+ * idempotent; streams and channels that have been opened before closing remain readable on most platforms, but no
+ * new ones can be opened.
+ */
+public final class SpooledBody implements Closeable {
+
+    private final byte[] memory;
+    private final int memorySize;
+    private final Path file; /* null if the body has not been spilled */
+    private final long size;
+    private final AtomicBoolean closed;
+
+    SpooledBody(byte[] memory, int memorySize, Path file, long size) {
+        this.memory = memory;
+        this.memorySize = memorySize;
+        this.file = file;
+        this.size = size;
+        this.closed = new AtomicBoolean();
+    }
+
+    /**
+     * Returns the size of the body.
+     *
+     * @return the number of bytes, including both the ones in memory and the ones in the file
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Checks whether a part of the body has been written to a temporary file.
+     *
+     * @return {@code true} if the body has been spilled to disk
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Returns the temporary file that holds the spilled part of the body, for diagnostics. The file only contains the
+     * part of the body that did not fit into memory.
+     *
+     * @return an {@link Optional} containing the path of the file or an empty one if the body has not been spilled
+     */
+    public Optional<Path> spillFile() {
+        return Optional.ofNullable(file);
+    }
+
+    /**
+     * Opens a new stream that reads the whole body from the beginning.
+     *
+     * @return a non-{@code null} {@link InputStream} that has to be closed by the caller
+     * @throws IllegalStateException if this body has been closed
+     * @throws IOException           if the temporary file cannot be opened
+     */
+    public InputStream openStream() throws IOException {
+        requireOpen();
+        InputStream head = new ByteArrayInputStream(memory, 0, memorySize);
+        return (file == null) ? head : new SequenceInputStream(head, Files.newInputStream(file));
+    }
+
+    /**
+     * Opens a new channel that reads the whole body from the beginning. The spilled part is read straight from a
+     * {@link FileChannel}.
+     *
+     * @return a non-{@code null} {@link ReadableByteChannel} that has to be closed by the caller
+     * @throws IllegalStateException if this body has been closed
+     * @throws IOException           if the temporary file cannot be opened
+     */
+    public ReadableByteChannel openChannel() throws IOException {
+        requireOpen();
+        FileChannel tail = (file == null) ? null : FileChannel.open(file, StandardOpenOption.READ);
+        return new SpooledChannel(ByteBuffer.wrap(memory, 0, memorySize), tail);
+    }
+
+    /**
+     * Deletes the temporary file, if there is one.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true) && file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void requireOpen() {
+        if (closed.get()) {
+            throw new IllegalStateException("Body has been closed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpooledBody{size=%d, spilled=%b}".formatted(size, isSpilled());
+    }
+
+    private static final class SpooledChannel implements ReadableByteChannel {
+
+        private final ByteBuffer head;
+        private final FileChannel tail;
+        private boolean open;
+
+        SpooledChannel(ByteBuffer head, FileChannel tail) {
+            this.head = head;
+            this.tail = tail;
+            this.open = true;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            if (head.hasRemaining()) {
+                int n = Math.min(head.remaining(), dst.remaining());
+                dst.put(dst.position(), head, head.position(), n);
+                dst.position(dst.position() + n);
+                head.position(head.position() + n);
+                return n;
+            }
+            return (tail == null) ? -1 : tail.read(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            if (tail != null) {
+                tail.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class BaseURITests {
+
+    @Test
+    @DisplayName("Derived URIs are equal to the equivalent builder's URIs")
+    void derivedMatchesBuilder() {
+        BaseURI base = URIBuilder.withValidHost("example.com")
+                .port(8443)
+                .pathSegment("api")
+                .param("lang", "ru")
+                .freeze();
+
+        URI actual = base.pathSegment("поиск")
+                .pathSegment(42L)
+                .param("q", "Джава")
+                .param("lang", "en")
+                .build();
+
+        URI expected = URIBuilder.withValidHost("example.com")
+                .port(8443)
+                .pathSegment("api")
+                .param("lang", "ru")
+                .pathSegment("поиск")
+                .pathSegment(42L)
+                .param("q", "Джава")
+                .param("lang", "en")
+                .build();
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual).hasToString(expected.toString());
+    }
+
+    @Test
+    @DisplayName("Frozen instance is unaffected by both its builder and its children")
+    void frozenIsUnaffected() {
+        URIBuilder builder = URIBuilder.withLocalhost().pathSegment("foo");
+        BaseURI base = builder.freeze();
+
+        builder.pathSegment("bar").port(8080);
+        base.pathSegment("baz").param("x", 1);
+
+        assertThat(base.build()).isEqualTo(URI.create("https://localhost/foo"));
+    }
+
+    @Test
+    @DisplayName("Instance can be shared between threads")
+    void sharedBetweenThreads() {
+        BaseURI base = URIBuilder.withValidHost("example.com")
+                .pathSegment("orders")
+                .freeze();
+
+        List<URI> actual = IntStream.range(0, 10_000)
+                .parallel()
+                .mapToObj(i -> base.pathSegment(i).build())
+                .toList();
+
+        assertThat(actual).containsExactlyElementsOf(IntStream.range(0, 10_000)
+                .mapToObj(i -> URI.create("https://example.com/orders/" + i))
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Empty values throw IllegalArgumentException")
+    void emptyValuesThrow() {
+        BaseURI base = URIBuilder.withLocalhost().freeze();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> base.pathSegment(""));
+        assertThatIllegalArgumentException().isThrownBy(() -> base.param("", "foo"));
+        assertThatIllegalArgumentException().isThrownBy(() -> base.param("foo", ""));
+    }
+
+    @Test
+    @DisplayName("Instances that produce the same URI are equal regardless of how they were derived")
+    void equalsAndHashCode() {
+        BaseURI frozen = URIBuilder.withLocalhost()
+                .pathSegment("a")
+                .pathSegment("b")
+                .param("x", 1)
+                .param("y", 2)
+                .freeze();
+        BaseURI derived = URIBuilder.withLocalhost()
+                .freeze()
+                .pathSegment("a")
+                .param("x", 0)
+                .pathSegment("b")
+                .param("y", 2)
+                .param("x", 1);
+
+        assertThat(derived).isEqualTo(frozen).hasSameHashCodeAs(frozen);
+        assertThat(derived.param("y", 3)).isNotEqualTo(frozen);
+        assertThat(derived.pathSegment("c")).isNotEqualTo(frozen);
+        assertThat(URIBuilder.withLocalhost().port(8443).freeze()).isNotEqualTo(URIBuilder.withLocalhost().freeze());
+        assertThat(frozen).isNotEqualTo(null);
+    }
+
+    @Test
+    @DisplayName("Parameters set after freezing replace frozen and earlier ones in place")
+    void paramsAreReplacedInPlace() {
+        BaseURI base = URIBuilder.withLocalhost()
+                .param("a", 1)
+                .param("b", 2)
+                .freeze();
+
+        URI actual = base.param("c", 3)
+                .param("b", 20)
+                .param("d", 4)
+                .param("c", 30)
+                .param("b", 200)
+                .build();
+
+        assertThat(actual).isEqualTo(URI.create("https://localhost/?a=1&b=200&c=30&d=4"));
+    }
+
+    @Test
+    @DisplayName("Long derivation chains produce the full path and query")
+    void longChains() {
+        BaseURI uri = URIBuilder.withLocalhost().pathSegment("root").freeze();
+        StringBuilder expectedPath = new StringBuilder("/root");
+        StringBuilder expectedQuery = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            uri = uri.pathSegment(i).param("p" + i, i);
+            expectedPath.append('/').append(i);
+            expectedQuery.append(i == 0 ? "" : "&").append("p").append(i).append('=').append(i);
+        }
+
+        assertThat(uri.build()).isEqualTo(URI.create("https://localhost" + expectedPath + "?" + expectedQuery));
+    }
+}
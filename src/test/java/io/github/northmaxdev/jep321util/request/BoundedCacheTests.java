@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTests {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 15, 16, 100, 257, 10_000})
+    @DisplayName("Size never exceeds the maximum")
+    void sizeIsBounded(int maximumSize) {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(maximumSize);
+
+        for (int i = 0; i < maximumSize * 3; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(maximumSize);
+        assertThat(cache.stats().evictionCount()).isEqualTo(maximumSize * 3L - cache.size());
+    }
+
+    @Test
+    @DisplayName("Least recently used entry is evicted first")
+    void leastRecentlyUsedIsEvicted() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+    }
+
+    @Test
+    @DisplayName("Concurrent access keeps the counters consistent")
+    void concurrentAccess() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(1000);
+
+        IntStream.range(0, 100_000).parallel().forEach(i -> {
+            int key = i % 2000;
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        });
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.hitCount() + stats.missCount()).isEqualTo(100_000);
+        assertThat(cache.size()).isLessThanOrEqualTo(1000);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class BulkDispatcherTests {
+
+    private static final BaseURI ITEMS = URIBuilder.withValidHost("example.com")
+            .pathSegment("items")
+            .freeze();
+
+    private static final List<Integer> IDS = IntStream.range(0, 200).boxed().toList();
+
+    private static HttpRequest requestOf(int id) {
+        return HttpRequest.newBuilder(ITEMS.pathSegment(id).build()).build();
+    }
+
+    private static int idOf(HttpRequest request) {
+        String path = request.uri().getPath();
+        return Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    private static void sleepRandomly() throws InterruptedException {
+        Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+    }
+
+    @Nested
+    @DisplayName("Method: dispatch(Iterable, Function, BodyHandler)")
+    class Dispatch {
+
+        @Test
+        @DisplayName("Every input yields exactly one result in completion order")
+        void everyInputYieldsOneResult() {
+            HttpClient client = new FakeHttpClient(request -> {
+                int id = idOf(request);
+                if (id == 0) {
+                    Thread.sleep(200);
+                }
+                return 200 + id;
+            });
+            BulkDispatcher dispatcher = BulkDispatcher.builder(client).maxConcurrency(16).build();
+
+            List<BulkResult<Integer, Void>> results;
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(IDS, BulkDispatcherTests::requestOf,
+                    BodyHandlers.discarding())) {
+                results = stream.toList();
+            }
+
+            assertThat(results).extracting(BulkResult::input).containsExactlyInAnyOrderElementsOf(IDS);
+            assertThat(results).allSatisfy(r -> {
+                assertThat(r.index()).isEqualTo(r.input().longValue());
+                assertThat(r.response()).map(HttpResponse::statusCode).hasValue(200 + r.input());
+            });
+            assertThat(results.get(0).input()).isNotZero(); /* The slow request does not hold back the others */
+        }
+
+        @Test
+        @DisplayName("Input order delivers results in the order of the inputs")
+        void inputOrderIsPreserved() {
+            HttpClient client = new FakeHttpClient(request -> {
+                sleepRandomly();
+                return 200;
+            });
+            BulkDispatcher dispatcher = BulkDispatcher.builder(client)
+                    .maxConcurrency(8)
+                    .order(BulkDispatcher.Order.INPUT)
+                    .build();
+
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(IDS, BulkDispatcherTests::requestOf,
+                    BodyHandlers.discarding())) {
+                assertThat(stream.map(BulkResult::input).toList()).isEqualTo(IDS);
+            }
+        }
+
+        @Test
+        @DisplayName("Number of requests in flight never exceeds the limit")
+        void concurrencyIsCapped() {
+            AtomicInteger current = new AtomicInteger();
+            AtomicInteger peak = new AtomicInteger();
+            HttpClient client = new FakeHttpClient(request -> {
+                peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+                try {
+                    sleepRandomly();
+                    return 200;
+                } finally {
+                    current.decrementAndGet();
+                }
+            });
+            BulkDispatcher dispatcher = BulkDispatcher.builder(client).maxConcurrency(5).build();
+
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(IDS, BulkDispatcherTests::requestOf,
+                    BodyHandlers.discarding())) {
+                assertThat(stream.count()).isEqualTo(IDS.size());
+            }
+
+            assertThat(peak.get()).isBetween(1, 5);
+            assertThat(dispatcher.inFlight()).isZero();
+        }
+
+        @Test
+        @DisplayName("Inputs are taken lazily, no more than the limit ahead of the consumer")
+        void inputIsConsumedLazily() throws InterruptedException {
+            AtomicInteger taken = new AtomicInteger();
+            Iterable<Integer> inputs = () -> new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return true; /* Endless */
+                }
+
+                @Override
+                public Integer next() {
+                    return taken.incrementAndGet();
+                }
+            };
+            BulkDispatcher dispatcher = BulkDispatcher.builder(new FakeHttpClient(request -> 200))
+                    .maxConcurrency(4)
+                    .build();
+
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(inputs, BulkDispatcherTests::requestOf,
+                    BodyHandlers.discarding())) {
+                Iterator<BulkResult<Integer, Void>> results = stream.iterator();
+                results.next();
+                results.next();
+                Thread.sleep(100);
+
+                assertThat(taken.get()).isEqualTo(6);
+            }
+        }
+
+        @Test
+        @DisplayName("Failures are delivered as results by default")
+        void failuresAreDelivered() {
+            HttpClient client = new FakeHttpClient(request -> {
+                if (idOf(request) == 7) {
+                    throw new IOException("connection reset");
+                }
+                return 200;
+            });
+            BulkDispatcher dispatcher = BulkDispatcher.builder(client).build();
+
+            List<BulkResult<Integer, Void>> failures;
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(IDS, id -> {
+                if (id == 3) {
+                    throw new IllegalArgumentException("bad id");
+                }
+                return requestOf(id);
+            }, BodyHandlers.discarding())) {
+                failures = stream.filter(r -> !r.isSuccess()).toList();
+            }
+
+            assertThat(failures).extracting(BulkResult::input).containsExactlyInAnyOrder(3, 7);
+            assertThat(failures).extracting(r -> r.failure().orElseThrow().getMessage())
+                    .containsExactlyInAnyOrder("bad id", "connection reset");
+        }
+
+        @Test
+        @DisplayName("Errors are delivered as results instead of stalling the stream")
+        void errorsAreDelivered() {
+            HttpClient client = new FakeHttpClient(request -> {
+                if (idOf(request) == 5) {
+                    throw new StackOverflowError();
+                }
+                return 200;
+            });
+            BulkDispatcher dispatcher = BulkDispatcher.builder(client).maxConcurrency(4).build();
+
+            List<BulkResult<Integer, Void>> results;
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(IDS, id -> {
+                if (id == 9) {
+                    throw new AssertionError("bad id");
+                }
+                return requestOf(id);
+            }, BodyHandlers.discarding())) {
+                results = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> stream.toList());
+            }
+
+            assertThat(results).hasSize(IDS.size());
+            assertThat(results).filteredOn(r -> !r.isSuccess())
+                    .extracting(r -> r.failure().orElseThrow().getClass().getSimpleName())
+                    .containsExactlyInAnyOrder("StackOverflowError", "AssertionError");
+            assertThat(dispatcher.inFlight()).isZero();
+        }
+
+        @Test
+        @DisplayName("Fail-fast cancels the requests in flight and throws from the stream")
+        void failFastCancels() throws InterruptedException {
+            CountDownLatch started = new CountDownLatch(3);
+            CountDownLatch interrupted = new CountDownLatch(3);
+            HttpClient client = new FakeHttpClient(request -> {
+                if (idOf(request) == 3) {
+                    started.await();
+                    throw new IOException("connection reset");
+                }
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return 200;
+            });
+            BulkDispatcher dispatcher = BulkDispatcher.builder(client).maxConcurrency(4).failFast(true).build();
+
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(IDS, BulkDispatcherTests::requestOf,
+                    BodyHandlers.discarding())) {
+                assertThatExceptionOfType(CompletionException.class)
+                        .isThrownBy(stream::toList)
+                        .withCauseInstanceOf(IOException.class);
+            }
+
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Closing the stream early cancels the remaining requests")
+        void closingCancels() throws InterruptedException {
+            CountDownLatch started = new CountDownLatch(3);
+            CountDownLatch interrupted = new CountDownLatch(3);
+            HttpClient client = new FakeHttpClient(request -> {
+                if (idOf(request) == 0) {
+                    return 200;
+                }
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return 200;
+            });
+            BulkDispatcher dispatcher = BulkDispatcher.builder(client).maxConcurrency(4).build();
+
+            Optional<BulkResult<Integer, Void>> first;
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(IDS, BulkDispatcherTests::requestOf,
+                    BodyHandlers.discarding())) {
+                first = stream.findFirst();
+                assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+
+            assertThat(first).map(BulkResult::input).hasValue(0);
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Empty input yields an empty stream")
+        void emptyInput() {
+            BulkDispatcher dispatcher = BulkDispatcher.builder(new FakeHttpClient(request -> 200)).build();
+
+            try (Stream<BulkResult<Integer, Void>> stream = dispatcher.dispatch(List.of(),
+                    BulkDispatcherTests::requestOf, BodyHandlers.discarding())) {
+                assertThat(stream).isEmpty();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: Builder.maxConcurrency(int)")
+    class MaxConcurrency {
+
+        @Test
+        @DisplayName("Non-positive limit throws IllegalArgumentException")
+        void nonPositiveLimitThrows() {
+            BulkDispatcher.Builder builder = BulkDispatcher.builder(new FakeHttpClient(request -> 200));
+
+            assertThatIllegalArgumentException().isThrownBy(() -> builder.maxConcurrency(0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Constructor: BulkResult(long, Object, Optional, Optional)")
+    class ResultConstructor {
+
+        @Test
+        @DisplayName("Neither or both of response and failure throw IllegalArgumentException")
+        void exactlyOneOutcomeIsRequired() {
+            assertThatIllegalArgumentException()
+                    .isThrownBy(() -> new BulkResult<>(0, "x", Optional.empty(), Optional.empty()));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+class FormBodyPublisherTests {
+
+    private static RecordingSubscriber readAll(FormBodyPublisher publisher) {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertThat(subscriber.completed).isTrue();
+        return subscriber;
+    }
+
+    @Nested
+    @DisplayName("Method: subscribe(Flow.Subscriber)")
+    class Subscribe {
+
+        @Test
+        @DisplayName("Fields are encoded like URIBuilder query parameters")
+        void fieldsAreEncodedLikeQueryParameters() {
+            FormBodyPublisher publisher = FormBodyPublisher.builder()
+                    .param("q", "a b&c=d")
+                    .param("lang", "русский")
+                    .param("page", 2)
+                    .param("exact", true)
+                    .param("empty", "")
+                    .build();
+            String query = URIBuilder.withLocalhost()
+                    .param("q", "a b&c=d")
+                    .param("lang", "русский")
+                    .param("page", 2)
+                    .param("exact", true)
+                    .build()
+                    .getRawQuery();
+
+            String body = readAll(publisher).body();
+
+            assertThat(body).isEqualTo("q=a%20b%26c%3Dd&lang=%D1%80%D1%83%D1%81%D1%81%D0%BA%D0%B8%D0%B9&page=2"
+                    + "&exact=true&empty=");
+            assertThat(body).isEqualTo(query + "&empty="); /* URIBuilder does not allow empty values */
+            assertThat(publisher.contentLength()).isEqualTo(body.length());
+        }
+
+        @Test
+        @DisplayName("Large body is split into several buffers without splitting characters")
+        void largeBodyIsChunked() {
+            FormBodyPublisher.Builder builder = FormBodyPublisher.builder();
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 5_000; i++) {
+                builder.param("field" + i, "значение 😀 " + i);
+                if (i > 0) {
+                    expected.append('&');
+                }
+                expected.append("field").append(i).append('=')
+                        .append(PercentEncoding.encode("значение 😀 " + i));
+            }
+            FormBodyPublisher publisher = builder.build();
+
+            RecordingSubscriber subscriber = readAll(publisher);
+
+            assertThat(subscriber.buffers).hasSizeGreaterThan(1);
+            assertThat(subscriber.body()).isEqualTo(expected.toString());
+            assertThat(publisher.contentLength()).isEqualTo(expected.length());
+            assertThat(publisher.size()).isEqualTo(5_000);
+        }
+
+        @Test
+        @DisplayName("Duplicate names are kept in order")
+        void duplicateNamesAreKept() {
+            FormBodyPublisher publisher = FormBodyPublisher.builder()
+                    .param("tag", "x")
+                    .param("tag", "y")
+                    .build();
+
+            assertThat(readAll(publisher).body()).isEqualTo("tag=x&tag=y");
+        }
+
+        @Test
+        @DisplayName("Empty form completes immediately")
+        void emptyFormCompletes() {
+            FormBodyPublisher publisher = FormBodyPublisher.builder().build();
+
+            assertThat(readAll(publisher).buffers).isEmpty();
+            assertThat(publisher.contentLength()).isZero();
+        }
+
+        @Test
+        @DisplayName("Buffers are produced according to demand and the publisher is reusable")
+        void demandIsHonored() {
+            FormBodyPublisher.Builder builder = FormBodyPublisher.builder();
+            for (int i = 0; i < 10_000; i++) {
+                builder.param("k", "v".repeat(10));
+            }
+            FormBodyPublisher publisher = builder.build();
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+
+            publisher.subscribe(subscriber);
+            assertThat(subscriber.buffers).isEmpty();
+            subscriber.subscription.request(1);
+            assertThat(subscriber.buffers).hasSize(1);
+            subscriber.subscription.cancel();
+            subscriber.subscription.request(1);
+            assertThat(subscriber.buffers).hasSize(1);
+
+            assertThat(readAll(publisher).body()).hasSize((int) publisher.contentLength());
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: Builder.param(String, String)")
+    class Param {
+
+        @Test
+        @DisplayName("Unpaired surrogate throws IllegalArgumentException")
+        void unpairedSurrogateThrows() {
+            FormBodyPublisher.Builder builder = FormBodyPublisher.builder();
+
+            assertThatIllegalArgumentException().isThrownBy(() -> builder.param("a", "\uD83D"));
+            assertThat(builder.build().size()).isZero();
+        }
+
+        @Test
+        @DisplayName("Empty name throws IllegalArgumentException")
+        void emptyNameThrows() {
+            FormBodyPublisher.Builder builder = FormBodyPublisher.builder();
+
+            assertThatIllegalArgumentException().isThrownBy(() -> builder.param("", "v"));
+        }
+
+        @Test
+        @DisplayName("Null name or value throws NullPointerException")
+        void nullThrows() {
+            FormBodyPublisher.Builder builder = FormBodyPublisher.builder();
+
+            assertThatNullPointerException().isThrownBy(() -> builder.param(null, "v"));
+            assertThatNullPointerException().isThrownBy(() -> builder.param("n", null));
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private boolean completed;
+
+        String body() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (ByteBuffer buffer : buffers) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.duplicate().get(bytes);
+                out.writeBytes(bytes);
+            }
+            return out.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            buffers.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -28,12 +28,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIndexOutOfBoundsException;
 
 class HTTPSchemeTests {
 
@@ -57,6 +61,18 @@ class HTTPSchemeTests {
         }
     }
 
+    @Nested
+    @DisplayName("Method: defaultPort()")
+    class DefaultPort {
+
+        @Test
+        @DisplayName("SECURE defaults to 443 and UNSECURE to 80")
+        void defaultPorts() {
+            assertThat(HTTPScheme.SECURE.defaultPort()).isEqualTo(443);
+            assertThat(HTTPScheme.UNSECURE.defaultPort()).isEqualTo(80);
+        }
+    }
+
     @Nested
     @DisplayName("Method: valueOf(boolean)")
     class ValueOfBoolean {
@@ -107,5 +123,93 @@ class HTTPSchemeTests {
 
             assertThat(actual).contains(HTTPScheme.UNSECURE);
         }
+
+        @Test
+        @DisplayName("Repeated lookups return the same Optional")
+        void repeatedLookupsAreShared() {
+            assertThat(HTTPScheme.instanceOf("https")).isSameAs(HTTPScheme.instanceOf("https"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Methods: parse(...)")
+    class Parse {
+
+        @ParameterizedTest
+        @CsvSource({"https, SECURE", "HTTPS, SECURE", "hTtPs, SECURE", "http, UNSECURE", "HTTP, UNSECURE"})
+        @DisplayName("Recognized value is parsed case-insensitively from every source")
+        void recognizedValueIsParsed(String value, HTTPScheme expected) {
+            String padded = "<<" + value + ">>";
+            byte[] bytes = padded.getBytes(StandardCharsets.US_ASCII);
+            int length = value.length();
+
+            assertThat(HTTPScheme.parse(value)).contains(expected);
+            assertThat(HTTPScheme.parse(padded, 2, 2 + length)).contains(expected);
+            assertThat(HTTPScheme.parse(padded.toCharArray(), 2, length)).contains(expected);
+            assertThat(HTTPScheme.parse(bytes, 2, length)).contains(expected);
+            assertThat(HTTPScheme.parse(ByteBuffer.wrap(bytes), 2, length)).contains(expected);
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", "htt", "httpss", "ftp", "https:", "hxxp", "(ttp", "HTTP\u0000"})
+        @DisplayName("Unrecognized value returns an empty Optional from every source")
+        void unrecognizedValueReturnsEmpty(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+
+            assertThat(HTTPScheme.parse(value)).isEmpty();
+            assertThat(HTTPScheme.parse(value.toCharArray(), 0, value.length())).isEmpty();
+            assertThat(HTTPScheme.parse(bytes, 0, bytes.length)).isEmpty();
+            assertThat(HTTPScheme.parse(ByteBuffer.wrap(bytes), 0, bytes.length)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Region out of bounds throws IndexOutOfBoundsException")
+        void regionOutOfBoundsThrows() {
+            assertThatIndexOutOfBoundsException().isThrownBy(() -> HTTPScheme.parse("https", 1, 6));
+            assertThatIndexOutOfBoundsException().isThrownBy(() -> HTTPScheme.parse(new byte[4], 1, 4));
+            assertThatIndexOutOfBoundsException().isThrownBy(() -> HTTPScheme.parse(ByteBuffer.allocate(4), -1, 2));
+        }
+    }
+
+    @Nested
+    @DisplayName("Methods: parsePrefix(...)")
+    class ParsePrefix {
+
+        @ParameterizedTest
+        @CsvSource({
+                "https://example.com, SECURE, 5",
+                "HTTP://example.com, UNSECURE, 4",
+                "Https:, SECURE, 5",
+                "http:https, UNSECURE, 4"
+        })
+        @DisplayName("Scheme followed by its delimiter is parsed and its length is where the delimiter is")
+        void schemeIsParsed(String s, HTTPScheme expected, int delimiterIndex) {
+            byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+
+            Optional<HTTPScheme> actual = HTTPScheme.parsePrefix(s, 0, s.length());
+
+            assertThat(actual).contains(expected);
+            assertThat(actual.orElseThrow().length()).isEqualTo(delimiterIndex);
+            assertThat(s.charAt(delimiterIndex)).isEqualTo(':');
+            assertThat(HTTPScheme.parsePrefix(s.toCharArray(), 0, s.length())).contains(expected);
+            assertThat(HTTPScheme.parsePrefix(bytes, 0, bytes.length)).contains(expected);
+            assertThat(HTTPScheme.parsePrefix(ByteBuffer.wrap(bytes), 0, bytes.length)).contains(expected);
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"https", "http", "httpx://example.com", "httpss://example.com", "ftp://example.com"})
+        @DisplayName("Scheme without its delimiter returns an empty Optional")
+        void schemeWithoutDelimiterReturnsEmpty(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+
+            assertThat(HTTPScheme.parsePrefix(s, 0, s.length())).isEmpty();
+            assertThat(HTTPScheme.parsePrefix(bytes, 0, bytes.length)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Delimiter beyond the region is not seen")
+        void delimiterBeyondRegionIsNotSeen() {
+            assertThat(HTTPScheme.parsePrefix("https://", 0, 5)).isEmpty();
+        }
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class HostTests {
+
+    @Nested
+    @DisplayName("Method: parse(String)")
+    class Parse {
+
+        @ParameterizedTest
+        @CsvSource({
+                "localhost, localhost",
+                "Example.COM, example.com",
+                "example.com., example.com",
+                "my-service.internal, my-service.internal",
+                "xn--e1afmkfd.xn--p1ai, xn--e1afmkfd.xn--p1ai",
+                "192.168.0.1, 192.168.0.1",
+                "[::1], [::1]",
+                "'[0:0::1]', [::1]"
+        })
+        @DisplayName("Valid host is normalized")
+        void validHostIsNormalized(String s, String expected) {
+            assertThat(Host.parse(s)).hasToString(expected);
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", "exa mple.com", "-bad.com", "a..b", "999.1.1.1", "::1", "пример.рф", "a/b"})
+        @DisplayName("Invalid host throws IllegalArgumentException")
+        void invalidHostThrows(String s) {
+            assertThatIllegalArgumentException().isThrownBy(() -> Host.parse(s));
+        }
+
+        @Test
+        @DisplayName("Repeated string is served from the cache")
+        void repeatedStringIsCached() {
+            Host first = Host.parse("cached.example.com");
+            long hitsBefore = Host.cacheStats().hitCount();
+
+            Host second = Host.parse("cached.example.com");
+
+            assertThat(second).isSameAs(first);
+            assertThat(Host.cacheStats().hitCount()).isGreaterThan(hitsBefore);
+        }
+    }
+
+    @Test
+    @DisplayName("Builder with a parsed host produces the correct URI")
+    void builderWithParsedHost() {
+        URI actual = URIBuilder.withHost(Host.parse("Example.COM"))
+                .pathSegment("foo")
+                .build();
+
+        assertThat(actual).isEqualTo(URI.create("https://example.com/foo"));
+    }
+
+    @Test
+    void equals() {
+        EqualsVerifier.forClass(Host.class)
+                .suppress(Warning.NULL_FIELDS)
+                .verify();
+    }
+}
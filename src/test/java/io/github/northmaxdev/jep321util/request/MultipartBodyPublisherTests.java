@@ -0,0 +1,293 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+class MultipartBodyPublisherTests {
+
+    private static final String TOO_LONG = "0123456789012345678901234567890123456789"
+            + "0123456789012345678901234567890"; /* 71 characters */
+
+    @TempDir
+    Path dir;
+
+    private static String read(MultipartBodyPublisher publisher) {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertThat(subscriber.error).isNull();
+        assertThat(subscriber.completed).isTrue();
+        return subscriber.body();
+    }
+
+    @Nested
+    @DisplayName("Method: subscribe(Flow.Subscriber)")
+    class Subscribe {
+
+        @Test
+        @DisplayName("Parts are framed by the boundary and the content length is exact")
+        void partsAreFramed() throws IOException {
+            Path file = Files.writeString(dir.resolve("report.csv"), "a,b\n1,2\n");
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder()
+                    .boundary("XyZ")
+                    .textPart("title", "Q3 – report")
+                    .bytesPart("thumb", "t.bin", "image/png", new byte[]{'P', 'N', 'G'})
+                    .filePart("data", "report.csv", "text/csv", file)
+                    .build();
+
+            String expected = """
+                    --XyZ\r
+                    Content-Disposition: form-data; name="title"\r
+                    \r
+                    Q3 – report\r
+                    --XyZ\r
+                    Content-Disposition: form-data; name="thumb"; filename="t.bin"\r
+                    Content-Type: image/png\r
+                    \r
+                    PNG\r
+                    --XyZ\r
+                    Content-Disposition: form-data; name="data"; filename="report.csv"\r
+                    Content-Type: text/csv\r
+                    \r
+                    a,b
+                    1,2
+                    \r
+                    --XyZ--\r
+                    """;
+            assertThat(read(publisher)).isEqualTo(expected);
+            assertThat(publisher.contentLength()).isEqualTo(expected.getBytes(StandardCharsets.UTF_8).length);
+        }
+
+        @Test
+        @DisplayName("Large file is streamed in several chunks")
+        void largeFileIsChunked() throws IOException {
+            byte[] content = new byte[100_000];
+            Arrays.fill(content, (byte) 'x');
+            Path file = Files.write(dir.resolve("big.bin"), content);
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder().filePart("f", file).build();
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+
+            publisher.subscribe(subscriber);
+            subscriber.subscription.request(Long.MAX_VALUE);
+
+            assertThat(subscriber.buffers).hasSizeGreaterThan(3);
+            assertThat(subscriber.body()).contains("filename=\"big.bin\"", "application/octet-stream");
+            assertThat((long) subscriber.body().length()).isEqualTo(publisher.contentLength());
+        }
+
+        @Test
+        @DisplayName("Stream part makes the content length unknown")
+        void streamPartHasUnknownLength() {
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder()
+                    .boundary("b")
+                    .streamPart("s", "s.txt", "text/plain",
+                            () -> new ByteArrayInputStream("streamed".getBytes(StandardCharsets.UTF_8)))
+                    .build();
+
+            assertThat(publisher.contentLength()).isEqualTo(-1);
+            assertThat(read(publisher)).contains("\r\n\r\nstreamed\r\n--b--\r\n");
+        }
+
+        @Test
+        @DisplayName("Publisher can be subscribed to more than once")
+        void publisherIsReusable() throws IOException {
+            Path file = Files.writeString(dir.resolve("f.txt"), "content");
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder()
+                    .textPart("a", "1")
+                    .filePart("f", file)
+                    .build();
+
+            assertThat(read(publisher)).isEqualTo(read(publisher));
+        }
+
+        @Test
+        @DisplayName("Quotes and line breaks in names are percent-encoded")
+        void namesAreEscaped() {
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder()
+                    .bytesPart("a\"b", "x\r\ny", "text/plain", new byte[0])
+                    .build();
+
+            assertThat(read(publisher)).contains("name=\"a%22b\"; filename=\"x%0D%0Ay\"");
+        }
+
+        @Test
+        @DisplayName("Duplicate part names are kept")
+        void duplicateNamesAreKept() {
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder()
+                    .textPart("tag", "a")
+                    .textPart("tag", "b")
+                    .build();
+
+            assertThat(read(publisher).split("name=\"tag\"", -1)).hasSize(3);
+        }
+
+        @Test
+        @DisplayName("File that changes size after build fails the subscription")
+        void changedFileFails() throws IOException {
+            Path file = Files.writeString(dir.resolve("f.txt"), "short");
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder().filePart("f", file).build();
+            Files.writeString(file, "much longer now");
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+
+            publisher.subscribe(subscriber);
+            subscriber.subscription.request(Long.MAX_VALUE);
+
+            assertThat(subscriber.error).isInstanceOf(IOException.class);
+            assertThat(subscriber.completed).isFalse();
+        }
+
+        @Test
+        @DisplayName("Buffers are produced according to demand")
+        void demandIsHonored() throws IOException {
+            Path file = Files.write(dir.resolve("big.bin"), new byte[50_000]);
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder().filePart("f", file).build();
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+
+            publisher.subscribe(subscriber);
+            assertThat(subscriber.buffers).isEmpty();
+            subscriber.subscription.request(2);
+            assertThat(subscriber.buffers).hasSize(2);
+
+            subscriber.subscription.cancel();
+            subscriber.subscription.request(10);
+            assertThat(subscriber.buffers).hasSize(2);
+            assertThat(subscriber.completed).isFalse();
+        }
+
+        @Test
+        @DisplayName("Non-positive request signals IllegalArgumentException")
+        void nonPositiveRequestFails() {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            MultipartBodyPublisher.builder().textPart("a", "b").build().subscribe(subscriber);
+
+            subscriber.subscription.request(0);
+
+            assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: contentType()")
+    class ContentType {
+
+        @Test
+        @DisplayName("Content type carries the boundary")
+        void contentTypeCarriesBoundary() {
+            MultipartBodyPublisher publisher = MultipartBodyPublisher.builder().build();
+
+            assertThat(publisher.contentType()).isEqualTo("multipart/form-data; boundary=" + publisher.boundary());
+            assertThat(read(publisher)).isEqualTo("--" + publisher.boundary() + "--\r\n");
+        }
+
+        @Test
+        @DisplayName("Random boundaries differ between builders")
+        void randomBoundariesDiffer() {
+            assertThat(MultipartBodyPublisher.builder().build().boundary())
+                    .isNotEqualTo(MultipartBodyPublisher.builder().build().boundary());
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: Builder.boundary(String)")
+    class Boundary {
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", "ends with space ", "semi;colon", "quote\"", TOO_LONG})
+        @DisplayName("Illegal boundary throws IllegalArgumentException")
+        void illegalBoundaryThrows(String b) {
+            MultipartBodyPublisher.Builder builder = MultipartBodyPublisher.builder();
+
+            assertThatIllegalArgumentException().isThrownBy(() -> builder.boundary(b));
+        }
+
+        @Test
+        @DisplayName("Null boundary throws NullPointerException")
+        void nullBoundaryThrows() {
+            MultipartBodyPublisher.Builder builder = MultipartBodyPublisher.builder();
+
+            assertThatNullPointerException().isThrownBy(() -> builder.boundary(null));
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        String body() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (ByteBuffer buffer : buffers) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.duplicate().get(bytes);
+                out.writeBytes(bytes);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            buffers.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class OriginBulkheadTests {
+
+    private static final Origin SLOW = new Origin(HTTPScheme.SECURE, "slow.example.com", 443);
+    private static final Origin HEALTHY = new Origin(HTTPScheme.SECURE, "healthy.example.com", 443);
+
+    private static void awaitQueued(OriginBulkhead bulkhead, Origin origin, int n) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.queued(origin) < n && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(bulkhead.queued(origin)).isEqualTo(n);
+    }
+
+    @Nested
+    @DisplayName("Method: of(int, int)")
+    class Of {
+
+        @Test
+        @DisplayName("Out-of-range limits throw IllegalArgumentException")
+        void outOfRangeLimitsThrow() {
+            assertThatIllegalArgumentException().isThrownBy(() -> OriginBulkhead.of(0, 10));
+            assertThatIllegalArgumentException().isThrownBy(() -> OriginBulkhead.of(10, -1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: tryAcquire(Origin)")
+    class TryAcquire {
+
+        @Test
+        @DisplayName("Permits are limited per origin and given back on close")
+        void permitsAreLimitedPerOrigin() {
+            OriginBulkhead bulkhead = OriginBulkhead.of(2, 0);
+
+            Optional<OriginBulkhead.Permit> first = bulkhead.tryAcquire(SLOW);
+            Optional<OriginBulkhead.Permit> second = bulkhead.tryAcquire(SLOW);
+
+            assertThat(first).isPresent();
+            assertThat(second).isPresent();
+            assertThat(bulkhead.tryAcquire(SLOW)).isEmpty();
+            assertThat(bulkhead.tryAcquire(HEALTHY)).isPresent();
+            assertThat(bulkhead.inFlight(SLOW)).isEqualTo(2);
+            assertThat(bulkhead.rejected(SLOW)).isEqualTo(1);
+
+            first.orElseThrow().close();
+            first.orElseThrow().close(); /* No effect */
+
+            assertThat(bulkhead.inFlight(SLOW)).isEqualTo(1);
+            assertThat(bulkhead.tryAcquire(SLOW)).isPresent();
+            assertThat(bulkhead.tryAcquire(SLOW)).isEmpty();
+            assertThat(bulkhead.origins()).containsExactlyInAnyOrder(SLOW, HEALTHY);
+        }
+
+        @Test
+        @DisplayName("Unknown origin has zeroed gauges")
+        void unknownOriginHasZeroGauges() {
+            OriginBulkhead bulkhead = OriginBulkhead.of(1, 1);
+
+            assertThat(bulkhead.inFlight(SLOW)).isZero();
+            assertThat(bulkhead.queued(SLOW)).isZero();
+            assertThat(bulkhead.rejected(SLOW)).isZero();
+            assertThat(bulkhead.origins()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: acquire(Origin)")
+    class Acquire {
+
+        @Test
+        @DisplayName("Calls wait while the queue has room and are rejected once it is full")
+        void queueIsBounded() throws Exception {
+            OriginBulkhead bulkhead = OriginBulkhead.of(1, 2);
+            OriginBulkhead.Permit held = bulkhead.acquire(SLOW);
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<Origin>> waiters = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    waiters.add(executor.submit(() -> {
+                        try (OriginBulkhead.Permit permit = bulkhead.acquire(SLOW)) {
+                            return permit.origin();
+                        }
+                    }));
+                }
+                awaitQueued(bulkhead, SLOW, 2);
+
+                assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(() -> bulkhead.acquire(SLOW));
+                assertThat(bulkhead.rejected(SLOW)).isEqualTo(1);
+                try (OriginBulkhead.Permit other = bulkhead.acquire(HEALTHY)) {
+                    assertThat(bulkhead.inFlight(HEALTHY)).isEqualTo(1);
+                }
+
+                held.close();
+                for (Future<Origin> waiter : waiters) {
+                    assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(SLOW);
+                }
+            }
+
+            assertThat(bulkhead.inFlight(SLOW)).isZero();
+            assertThat(bulkhead.queued(SLOW)).isZero();
+        }
+
+        @Test
+        @DisplayName("Concurrent calls never exceed the limit")
+        void limitHoldsUnderContention() throws Exception {
+            OriginBulkhead bulkhead = OriginBulkhead.of(3, 1_000);
+            AtomicInteger current = new AtomicInteger();
+            AtomicInteger peak = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(200);
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 200; i++) {
+                    executor.submit(() -> {
+                        try (OriginBulkhead.Permit permit = bulkhead.acquire(SLOW)) {
+                            peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+                            Thread.sleep(1);
+                            current.decrementAndGet();
+                        }
+                        done.countDown();
+                        return null;
+                    });
+                }
+                assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+            }
+
+            assertThat(peak.get()).isBetween(1, 3);
+            assertThat(bulkhead.rejected(SLOW)).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: tryAcquire(Origin, Duration)")
+    class TryAcquireWithTimeout {
+
+        @Test
+        @DisplayName("Timeout elapsing returns an empty Optional")
+        void timeoutElapses() throws InterruptedException {
+            OriginBulkhead bulkhead = OriginBulkhead.of(1, 5);
+            OriginBulkhead.Permit held = bulkhead.acquire(SLOW);
+
+            assertThat(bulkhead.tryAcquire(SLOW, Duration.ofMillis(20))).isEmpty();
+            assertThat(bulkhead.queued(SLOW)).isZero();
+            assertThat(bulkhead.rejected(SLOW)).isEqualTo(1);
+
+            held.close();
+            assertThat(bulkhead.tryAcquire(SLOW, Duration.ofMillis(20))).isPresent();
+        }
+
+        @Test
+        @DisplayName("Zero queue length rejects without waiting")
+        void zeroQueueRejectsImmediately() throws InterruptedException {
+            OriginBulkhead bulkhead = OriginBulkhead.of(1, 0);
+            bulkhead.acquire(SLOW);
+
+            long start = System.nanoTime();
+            assertThat(bulkhead.tryAcquire(SLOW, Duration.ofSeconds(10))).isEmpty();
+            assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class OriginTests {
+
+    @Nested
+    @DisplayName("Method: of(URI)")
+    class OfURI {
+
+        @ParameterizedTest
+        @CsvSource({
+                "https://example.com/a?b=c, https://example.com",
+                "https://Example.COM:443, https://example.com",
+                "HTTP://example.com:80/, http://example.com",
+                "http://localhost:8080/x, http://localhost:8080",
+                "https://[::1]:8443, https://[::1]:8443"
+        })
+        @DisplayName("Default port is made explicit and the host is lowercased")
+        void originIsNormalized(String uri, String expected) {
+            Origin origin = Origin.of(URI.create(uri));
+
+            assertThat(origin).hasToString(expected);
+            assertThat(origin).isEqualTo(Origin.of(URI.create(expected)));
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"ftp://example.com", "mailto:someone@example.com", "/relative/path", "https:///x"})
+        @DisplayName("Non-HTTP or host-less URI throws IllegalArgumentException")
+        void invalidUriThrows(String uri) {
+            assertThatIllegalArgumentException().isThrownBy(() -> Origin.of(URI.create(uri)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: URIBuilder.origin() and BaseURI.origin()")
+    class FromBuilder {
+
+        @Test
+        @DisplayName("Origin matches the one of the built URI")
+        void originMatchesBuiltUri() {
+            URIBuilder builder = URIBuilder.withValidHost("api.example.com")
+                    .pathSegment("v1")
+                    .param("q", "x");
+            URIBuilder withPort = URIBuilder.withLocalhost().http().port(8080);
+
+            assertThat(builder.origin()).isEqualTo(new Origin(HTTPScheme.SECURE, "api.example.com", 443));
+            assertThat(builder.origin()).isEqualTo(Origin.of(builder.build()));
+            assertThat(builder.freeze().origin()).isEqualTo(builder.origin());
+            assertThat(withPort.origin()).isEqualTo(Origin.of(withPort.build()));
+            assertThat(withPort.freeze().pathSegment("x").origin()).hasToString("http://localhost:8080");
+        }
+    }
+
+    @Nested
+    @DisplayName("Constructor: Origin(HTTPScheme, String, int)")
+    class Constructor {
+
+        @ParameterizedTest
+        @ValueSource(ints = {-1, 65536})
+        @DisplayName("Invalid port throws IllegalArgumentException")
+        void invalidPortThrows(int port) {
+            assertThatIllegalArgumentException().isThrownBy(() -> new Origin(HTTPScheme.SECURE, "example.com", port));
+        }
+
+        @Test
+        @DisplayName("Empty host throws IllegalArgumentException")
+        void emptyHostThrows() {
+            assertThatIllegalArgumentException().isThrownBy(() -> new Origin(HTTPScheme.SECURE, "", 443));
+        }
+    }
+}
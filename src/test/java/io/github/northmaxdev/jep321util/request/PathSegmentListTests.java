@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathSegmentListTests {
+
+    @Test
+    @DisplayName("Elements are kept in insertion order and behave like a List")
+    void behavesLikeList() {
+        PathSegmentList actual = new PathSegmentList();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            actual.add("segment" + i);
+            expected.add("segment" + i);
+        }
+
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).isEqualTo(expected.get(i));
+        }
+        assertThat(actual.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(actual).hasToString(expected.toString());
+    }
+
+    @Test
+    @DisplayName("Equality depends on order")
+    void equalityDependsOnOrder() {
+        PathSegmentList a = new PathSegmentList();
+        a.add("foo");
+        a.add("bar");
+        PathSegmentList b = new PathSegmentList();
+        b.add("bar");
+        b.add("foo");
+        PathSegmentList c = new PathSegmentList();
+        c.add("foo");
+        c.add("bar");
+
+        assertThat(a).isNotEqualTo(b);
+        assertThat(a).isEqualTo(c);
+        assertThat(a).hasSameHashCodeAs(c);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import com.google.common.net.PercentEscaper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class PercentEncodingTests {
+
+    /* The escaper URIBuilder used to rely on, kept around as a reference implementation */
+    private static final PercentEscaper REFERENCE = new PercentEscaper("", false);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "foo", "12345", "a-b_c.d*e~f", "a b+c/d?e&f=g", "поиск", "Джава", "😀", "%41"})
+    @DisplayName("Encoded forms match the reference implementation")
+    void matchesReference(String s) {
+        String expected = REFERENCE.escape(s);
+
+        assertThat(PercentEncoding.encode(s)).isEqualTo(expected);
+        assertThat(PercentEncoding.encodedLength(s)).isEqualTo(expected.length());
+
+        StringBuilder sb = new StringBuilder("prefix");
+        PercentEncoding.encode(s, sb);
+        assertThat(sb).hasToString("prefix" + expected);
+
+        char[] dst = new char[expected.length() + 2];
+        int end = PercentEncoding.encode(s, dst, 1);
+        assertThat(end).isEqualTo(expected.length() + 1);
+        assertThat(new String(dst, 1, expected.length())).isEqualTo(expected);
+
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length());
+        assertThat(PercentEncoding.encode(s, 0, buffer)).isEqualTo(s.length());
+        assertThat(new String(buffer.array(), StandardCharsets.US_ASCII)).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("Encoding into buffers can be resumed without splitting characters")
+    void encodingIntoBuffersIsResumable() {
+        String s = "a 😀b";
+        StringBuilder sb = new StringBuilder();
+        int index = 0;
+        int buffers = 0;
+
+        while (index < s.length()) {
+            ByteBuffer buffer = ByteBuffer.allocate(12);
+            index = PercentEncoding.encode(s, index, buffer);
+            sb.append(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII));
+            buffers++;
+        }
+
+        assertThat(sb).hasToString(REFERENCE.escape(s));
+        assertThat(buffers).isEqualTo(3); /* "a%20", "%F0%9F%98%80", "b" */
+    }
+
+    @Test
+    @DisplayName("Nothing to encode returns the same instance")
+    void sameInstanceWhenNothingToEncode() {
+        String s = "nothingToEncode42";
+
+        assertThat(PercentEncoding.encode(s)).isSameAs(s);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\uD83D", "\uD83Dx", "\uDE00", "x\uDE00\uD83D"})
+    @DisplayName("Unpaired surrogate throws IllegalArgumentException")
+    void unpairedSurrogateThrows(String s) {
+        assertThatIllegalArgumentException().isThrownBy(() -> PercentEncoding.encode(s));
+        assertThatIllegalArgumentException().isThrownBy(() -> PercentEncoding.encodedLength(s));
+        assertThatIllegalArgumentException().isThrownBy(() -> PercentEncoding.encode(s, 0, ByteBuffer.allocate(64)));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class PortAllocatorTests {
+
+    @Nested
+    @DisplayName("Method: ofRange(int, int)")
+    class OfRange {
+
+        @ParameterizedTest
+        @CsvSource({"-5, 100", "100, 65536", "200, 100", "-1, -1"})
+        @DisplayName("Illegal range throws IllegalArgumentException")
+        void illegalRangeThrows(int min, int max) {
+            assertThatIllegalArgumentException().isThrownBy(() -> PortAllocator.ofRange(min, max));
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: allocate()")
+    class Allocate {
+
+        @Test
+        @DisplayName("Every port in the range is handed out exactly once")
+        void everyPortIsHandedOutOnce() {
+            PortAllocator allocator = PortAllocator.ofRange(1000, 1129);
+            Set<Integer> ports = ConcurrentHashMap.newKeySet();
+
+            OptionalInt port;
+            while ((port = allocator.allocate()).isPresent()) {
+                assertThat(ports.add(port.getAsInt())).isTrue();
+            }
+
+            assertThat(ports).hasSize(130).allMatch(p -> p >= 1000 && p <= 1129);
+            assertThat(allocator.reservedCount()).isEqualTo(130);
+        }
+
+        @Test
+        @DisplayName("Released port can be handed out again")
+        void releasedPortIsHandedOutAgain() {
+            PortAllocator allocator = PortAllocator.ofRange(8080, 8080);
+            int port = allocator.allocate().orElseThrow();
+            assertThat(allocator.allocate()).isEmpty();
+
+            assertThat(allocator.release(port)).isTrue();
+
+            assertThat(allocator.allocate()).hasValue(8080);
+        }
+
+        @Test
+        @DisplayName("Only members of the given set are handed out")
+        void onlySetMembersAreHandedOut() {
+            PortSet ports = PortSet.parse("1000-1200").difference(PortSet.parse("1050-1150"));
+            PortAllocator allocator = PortAllocator.of(ports, false);
+            Set<Integer> allocated = new HashSet<>();
+
+            OptionalInt port;
+            while ((port = allocator.allocate()).isPresent()) {
+                allocated.add(port.getAsInt());
+            }
+
+            assertThat(allocated).hasSize(ports.size()).allMatch(ports::contains);
+            assertThatIllegalArgumentException().isThrownBy(() -> allocator.release(1100));
+        }
+
+        @Test
+        @DisplayName("Empty set never hands out anything")
+        void emptySetHandsOutNothing() {
+            assertThat(PortAllocator.of(PortSet.empty(), false).allocate()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Concurrent allocations never collide")
+        void concurrentAllocationsNeverCollide() throws Exception {
+            PortAllocator allocator = PortAllocator.ofRange(10000, 10999);
+            Set<Integer> ports = ConcurrentHashMap.newKeySet();
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+                List<Future<Integer>> futures = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    futures.add(executor.submit(() -> {
+                        int collisions = 0;
+                        OptionalInt port;
+                        while ((port = allocator.allocate()).isPresent()) {
+                            if (!ports.add(port.getAsInt())) {
+                                collisions++;
+                            }
+                        }
+                        return collisions;
+                    }));
+                }
+                for (Future<Integer> future : futures) {
+                    assertThat(future.get()).isZero();
+                }
+            }
+
+            assertThat(ports).hasSize(1000);
+        }
+
+        @Test
+        @DisplayName("Unbindable port is skipped when probing")
+        void unbindablePortIsSkipped() throws IOException {
+            try (ServerSocket occupied = new ServerSocket()) {
+                occupied.bind(new InetSocketAddress(0));
+                int port = occupied.getLocalPort();
+                PortAllocator allocator = PortAllocator.ofRange(port, port, true);
+
+                assertThat(allocator.allocate()).isEmpty();
+                assertThat(allocator.isReserved(port)).isFalse();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Methods: reserve(int), release(int), isReserved(int)")
+    class ReserveRelease {
+
+        @Test
+        @DisplayName("Reservation state is tracked per port")
+        void stateIsTracked() {
+            PortAllocator allocator = PortAllocator.ofRange(5000, 5100);
+
+            assertThat(allocator.reserve(5064)).isTrue();
+            assertThat(allocator.reserve(5064)).isFalse();
+            assertThat(allocator.isReserved(5064)).isTrue();
+            assertThat(allocator.isReserved(5063)).isFalse();
+
+            assertThat(allocator.release(5064)).isTrue();
+            assertThat(allocator.release(5064)).isFalse();
+            assertThat(allocator.isReserved(5064)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Reserved port is never allocated")
+        void reservedPortIsNeverAllocated() {
+            PortAllocator allocator = PortAllocator.ofRange(5000, 5001);
+            allocator.reserve(5000);
+
+            assertThat(allocator.allocate()).hasValue(5001);
+            assertThat(allocator.allocate()).isEmpty();
+        }
+
+        @ParameterizedTest
+        @CsvSource({"4999", "5101", "-1"})
+        @DisplayName("Port outside of the range throws IllegalArgumentException")
+        void portOutsideOfRangeThrows(int port) {
+            PortAllocator allocator = PortAllocator.ofRange(5000, 5100);
+
+            assertThatIllegalArgumentException().isThrownBy(() -> allocator.reserve(port));
+            assertThatIllegalArgumentException().isThrownBy(() -> allocator.release(port));
+            assertThatIllegalArgumentException().isThrownBy(() -> allocator.isReserved(port));
+        }
+    }
+}
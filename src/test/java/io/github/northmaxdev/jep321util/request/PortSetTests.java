@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class PortSetTests {
+
+    @Nested
+    @DisplayName("Method: parse(String)")
+    class Parse {
+
+        @ParameterizedTest
+        @CsvSource(delimiter = '|', value = {
+                "80,443,8000-8100 | 80,443,8000-8100",
+                "' 443 , 80 '     | 80,443",
+                "80,81,82         | 80-82",
+                "1-10,5-20        | 1-20",
+                "0-65535          | 0-65535",
+                "63-64,127-128    | 63-64,127-128",
+                "''               | ''"
+        })
+        @DisplayName("toString() is the normalized input")
+        void toStringIsNormalized(String s, String expected) {
+            assertThat(PortSet.parse(s)).hasToString(expected);
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"80,", ",80", "a", "65536", "-1", "100-50", "80-", "1-2-3", "80,,443"})
+        @DisplayName("Malformed string throws IllegalArgumentException")
+        void malformedStringThrows(String s) {
+            assertThatIllegalArgumentException().isThrownBy(() -> PortSet.parse(s));
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: range(int, int)")
+    class Range {
+
+        @ParameterizedTest
+        @CsvSource({"0, 0", "0, 63", "0, 64", "63, 64", "100, 1000", "65000, 65535", "0, 65535"})
+        @DisplayName("Every port in the range and no other port is contained")
+        void exactlyTheRangeIsContained(int min, int max) {
+            PortSet set = PortSet.range(min, max);
+
+            assertThat(set.size()).isEqualTo(max - min + 1);
+            assertThat(set.first()).hasValue(min);
+            assertThat(set.last()).hasValue(max);
+            assertThat(set.contains(min - 1)).isFalse();
+            assertThat(set.contains(max + 1)).isFalse();
+            assertThat(set.stream()).containsExactlyElementsOf(Ports.allLegalValues().filter(set::contains).boxed()
+                    .toList());
+        }
+
+        @ParameterizedTest
+        @CsvSource({"-1, 10", "10, 65536", "10, 9"})
+        @DisplayName("Illegal range throws IllegalArgumentException")
+        void illegalRangeThrows(int min, int max) {
+            assertThatIllegalArgumentException().isThrownBy(() -> PortSet.range(min, max));
+        }
+    }
+
+    @Nested
+    @DisplayName("Methods: union(PortSet), intersection(PortSet), difference(PortSet), complement()")
+    class SetOperations {
+
+        private final PortSet a = PortSet.parse("1-100");
+        private final PortSet b = PortSet.parse("50-150");
+
+        @Test
+        @DisplayName("Union")
+        void union() {
+            assertThat(a.union(b)).isEqualTo(PortSet.range(1, 150));
+        }
+
+        @Test
+        @DisplayName("Intersection")
+        void intersection() {
+            assertThat(a.intersection(b)).isEqualTo(PortSet.range(50, 100));
+        }
+
+        @Test
+        @DisplayName("Difference")
+        void difference() {
+            assertThat(a.difference(b)).isEqualTo(PortSet.range(1, 49));
+        }
+
+        @Test
+        @DisplayName("Complement")
+        void complement() {
+            assertThat(a.complement()).hasToString("0,101-65535");
+            assertThat(PortSet.all().complement()).isEqualTo(PortSet.empty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Iteration")
+    class Iteration {
+
+        private final PortSet set = PortSet.of(65535, 0, 64, 63, 8080);
+
+        @Test
+        @DisplayName("nextPort(int) walks the ports in ascending order")
+        void nextPortWalksInOrder() {
+            List<Integer> ports = new ArrayList<>();
+            for (int p = set.nextPort(0); p >= 0; p = set.nextPort(p + 1)) {
+                ports.add(p);
+            }
+
+            assertThat(ports).containsExactly(0, 63, 64, 8080, 65535);
+        }
+
+        @Test
+        @DisplayName("forEach(IntConsumer), stream() and toArray() agree")
+        void allIterationMethodsAgree() {
+            List<Integer> ports = new ArrayList<>();
+            set.forEach(ports::add);
+
+            assertThat(ports).containsExactly(0, 63, 64, 8080, 65535);
+            assertThat(set.stream().boxed().toList()).isEqualTo(ports);
+            assertThat(set.toArray()).containsExactly(0, 63, 64, 8080, 65535);
+        }
+
+        @Test
+        @DisplayName("Empty set has nothing to iterate")
+        void emptySetHasNothing() {
+            assertThat(PortSet.empty().nextPort(0)).isEqualTo(-1);
+            assertThat(PortSet.empty().first()).isEmpty();
+            assertThat(PortSet.empty().last()).isEmpty();
+            assertThat(PortSet.empty().stream()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: random(RandomGenerator)")
+    class RandomPort {
+
+        @Test
+        @DisplayName("Every pick is a member and every member gets picked")
+        void picksAreMembers() {
+            PortSet set = PortSet.parse("80,443,8000-8002,65535");
+            Random random = new Random(42);
+            List<Integer> picks = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                picks.add(set.random(random));
+            }
+
+            assertThat(picks).allMatch(set::contains).containsAll(set.stream().boxed().toList());
+        }
+
+        @Test
+        @DisplayName("Empty set throws IllegalStateException")
+        void emptySetThrows() {
+            assertThatIllegalStateException().isThrownBy(() -> PortSet.empty().random());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 65536, Integer.MIN_VALUE, Integer.MAX_VALUE})
+    @DisplayName("Invalid port is never contained")
+    void invalidPortIsNeverContained(int port) {
+        assertThat(PortSet.all().contains(port)).isFalse();
+    }
+
+    @Test
+    void equalsAndHashCode() {
+        EqualsVerifier.forClass(PortSet.class)
+                .withNonnullFields("words")
+                .withIgnoredFields("size")
+                .verify();
+    }
+}
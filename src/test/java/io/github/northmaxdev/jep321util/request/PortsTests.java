@@ -56,6 +56,25 @@ class PortsTests {
         }
     }
 
+    @Nested
+    @DisplayName("Method: parse(CharSequence, int, int)")
+    class Parse {
+
+        @ParameterizedTest
+        @ValueSource(strings = {"0", "80", "8080", "65535", "00443"})
+        @DisplayName("Returns the value when given a legal decimal value")
+        void valueOnLegalValues(String s) {
+            assertThat(Ports.parse("x" + s + "x", 1, s.length() + 1)).isEqualTo(Integer.parseInt(s));
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", "-1", "+80", "65536", "99999", "123456", "8O"})
+        @DisplayName("Returns -1 when given anything else")
+        void minusOneOnIllegalValues(String s) {
+            assertThat(Ports.parse(s, 0, s.length())).isEqualTo(-1);
+        }
+    }
+
     @Test
     @DisplayName("Stream of all legal ports contains expected values only")
     void streamContainsLegalValuesOnly() {
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryParamTableTests {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 8, 9, 100, 1000})
+    @DisplayName("Entries behave like a LinkedHashMap")
+    void behavesLikeLinkedHashMap(int size) {
+        QueryParamTable actual = new QueryParamTable();
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            actual.put("name" + i, "value" + i);
+            expected.put("name" + i, "value" + i);
+        }
+        /* Replacing values must not move entries */
+        for (int i = 0; i < size; i += 3) {
+            actual.put("name" + i, "replaced" + i);
+            expected.put("name" + i, "replaced" + i);
+        }
+
+        List<String> actualEntries = new ArrayList<>();
+        for (int i = 0; i < actual.size(); i++) {
+            actualEntries.add(actual.nameAt(i) + '=' + actual.valueAt(i));
+        }
+
+        assertThat(actualEntries).containsExactlyElementsOf(expected.entrySet()
+                .stream()
+                .map(Map.Entry::toString)
+                .toList());
+        assertThat(actual.indexOf("missing")).isEqualTo(-1);
+        assertThat(actual.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(actual).hasToString(expected.toString());
+    }
+
+    @Test
+    @DisplayName("Equality does not depend on order")
+    void equalityDoesNotDependOnOrder() {
+        QueryParamTable a = new QueryParamTable();
+        a.put("foo", "1");
+        a.put("bar", "2");
+        QueryParamTable b = new QueryParamTable();
+        b.put("bar", "2");
+        b.put("foo", "1");
+        QueryParamTable c = new QueryParamTable();
+        c.put("foo", "1");
+        c.put("bar", "3");
+
+        assertThat(a).isEqualTo(b);
+        assertThat(a).hasSameHashCodeAs(b);
+        assertThat(a).isNotEqualTo(c);
+    }
+}
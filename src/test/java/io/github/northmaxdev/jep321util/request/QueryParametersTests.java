@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class QueryParametersTests {
+
+    @Test
+    @DisplayName("Parameters are decoded and kept in order")
+    void parametersAreDecodedInOrder() {
+        QueryParameters params = QueryParameters.parse("q=%D0%94%D0%B6%D0%B0%D0%B2%D0%B0&page=2&a+b=c+d");
+
+        assertThat(params.size()).isEqualTo(3);
+        assertThat(params.nameAt(0)).isEqualTo("q");
+        assertThat(params.valueAt(0)).isEqualTo("Джава");
+        assertThat(params.nameAt(2)).isEqualTo("a+b");
+        assertThat(params.first("a+b")).contains("c+d");
+        assertThat(params.first("page")).contains("2");
+        assertThat(params.first("missing")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Form format decodes the plus sign as a space")
+    void formDecodesPlus() {
+        QueryParameters params = QueryParameters.parseForm("a+b=c+d%2B");
+
+        assertThat(params.first("a b")).contains("c d+");
+    }
+
+    @Test
+    @DisplayName("Repeated names are exposed as a multimap")
+    void repeatedNamesAsMultimap() {
+        QueryParameters params = QueryParameters.parse("tag=a&page=1&tag=b&flag&&t%61g=c");
+
+        assertThat(params.all("tag")).containsExactly("a", "b", "c");
+        assertThat(params.all("missing")).isEmpty();
+        assertThat(params.first("flag")).contains("");
+        assertThat(params.asMap()).containsExactly(
+                Map.entry("tag", List.of("a", "b", "c")),
+                Map.entry("page", List.of("1")),
+                Map.entry("flag", List.of("")));
+    }
+
+    @Test
+    @DisplayName("Reads what URIBuilder writes")
+    void readsBuilderOutput() {
+        URI uri = URIBuilder.withLocalhost()
+                .param("q", "a&b=c")
+                .param("поиск", "Джава")
+                .build();
+
+        QueryParameters params = QueryParameters.of(uri);
+
+        assertThat(params.first("q")).contains("a&b=c");
+        assertThat(params.first("поиск")).contains("Джава");
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"&", "&&&"})
+    @DisplayName("Empty query has no parameters")
+    void emptyQueryHasNoParameters(String rawQuery) {
+        assertThat(QueryParameters.parse(rawQuery).isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Malformed parameter throws only when accessed")
+    void malformedThrowsOnAccess() {
+        QueryParameters params = QueryParameters.parse("ok=1&bad=%ZZ");
+
+        assertThat(params.first("ok")).contains("1");
+        assertThatIllegalArgumentException().isThrownBy(() -> params.first("bad"));
+    }
+
+    @Test
+    @DisplayName("String representation is the raw query")
+    void toStringIsRawQuery() {
+        assertThat(QueryParameters.parse("a=1&b=%20")).hasToString("a=1&b=%20");
+    }
+
+    @Test
+    void equals() {
+        EqualsVerifier.forClass(QueryParameters.class)
+                .withOnlyTheseFields("query", "plusAsSpace")
+                .suppress(Warning.NULL_FIELDS)
+                .verify();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+class RequestTemplateTests {
+
+    private static final BaseURI API = URIBuilder.withValidHost("example.com")
+            .pathSegment("api")
+            .freeze();
+
+    private static RequestTemplate.Builder fullBuilder() {
+        return RequestTemplate.builder(API)
+                .method("PUT")
+                .header("Accept", "application/json")
+                .header("X-Trace", "a")
+                .header("X-Trace", "b")
+                .timeout(Duration.ofSeconds(3))
+                .version(HttpClient.Version.HTTP_1_1)
+                .expectContinue(true);
+    }
+
+    @Nested
+    @DisplayName("Method: newRequest(BaseURI)")
+    class NewRequest {
+
+        @Test
+        @DisplayName("Request is equivalent to one created with HttpRequest.Builder")
+        void requestMatchesBuilder() {
+            RequestTemplate template = fullBuilder().build();
+            BaseURI uri = template.baseURI().pathSegment("orders").param("page", 2);
+
+            HttpRequest request = template.newRequest(uri);
+            HttpRequest expected = HttpRequest.newBuilder(URI.create("https://example.com/api/orders?page=2"))
+                    .method("PUT", BodyPublishers.noBody())
+                    .header("Accept", "application/json")
+                    .header("X-Trace", "a")
+                    .header("X-Trace", "b")
+                    .timeout(Duration.ofSeconds(3))
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .expectContinue(true)
+                    .build();
+
+            assertThat(request).isEqualTo(expected);
+            assertThat(request.headers()).isEqualTo(expected.headers());
+            assertThat(request.timeout()).isEqualTo(expected.timeout());
+            assertThat(request.version()).isEqualTo(expected.version());
+            assertThat(request.expectContinue()).isTrue();
+            assertThat(request.bodyPublisher()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Every request shares the template's headers")
+        void headersAreShared() {
+            RequestTemplate template = fullBuilder().build();
+
+            HttpRequest first = template.newRequest();
+            HttpRequest second = template.newRequest(template.baseURI().pathSegment("x"));
+
+            assertThat(first.headers()).isSameAs(second.headers()).isSameAs(template.headers());
+            assertThat(template.headers().allValues("x-trace")).isEqualTo(List.of("a", "b"));
+            assertThat(first.uri()).isEqualTo(URI.create("https://example.com/api"));
+        }
+
+        @Test
+        @DisplayName("Defaults are GET, no headers and no timeout or version")
+        void defaults() {
+            HttpRequest request = RequestTemplate.builder(API).build().newRequest();
+
+            assertThat(request.method()).isEqualTo("GET");
+            assertThat(request.headers().map()).isEmpty();
+            assertThat(request.timeout()).isEmpty();
+            assertThat(request.version()).isEmpty();
+            assertThat(request.expectContinue()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Null URI throws NullPointerException")
+        void nullUriThrows() {
+            RequestTemplate template = RequestTemplate.builder(API).build();
+
+            assertThatNullPointerException().isThrownBy(() -> template.newRequest(null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: newRequest(BaseURI, BodyPublisher)")
+    class NewRequestWithBody {
+
+        @Test
+        @DisplayName("Body is attached to the request")
+        void bodyIsAttached() {
+            BodyPublisher body = BodyPublishers.ofString("{}");
+            RequestTemplate template = RequestTemplate.builder(API).method("POST").build();
+
+            HttpRequest request = template.newRequest(API, body);
+
+            assertThat(request.bodyPublisher()).containsSame(body);
+            assertThat(request.method()).isEqualTo("POST");
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: Builder.build()")
+    class Build {
+
+        @ParameterizedTest
+        @ValueSource(strings = {"Host", "Content-Length", "Connection", "Bad Name"})
+        @DisplayName("Header rejected by HttpRequest.Builder throws IllegalArgumentException")
+        void rejectedHeaderThrows(String name) {
+            RequestTemplate.Builder builder = RequestTemplate.builder(API).header(name, "value");
+
+            assertThatIllegalArgumentException().isThrownBy(builder::build);
+        }
+
+        @Test
+        @DisplayName("Invalid method throws IllegalArgumentException")
+        void invalidMethodThrows() {
+            RequestTemplate.Builder builder = RequestTemplate.builder(API).method("GE T");
+
+            assertThatIllegalArgumentException().isThrownBy(builder::build);
+        }
+
+        @Test
+        @DisplayName("Non-positive timeout throws IllegalArgumentException")
+        void nonPositiveTimeoutThrows() {
+            RequestTemplate.Builder builder = RequestTemplate.builder(API).timeout(Duration.ZERO);
+
+            assertThatIllegalArgumentException().isThrownBy(builder::build);
+        }
+
+        @Test
+        @DisplayName("Builder changes after build do not affect the template")
+        void templateIsIndependentOfBuilder() {
+            RequestTemplate.Builder builder = RequestTemplate.builder(API).header("A", "1");
+            RequestTemplate template = builder.build();
+
+            builder.header("B", "2").method("DELETE");
+
+            assertThat(template.headers().map()).containsOnlyKeys("A");
+            assertThat(template.method()).isEqualTo("GET");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class TrustedURIsTests {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "https://example.com/",
+            "http://localhost:8080/foo",
+            "https://example.com/foo/bar%2Ebaz?x=1&y=%D0%94",
+            "https://[::1]:443/?q=1",
+            "https://127.0.0.1/a/b/c"
+    })
+    @DisplayName("Resolving against the root is equivalent to parsing the whole string")
+    void resolvedEqualsParsed(String s) {
+        URI parsed = TrustedURIs.parse(s);
+        URI root = TrustedURIs.rootOf(parsed);
+        String relative = s.substring(root.toString().length());
+
+        URI resolved = TrustedURIs.resolve(root, relative);
+
+        assertThat(resolved).isEqualTo(parsed);
+        assertThat(resolved).hasSameHashCodeAs(parsed);
+        assertThat(resolved).hasToString(s);
+    }
+
+    @Test
+    @DisplayName("Root has the path \"/\" and no query")
+    void rootHasSlashPathAndNoQuery() {
+        URI root = TrustedURIs.rootOf(URI.create("https://example.com:8443/foo/bar?baz=1"));
+
+        assertThat(root).isEqualTo(URI.create("https://example.com:8443/"));
+    }
+
+    @Test
+    @DisplayName("Malformed string throws IllegalStateException")
+    void malformedThrows() {
+        assertThatIllegalStateException().isThrownBy(() -> TrustedURIs.parse("https://exa mple.com/"));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class URIBatchTests {
+
+    private final BaseURI base = URIBuilder.withValidHost("example.com")
+            .pathSegment("orders")
+            .param("expand", "items")
+            .param("lang", "ru")
+            .freeze();
+
+    @Test
+    @DisplayName("Path segment batch matches deriving from the base")
+    void pathSegmentMatchesDerived() {
+        URIBatch batch = URIBatch.ofPathSegment(base);
+
+        List<URI> actual = batch.stream(List.of("1", "два", "3 4")).toList();
+
+        assertThat(actual).containsExactly(
+                base.pathSegment("1").build(),
+                base.pathSegment("два").build(),
+                base.pathSegment("3 4").build());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0L, 7L, -1L, Long.MAX_VALUE, Long.MIN_VALUE})
+    @DisplayName("Expanding a long matches expanding its string form")
+    void longMatchesString(long value) {
+        URIBatch pathBatch = URIBatch.ofPathSegment(base);
+        URIBatch paramBatch = URIBatch.ofParam(base, "expand");
+
+        assertThat(pathBatch.expand(value)).isEqualTo(pathBatch.expand(Long.toString(value)));
+        assertThat(paramBatch.expand(value)).isEqualTo(base.param("expand", value).build());
+    }
+
+    @Test
+    @DisplayName("Parameter batch appends a new parameter")
+    void newParamIsAppended() {
+        URIBatch batch = URIBatch.ofParam(base, "id");
+
+        URI actual = batch.expand(42L);
+
+        assertThat(actual).isEqualTo(URI.create("https://example.com/orders?expand=items&lang=ru&id=42"));
+    }
+
+    @Test
+    @DisplayName("Parameter batch replaces an existing parameter in place")
+    void existingParamIsReplaced() {
+        URIBatch batch = URIBatch.ofParam(base, "expand");
+
+        URI actual = batch.expand("всё");
+
+        assertThat(actual).isEqualTo(base.param("expand", "всё").build());
+        assertThat(actual).hasToString("https://example.com/orders?expand=%D0%B2%D1%81%D1%91&lang=ru");
+    }
+
+    @Test
+    @DisplayName("Root-only base works with both kinds of batches")
+    void rootOnlyBase() {
+        BaseURI root = URIBuilder.withLocalhost().freeze();
+
+        assertThat(URIBatch.ofPathSegment(root).expand(1L)).isEqualTo(URI.create("https://localhost/1"));
+        assertThat(URIBatch.ofParam(root, "id").expand(1L)).isEqualTo(URI.create("https://localhost/?id=1"));
+    }
+
+    @Test
+    @DisplayName("Parallel array expansion preserves order")
+    void parallelArrayPreservesOrder() {
+        URIBatch batch = URIBatch.ofPathSegment(URIBuilder.withLocalhost());
+        long[] ids = LongStream.range(0, 50_000).toArray();
+
+        URI[] actual = batch.toArray(ids);
+        List<URI> sequential = batch.stream(LongStream.range(0, 50_000)).toList();
+
+        assertThat(actual).containsExactlyElementsOf(sequential);
+    }
+
+    @Test
+    @DisplayName("Empty value throws IllegalArgumentException")
+    void emptyValueThrows() {
+        URIBatch batch = URIBatch.ofPathSegment(base);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> batch.expand(""));
+        assertThatIllegalArgumentException().isThrownBy(() -> URIBatch.ofParam(base, ""));
+    }
+}
@@ -31,11 +31,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.net.URI;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 class URIBuilderTests {
@@ -79,10 +81,122 @@ class URIBuilderTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("provideConfigsAndExpectedResults")
+    @DisplayName("Decomposing a built URI produces an equal builder")
+    void decomposedEqualsOriginal(URIBuilder builderConfig, URI built) {
+        assertThat(URIBuilder.from(built)).isEqualTo(builderConfig);
+        assertThat(URIBuilder.parse(built.toString())).isEqualTo(builderConfig);
+    }
+
+    @Test
+    @DisplayName("Decomposed builder can be tweaked and rebuilt")
+    void decomposedCanBeTweaked() {
+        URI next = URI.create("HTTPS://Example.com:8443/orders/%D0%B7%D0%B0%D0%BA%D0%B0%D0%B7/?page=1&size=50");
+
+        URI actual = URIBuilder.from(next).param("page", 2).build();
+
+        assertThat(actual).isEqualTo(URI.create(
+                "https://example.com:8443/orders/%D0%B7%D0%B0%D0%BA%D0%B0%D0%B7?page=2&size=50"));
+        assertThat(URIBuilder.parse(next.toString()).param("page", 2).build()).isEqualTo(actual);
+    }
+
+    @Test
+    @DisplayName("Parsing normalizes the host")
+    void parseNormalizesHost() {
+        URIBuilder asIs = URIBuilder.withValidHost("Example.COM.").pathSegment("foo");
+        URIBuilder normalized = URIBuilder.withValidHost("example.com").pathSegment("foo");
+
+        assertThat(URIBuilder.parse(asIs.build().toString()))
+                .isNotEqualTo(asIs)
+                .isEqualTo(normalized);
+        assertThat(URIBuilder.parse(normalized.build().toString())).isEqualTo(normalized);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "example.com/foo",
+            "ftp://example.com/",
+            "https:///foo",
+            "https://exa mple.com/",
+            "https://user@example.com/",
+            "https://example.com:/",
+            "https://example.com:65536/",
+            "https://example.com//foo",
+            "https://example.com/foo#bar",
+            "https://example.com/?foo",
+            "https://example.com/?foo=",
+            "https://example.com/?=bar",
+            "https://example.com/?a=1&&b=2",
+            "https://example.com/?a=1&a=2",
+            "https://example.com/?a=1&b=2&%61=3",
+            "https://example.com/%ZZ",
+            "https://example.com/%FF"
+    })
+    @DisplayName("Parsing an unrepresentable URI string throws IllegalArgumentException")
+    void parseInvalidThrows(String s) {
+        assertThatIllegalArgumentException().isThrownBy(() -> URIBuilder.parse(s));
+    }
+
+    @Test
+    @DisplayName("Decomposing an unrepresentable URI throws IllegalArgumentException")
+    void fromInvalidThrows() {
+        assertThatIllegalArgumentException().isThrownBy(() -> URIBuilder.from(URI.create("mailto:foo@example.com")));
+        assertThatIllegalArgumentException().isThrownBy(() -> URIBuilder.from(URI.create("https://example.com/#foo")));
+        assertThatIllegalArgumentException().isThrownBy(() -> URIBuilder.from(URI.create("/relative")));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> URIBuilder.from(URI.create("https://example.com/?a=1&a=2")));
+    }
+
+    @Test
+    @DisplayName("Repeated builds are equal to fully parsed URIs")
+    void repeatedBuildsMatchParsedURIs() {
+        URIBuilder builder = URIBuilder.withValidHost("example.com")
+                .pathSegment("foo");
+        URI first = builder.build();
+
+        builder.pathSegment("поиск").param("q", 1);
+        URI second = builder.build();
+
+        builder.http().port(8080);
+        URI third = builder.build();
+
+        assertThat(first).isEqualTo(URI.create("https://example.com/foo"));
+        assertThat(second).isEqualTo(URI.create("https://example.com/foo/%D0%BF%D0%BE%D0%B8%D1%81%D0%BA?q=1"));
+        assertThat(second).hasToString("https://example.com/foo/%D0%BF%D0%BE%D0%B8%D1%81%D0%BA?q=1");
+        assertThat(third).isEqualTo(URI.create("http://example.com:8080/foo/%D0%BF%D0%BE%D0%B8%D1%81%D0%BA?q=1"));
+    }
+
+    @Test
+    @DisplayName("Random port is picked from the given set")
+    void randomPortIsPickedFromSet() {
+        PortSet ports = PortSet.parse("8081,9000-9001");
+
+        URI uri = URIBuilder.withLocalhost()
+                .randomPort(ports)
+                .build();
+
+        assertThat(ports.contains(uri.getPort())).isTrue();
+    }
+
     @Test
     void equalsAndHashCode() {
+        PathSegmentList redSegments = new PathSegmentList();
+        redSegments.add("foo");
+        PathSegmentList blueSegments = new PathSegmentList();
+        blueSegments.add("bar");
+
+        QueryParamTable redParams = new QueryParamTable();
+        redParams.put("foo", "1");
+        QueryParamTable blueParams = new QueryParamTable();
+        blueParams.put("bar", "2");
+
         EqualsVerifier.forClass(URIBuilder.class)
+                .withPrefabValues(PathSegmentList.class, redSegments, blueSegments)
+                .withPrefabValues(QueryParamTable.class, redParams, blueParams)
                 .suppress(Warning.NONFINAL_FIELDS)
+                .withIgnoredFields("root")
                 .verify();
     }
 }
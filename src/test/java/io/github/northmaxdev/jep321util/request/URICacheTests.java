@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class URICacheTests {
+
+    @Test
+    @DisplayName("Identical configuration returns the cached instance")
+    void identicalConfigurationHits() {
+        URICache cache = URICache.withMaximumSize(10);
+
+        URI first = URIBuilder.withLocalhost().pathSegment("foo").param("bar", 1).build(cache);
+        URI second = URIBuilder.withLocalhost().pathSegment("foo").param("bar", 1).build(cache);
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.stats()).isEqualTo(new CacheStats(1, 1, 0));
+        assertThat(cache.stats().hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("Builder changes after caching do not affect the cached configuration")
+    void builderChangesAreNotCached() {
+        URICache cache = URICache.withMaximumSize(10);
+        URIBuilder builder = URIBuilder.withLocalhost().pathSegment("foo");
+
+        URI first = builder.build(cache);
+        URI second = builder.pathSegment("bar").build(cache);
+
+        assertThat(first).isEqualTo(URI.create("https://localhost/foo"));
+        assertThat(second).isEqualTo(URI.create("https://localhost/foo/bar"));
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Parameter order is taken into account")
+    void paramOrderMatters() {
+        URICache cache = URICache.withMaximumSize(10);
+
+        URI first = URIBuilder.withLocalhost().param("a", 1).param("b", 2).build(cache);
+        URI second = URIBuilder.withLocalhost().param("b", 2).param("a", 1).build(cache);
+
+        assertThat(second).hasToString("https://localhost/?b=2&a=1");
+        assertThat(second).isNotEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("Size stays within the maximum")
+    void sizeIsBounded() {
+        URICache cache = URICache.withMaximumSize(100);
+
+        for (int i = 0; i < 1000; i++) {
+            URIBuilder.withLocalhost().pathSegment(i).build(cache);
+        }
+
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.stats().evictionCount()).isEqualTo(900);
+
+        cache.clear();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Non-positive maximum size throws IllegalArgumentException")
+    void nonPositiveMaximumSizeThrows() {
+        assertThatIllegalArgumentException().isThrownBy(() -> URICache.withMaximumSize(0));
+    }
+}
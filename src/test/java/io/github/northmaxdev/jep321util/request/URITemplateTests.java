@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.request;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class URITemplateTests {
+
+    @Nested
+    @DisplayName("Method: parse(String)")
+    class Parse {
+
+        @ParameterizedTest
+        @ValueSource(strings = {
+                "",
+                "example.com/foo",
+                "ftp://example.com/",
+                "https://",
+                "https://exa mple.com/",
+                "https://example.com:/",
+                "https://example.com:65536/",
+                "https://example.com:8O/",
+                "https://example.com//foo",
+                "https://example.com/foo/",
+                "https://example.com/{}",
+                "https://example.com/{id}/{id}",
+                "https://example.com/foo{id}",
+                "https://example.com/?",
+                "https://example.com/?foo",
+                "https://example.com/?foo=",
+                "https://example.com/?=bar",
+                "https://example.com/?{name}=bar",
+                "https://example.com/?foo=1&foo=2",
+                "https://example.com/?foo=1&&bar=2"
+        })
+        @DisplayName("Invalid template throws IllegalArgumentException")
+        void invalidTemplateThrows(String template) {
+            assertThatIllegalArgumentException().isThrownBy(() -> URITemplate.parse(template));
+        }
+
+        @Test
+        @DisplayName("Variable names are listed in order of appearance")
+        void variableNamesInOrder() {
+            URITemplate template = URITemplate.parse("https://example.com/orders/{id}/items?sort=asc&page={page}");
+
+            assertThat(template.variableNames()).containsExactly("id", "page");
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: expand(String...)")
+    class Expand {
+
+        @ParameterizedTest
+        @MethodSource("provideTemplatesAndEquivalentBuilders")
+        @DisplayName("Expanded template is equal to the equivalent builder's URI")
+        void expandedMatchesBuilder(URITemplate template, String[] values, URIBuilder equivalent) {
+            URI actual = template.expand(values);
+
+            assertThat(actual).isEqualTo(equivalent.build());
+            assertThat(actual.toString()).isEqualTo(equivalent.build().toString());
+        }
+
+        Stream<Arguments> provideTemplatesAndEquivalentBuilders() {
+            return Stream.of(
+                    arguments(
+                            URITemplate.parse("https://example.com"),
+                            new String[0],
+                            URIBuilder.withValidHost("example.com")
+                    ),
+                    arguments(
+                            URITemplate.parse("http://localhost:8080/"),
+                            new String[0],
+                            URIBuilder.withLocalhost().http().port(8080)
+                    ),
+                    arguments(
+                            URITemplate.parse("https://example.com/orders/{id}/items?sort=asc&page={page}"),
+                            new String[]{"12345", "2"},
+                            URIBuilder.withValidHost("example.com")
+                                    .pathSegment("orders")
+                                    .pathSegment(12345)
+                                    .pathSegment("items")
+                                    .param("sort", "asc")
+                                    .param("page", 2)
+                    ),
+                    arguments(
+                            URITemplate.parse("https://localhost/поиск?q={q}"),
+                            new String[]{"Джава"},
+                            URIBuilder.withLocalhost()
+                                    .pathSegment("поиск")
+                                    .param("q", "Джава")
+                    ),
+                    arguments(
+                            URITemplate.parse("https://[::1]:443/{a}/{b}"),
+                            new String[]{"a b", "c/d"},
+                            URIBuilder.withValidHost("[::1]")
+                                    .port(443)
+                                    .pathSegment("a b")
+                                    .pathSegment("c/d")
+                    )
+            );
+        }
+
+        @Test
+        @DisplayName("Wrong number of values throws IllegalArgumentException")
+        void wrongNumberOfValuesThrows() {
+            URITemplate template = URITemplate.parse("https://example.com/orders/{id}");
+
+            assertThatIllegalArgumentException().isThrownBy(template::expand);
+            assertThatIllegalArgumentException().isThrownBy(() -> template.expand("1", "2"));
+        }
+
+        @Test
+        @DisplayName("Empty value throws IllegalArgumentException")
+        void emptyValueThrows() {
+            URITemplate template = URITemplate.parse("https://example.com/orders/{id}");
+
+            assertThatIllegalArgumentException().isThrownBy(() -> template.expand(""));
+        }
+    }
+
+    @Nested
+    class ToString {
+
+        @Test
+        @DisplayName("Returns the parsed string")
+        void returnsParsedString() {
+            String s = "https://example.com/orders/{id}?page={page}";
+
+            assertThat(URITemplate.parse(s)).hasToString(s);
+        }
+    }
+
+    @Test
+    void equals() {
+        EqualsVerifier.forClass(URITemplate.class)
+                .withOnlyTheseFields("template")
+                .suppress(Warning.NULL_FIELDS)
+                .verify();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ByteArrayBodyHandlersTests {
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static BodySubscriber<byte[]> deliver(int maxSize, ResponseInfo info, byte[] body, int chunkSize,
+                                                  FakeSubscription subscription) {
+        BodySubscriber<byte[]> subscriber = ByteArrayBodyHandlers.ofByteArray(maxSize).apply(info);
+        subscriber.onSubscribe(subscription);
+        for (int i = 0; i < body.length && !subscription.isCancelled(); i += chunkSize) {
+            byte[] chunk = Arrays.copyOfRange(body, i, Math.min(body.length, i + chunkSize));
+            subscriber.onNext(List.of(ByteBuffer.wrap(chunk)));
+        }
+        subscriber.onComplete();
+        return subscriber;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 8191, 8192, 8193, 100_000})
+    @DisplayName("Body with an announced length is collected")
+    void announcedLengthIsCollected(int size) {
+        byte[] body = randomBytes(size);
+        ResponseInfo info = FakeResponseInfo.withHeaders("Content-Length", String.valueOf(size));
+
+        BodySubscriber<byte[]> subscriber = deliver(1_000_000, info, body, 1000, new FakeSubscription());
+
+        assertThat(subscriber.getBody().toCompletableFuture().join()).isEqualTo(body);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 8191, 8192, 8193, 100_000})
+    @DisplayName("Body with an unknown length is collected")
+    void unknownLengthIsCollected(int size) {
+        byte[] body = randomBytes(size);
+
+        BodySubscriber<byte[]> subscriber = deliver(1_000_000, FakeResponseInfo.withHeaders(), body, 777,
+                new FakeSubscription());
+
+        assertThat(subscriber.getBody().toCompletableFuture().join()).isEqualTo(body);
+    }
+
+    @Test
+    @DisplayName("Body that differs from the announced length is still collected")
+    void mismatchingLengthIsCollected() {
+        byte[] body = randomBytes(5000);
+
+        BodySubscriber<byte[]> longer = deliver(1_000_000, FakeResponseInfo.withHeaders("Content-Length", "100"),
+                body, 64, new FakeSubscription());
+        BodySubscriber<byte[]> shorter = deliver(1_000_000, FakeResponseInfo.withHeaders("Content-Length", "9000"),
+                body, 64, new FakeSubscription());
+
+        assertThat(longer.getBody().toCompletableFuture().join()).isEqualTo(body);
+        assertThat(shorter.getBody().toCompletableFuture().join()).isEqualTo(body);
+    }
+
+    @Test
+    @DisplayName("Large announced length is not allocated up-front")
+    void largeAnnouncedLengthIsNotPresized() {
+        ResponseInfo info = FakeResponseInfo.withHeaders("Content-Length",
+                String.valueOf(ByteArrayBodyHandlers.MAX_ARRAY_SIZE));
+        BodySubscriber<byte[]> subscriber = ByteArrayBodyHandlers.ofByteArray().apply(info);
+
+        /* Would need a 2 GiB array (and fail with OutOfMemoryError on a smaller heap) if it trusted the header */
+        subscriber.onSubscribe(new FakeSubscription());
+        subscriber.onComplete();
+
+        assertThat(subscriber.getBody().toCompletableFuture().join()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Body with an announced length over the presize limit is collected")
+    void largeAnnouncedBodyIsCollected() {
+        byte[] body = randomBytes(3_000_001);
+        ResponseInfo info = FakeResponseInfo.withHeaders("Content-Length", String.valueOf(body.length));
+
+        BodySubscriber<byte[]> subscriber = deliver(ByteArrayBodyHandlers.MAX_ARRAY_SIZE, info, body, 16 * 1024,
+                new FakeSubscription());
+
+        assertThat(subscriber.getBody().toCompletableFuture().join()).isEqualTo(body);
+    }
+
+    @Test
+    @DisplayName("Announced length over the limit fails before reading the body")
+    void announcedLengthOverLimitFails() {
+        FakeSubscription subscription = new FakeSubscription();
+        BodySubscriber<byte[]> subscriber = ByteArrayBodyHandlers.ofByteArray(1000)
+                .apply(FakeResponseInfo.withHeaders("Content-Length", "1001"));
+
+        subscriber.onSubscribe(subscription);
+
+        assertThat(subscription.isCancelled()).isTrue();
+        assertThat(subscription.requested()).isZero();
+        assertThat(subscriber.getBody().toCompletableFuture())
+                .failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("Unannounced body over the limit fails and is cancelled")
+    void unannouncedBodyOverLimitFails() {
+        FakeSubscription subscription = new FakeSubscription();
+
+        BodySubscriber<byte[]> subscriber = deliver(1000, FakeResponseInfo.withHeaders(), randomBytes(1001), 100,
+                subscription);
+
+        assertThat(subscription.isCancelled()).isTrue();
+        assertThat(subscriber.getBody().toCompletableFuture()).isCompletedExceptionally();
+    }
+
+    @Test
+    @DisplayName("Body of exactly the limit is accepted")
+    void bodyAtLimitIsAccepted() {
+        byte[] body = randomBytes(1000);
+
+        BodySubscriber<byte[]> subscriber = deliver(1000, FakeResponseInfo.withHeaders(), body, 300,
+                new FakeSubscription());
+
+        assertThat(subscriber.getBody().toCompletableFuture().join()).isEqualTo(body);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, Integer.MAX_VALUE})
+    @DisplayName("Illegal limit throws IllegalArgumentException")
+    void illegalLimitThrows(int maxSize) {
+        assertThatIllegalArgumentException().isThrownBy(() -> ByteArrayBodyHandlers.ofByteArray(maxSize));
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DecompressingBodyHandlersTests {
+
+    private static final String TEXT = "The quick brown fox jumps over the lazy dog. ".repeat(2000) + "Конец.";
+    private static final byte[] BYTES = TEXT.getBytes(StandardCharsets.UTF_8);
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] zlib(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] rawDeflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length + 1024];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /* A gzip member with every optional header field present */
+    private static byte[] gzipWithAllHeaderFields(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes(new byte[]{0x1F, (byte) 0x8B, 8, 2 | 4 | 8 | 16, 0, 0, 0, 0, 0, (byte) 0xFF});
+        bytes.writeBytes(new byte[]{3, 0, 'a', 'b', 'c'});
+        bytes.writeBytes("name.txt\0".getBytes(StandardCharsets.US_ASCII));
+        bytes.writeBytes("comment\0".getBytes(StandardCharsets.US_ASCII));
+        bytes.writeBytes(new byte[]{0x12, 0x34});
+        bytes.writeBytes(rawDeflate(data));
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        writeIntLE(bytes, (int) crc.getValue());
+        writeIntLE(bytes, data.length);
+        return bytes.toByteArray();
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        for (int i = 0; i < 4; i++) {
+            out.write(value >>> (8 * i));
+        }
+    }
+
+    private static <T> CompletableFuture<T> deliver(BodyHandler<T> handler, ResponseInfo info, byte[] body,
+                                                    int chunkSize) {
+        BodySubscriber<T> subscriber = DecompressingBodyHandlers.of(handler).apply(info);
+        subscriber.onSubscribe(new FakeSubscription());
+        for (int i = 0; i < body.length; i += chunkSize) {
+            int end = Math.min(body.length, i + chunkSize);
+            subscriber.onNext(List.of(ByteBuffer.wrap(Arrays.copyOfRange(body, i, end))));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture();
+    }
+
+    private static String decompress(String encoding, byte[] body, int chunkSize) {
+        ResponseInfo info = FakeResponseInfo.withHeaders("Content-Encoding", encoding);
+        return deliver(BodyHandlers.ofString(StandardCharsets.UTF_8), info, body, chunkSize).join();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 10, 1000, 1_000_000})
+    @DisplayName("gzip body is decompressed for every chunk size")
+    void gzipIsDecompressed(int chunkSize) {
+        assertThat(decompress("gzip", gzip(BYTES), chunkSize)).isEqualTo(TEXT);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 100_000})
+    @DisplayName("gzip header with every optional field is skipped")
+    void gzipOptionalHeaderFieldsAreSkipped(int chunkSize) {
+        assertThat(decompress("x-gzip", gzipWithAllHeaderFields(BYTES), chunkSize)).isEqualTo(TEXT);
+    }
+
+    @Test
+    @DisplayName("Concatenated gzip members are decompressed as one body")
+    void gzipMembersAreConcatenated() {
+        byte[] first = gzip("Hello, ".getBytes(StandardCharsets.UTF_8));
+        byte[] second = gzip("world!".getBytes(StandardCharsets.UTF_8));
+        byte[] body = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, body, first.length, second.length);
+
+        assertThat(decompress("gzip", body, 5)).isEqualTo("Hello, world!");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 1000})
+    @DisplayName("deflate body is decompressed in both the zlib and the raw format")
+    void deflateIsDecompressed(int chunkSize) {
+        assertThat(decompress("deflate", zlib(BYTES), chunkSize)).isEqualTo(TEXT);
+        assertThat(decompress("Deflate", rawDeflate(BYTES), chunkSize)).isEqualTo(TEXT);
+    }
+
+    @Test
+    @DisplayName("Empty body is accepted")
+    void emptyBodyIsAccepted() {
+        assertThat(decompress("gzip", new byte[0], 1)).isEmpty();
+        assertThat(decompress("deflate", new byte[0], 1)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Corrupt CRC fails the body")
+    void corruptCrcFails() {
+        byte[] body = gzip(BYTES);
+        body[body.length - 8] ^= 1;
+
+        ResponseInfo info = FakeResponseInfo.withHeaders("Content-Encoding", "gzip");
+
+        assertThat(deliver(BodyHandlers.ofString(), info, body, 64))
+                .failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ZipException.class);
+    }
+
+    @Test
+    @DisplayName("Truncated body fails the body")
+    void truncatedBodyFails() {
+        byte[] body = Arrays.copyOf(gzip(BYTES), 100);
+
+        ResponseInfo info = FakeResponseInfo.withHeaders("Content-Encoding", "gzip");
+
+        assertThat(deliver(BodyHandlers.ofString(), info, body, 64))
+                .failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(EOFException.class);
+    }
+
+    @Test
+    @DisplayName("Unsupported encoding fails the body and cancels it")
+    void unsupportedEncodingFails() {
+        BodySubscriber<String> subscriber = DecompressingBodyHandlers.of(BodyHandlers.ofString())
+                .apply(FakeResponseInfo.withHeaders("Content-Encoding", "br"));
+        FakeSubscription subscription = new FakeSubscription();
+
+        subscriber.onSubscribe(subscription);
+
+        assertThat(subscription.isCancelled()).isTrue();
+        assertThat(subscriber.getBody().toCompletableFuture()).isCompletedExceptionally();
+    }
+
+    @Test
+    @DisplayName("Identity body is passed through with the original headers")
+    void identityIsPassedThrough() {
+        AtomicReference<ResponseInfo> seen = new AtomicReference<>();
+        BodyHandler<String> handler = info -> {
+            seen.set(info);
+            return BodyHandlers.ofString().apply(info);
+        };
+        ResponseInfo info = FakeResponseInfo.withHeaders("Content-Length", "5");
+
+        assertThat(deliver(handler, info, "plain".getBytes(StandardCharsets.UTF_8), 2).join()).isEqualTo("plain");
+        assertThat(seen.get()).isSameAs(info);
+    }
+
+    @Test
+    @DisplayName("Wrapped handler does not see the Content-Encoding and Content-Length headers")
+    void encodingHeadersAreHidden() {
+        AtomicReference<ResponseInfo> seen = new AtomicReference<>();
+        BodyHandler<String> handler = info -> {
+            seen.set(info);
+            return BodyHandlers.ofString().apply(info);
+        };
+        byte[] body = gzip(BYTES);
+        ResponseInfo info = FakeResponseInfo.withHeaders(
+                "Content-Encoding", "gzip",
+                "Content-Length", String.valueOf(body.length),
+                "Content-Type", "text/plain");
+
+        deliver(handler, info, body, 4096).join();
+
+        assertThat(seen.get().headers().map()).containsOnlyKeys("Content-Type");
+        assertThat(seen.get().statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Batch that inflates to nothing is replaced by another upstream request")
+    void emptyBatchRequestsMore() {
+        BodySubscriber<String> subscriber = DecompressingBodyHandlers.of(BodyHandlers.ofString())
+                .apply(FakeResponseInfo.withHeaders("Content-Encoding", "gzip"));
+        FakeSubscription subscription = new FakeSubscription();
+        subscriber.onSubscribe(subscription);
+        long requestedBefore = subscription.requested();
+
+        subscriber.onNext(List.of(ByteBuffer.wrap(Arrays.copyOf(gzip(BYTES), 10))));
+
+        assertThat(subscription.requested() - requestedBefore).isEqualTo(1);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class FileBodyHandlersTests {
+
+    @TempDir
+    Path directory;
+
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("Body is written in order and its digest is computed")
+    void bodyIsWrittenWithDigest() throws IOException, NoSuchAlgorithmException {
+        Path target = directory.resolve("artifact.bin");
+        BodySubscriber<FileDownload> subscriber = FileBodyHandlers.ofFile(target, "SHA-256")
+                .apply(FakeResponseInfo.withHeaders("Content-Length", "15"));
+        FakeSubscription subscription = new FakeSubscription();
+
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(List.of(buffer("hello"), buffer(", ")));
+        subscriber.onNext(List.of(buffer("wor"), buffer("ld"), buffer("!!!")));
+        subscriber.onComplete();
+
+        FileDownload download = subscriber.getBody().toCompletableFuture().join();
+        String expectedDigest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest("hello, world!!!".getBytes(StandardCharsets.US_ASCII)));
+        assertThat(download.path()).isEqualTo(target);
+        assertThat(download.size()).isEqualTo(15);
+        assertThat(download.digest()).contains(expectedDigest);
+        assertThat(Files.readString(target)).isEqualTo("hello, world!!!");
+        assertThat(subscription.requested()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("File is truncated when the body is shorter than announced")
+    void shorterBodyIsTruncated() throws IOException {
+        Path target = directory.resolve("short.bin");
+        BodySubscriber<FileDownload> subscriber = FileBodyHandlers.ofFile(target)
+                .apply(FakeResponseInfo.withHeaders("Content-Length", "1000"));
+
+        subscriber.onSubscribe(new FakeSubscription());
+        subscriber.onNext(List.of(buffer("abc")));
+        subscriber.onComplete();
+
+        FileDownload download = subscriber.getBody().toCompletableFuture().join();
+        assertThat(download.size()).isEqualTo(3);
+        assertThat(download.digest()).isEmpty();
+        assertThat(Files.size(target)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("File is truncated to the written bytes when the body fails")
+    void failedBodyIsTruncated() throws IOException {
+        Path target = directory.resolve("partial.bin");
+        BodySubscriber<FileDownload> subscriber = FileBodyHandlers.ofFile(target)
+                .apply(FakeResponseInfo.withHeaders("Content-Length", "1000"));
+
+        subscriber.onSubscribe(new FakeSubscription());
+        subscriber.onNext(List.of(buffer("abc")));
+        subscriber.onError(new IOException("connection reset"));
+
+        assertThat(subscriber.getBody().toCompletableFuture()).isCompletedExceptionally();
+        assertThat(Files.readString(target)).isEqualTo("abc");
+    }
+
+    @Test
+    @DisplayName("Existing file is replaced when the length is unknown")
+    void existingFileIsReplaced() throws IOException {
+        Path target = Files.writeString(directory.resolve("existing.txt"), "previous content");
+        BodySubscriber<FileDownload> subscriber = FileBodyHandlers.ofFile(target)
+                .apply(FakeResponseInfo.withHeaders());
+
+        subscriber.onSubscribe(new FakeSubscription());
+        subscriber.onNext(List.of(buffer("new")));
+        subscriber.onComplete();
+
+        assertThat(subscriber.getBody().toCompletableFuture().join().size()).isEqualTo(3);
+        assertThat(Files.readString(target)).isEqualTo("new");
+    }
+
+    @Test
+    @DisplayName("Unwritable target fails the body and cancels the subscription")
+    void unwritableTargetFails() {
+        BodySubscriber<FileDownload> subscriber = FileBodyHandlers.ofFile(directory.resolve("missing/dir/file"))
+                .apply(FakeResponseInfo.withHeaders());
+        FakeSubscription subscription = new FakeSubscription();
+
+        subscriber.onSubscribe(subscription);
+
+        assertThat(subscription.isCancelled()).isTrue();
+        assertThat(subscriber.getBody().toCompletableFuture()).isCompletedExceptionally();
+    }
+
+    @Test
+    @DisplayName("Unavailable digest algorithm throws IllegalArgumentException")
+    void unavailableAlgorithmThrows() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> FileBodyHandlers.ofFile(directory.resolve("x"), "NO-SUCH-DIGEST"));
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class LineDelimitedBodyHandlersTests {
+
+    private static List<ByteBuffer> batch(String s) {
+        return List.of(ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Nested
+    @DisplayName("Method: ofConsumer(Consumer)")
+    class OfConsumer {
+
+        @Test
+        @DisplayName("Every line is consumed and the next part is requested after each one")
+        void everyLineIsConsumed() {
+            List<String> lines = new ArrayList<>();
+            BodySubscriber<Void> subscriber = LineDelimitedBodyHandlers.ofConsumer(lines::add)
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "application/x-ndjson"));
+            FakeSubscription subscription = new FakeSubscription();
+
+            subscriber.onSubscribe(subscription);
+            assertThat(subscription.requested()).isEqualTo(1);
+            subscriber.onNext(batch("{\"id\":1}\n{\"id\""));
+            assertThat(subscription.requested()).isEqualTo(2);
+            subscriber.onNext(batch(":2}\n{\"id\":3}"));
+            subscriber.onComplete();
+
+            assertThat(lines).containsExactly("{\"id\":1}", "{\"id\":2}", "{\"id\":3}");
+            assertThat(subscriber.getBody().toCompletableFuture()).isCompleted();
+        }
+
+        @Test
+        @DisplayName("Charset is taken from the Content-Type header")
+        void charsetIsTakenFromHeader() {
+            List<String> lines = new ArrayList<>();
+            BodySubscriber<Void> subscriber = LineDelimitedBodyHandlers.ofConsumer(lines::add)
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/plain; charset=\"ISO-8859-1\""));
+
+            subscriber.onSubscribe(new FakeSubscription());
+            subscriber.onNext(List.of(ByteBuffer.wrap(new byte[]{'c', 'a', 'f', (byte) 0xE9})));
+            subscriber.onComplete();
+
+            assertThat(lines).containsExactly("café");
+        }
+
+        @Test
+        @DisplayName("Failing consumer cancels the body")
+        void failingConsumerCancels() {
+            IllegalStateException failure = new IllegalStateException("boom");
+            BodySubscriber<Void> subscriber = LineDelimitedBodyHandlers.ofConsumer(line -> {
+                throw failure;
+            }).apply(FakeResponseInfo.withHeaders("Content-Type", "application/x-ndjson"));
+            FakeSubscription subscription = new FakeSubscription();
+
+            subscriber.onSubscribe(subscription);
+            subscriber.onNext(batch("a\n"));
+
+            assertThat(subscription.isCancelled()).isTrue();
+            assertThat(subscriber.getBody().toCompletableFuture()).isCompletedExceptionally();
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: ofPublisher()")
+    class OfPublisher {
+
+        @Test
+        @DisplayName("Lines are delivered according to demand and upstream is requested only when they run out")
+        void demandIsHonored() {
+            BodySubscriber<Flow.Publisher<String>> subscriber = LineDelimitedBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "application/x-ndjson"));
+            FakeSubscription upstream = new FakeSubscription();
+            RecordingSubscriber downstream = new RecordingSubscriber();
+
+            subscriber.onSubscribe(upstream);
+            subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+            assertThat(upstream.requested()).isZero();
+
+            downstream.subscription.request(2);
+            assertThat(upstream.requested()).isEqualTo(1);
+
+            subscriber.onNext(batch("a\nb\nc\n"));
+            assertThat(downstream.items).containsExactly("a", "b");
+            assertThat(upstream.requested()).isEqualTo(1);
+
+            downstream.subscription.request(5);
+            assertThat(downstream.items).containsExactly("a", "b", "c");
+            assertThat(upstream.requested()).isEqualTo(2);
+
+            subscriber.onNext(batch("d"));
+            subscriber.onComplete();
+            assertThat(downstream.items).containsExactly("a", "b", "c", "d");
+            assertThat(downstream.completed).isTrue();
+        }
+
+        @Test
+        @DisplayName("Requesting concurrently with upstream delivery neither over-requests nor drops lines")
+        void concurrentRequestsAndDeliveries() {
+            int lineCount = 500_000;
+            BodySubscriber<Flow.Publisher<String>> subscriber = LineDelimitedBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/plain"));
+            Semaphore requests = new Semaphore(0);
+            AtomicReference<ByteBuffer> delivered = new AtomicReference<>();
+            AtomicBoolean overRequested = new AtomicBoolean();
+            Flow.Subscription upstream = new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    /* A batch is held until it has been read, so requesting before that asks for a second one */
+                    ByteBuffer held = delivered.get();
+                    if (held != null && held.hasRemaining()) {
+                        overRequested.set(true);
+                    }
+                    requests.release((int) n);
+                }
+
+                @Override
+                public void cancel() {}
+            };
+            ConcurrentSubscriber downstream = new ConcurrentSubscriber();
+            subscriber.onSubscribe(upstream);
+            subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < lineCount; i++) {
+                        List<ByteBuffer> next = batch(i + "\n");
+                        while (!requests.tryAcquire()) {
+                            Thread.onSpinWait();
+                        }
+                        delivered.set(next.get(0));
+                        subscriber.onNext(next);
+                    }
+                    subscriber.onComplete();
+                });
+                producer.start();
+                while (!downstream.done) {
+                    downstream.subscription.request(1);
+                }
+                producer.join();
+            });
+
+            assertThat(downstream.error).isNull();
+            assertThat(overRequested).isFalse();
+            assertThat(List.copyOf(downstream.items))
+                    .isEqualTo(IntStream.range(0, lineCount).mapToObj(Integer::toString).toList());
+        }
+
+        @Test
+        @DisplayName("Batch delivered while the previous one is held signals IllegalStateException")
+        void unrequestedBatchFails() {
+            BodySubscriber<Flow.Publisher<String>> subscriber = LineDelimitedBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/plain"));
+            FakeSubscription upstream = new FakeSubscription();
+            RecordingSubscriber downstream = new RecordingSubscriber();
+            subscriber.onSubscribe(upstream);
+            subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+
+            downstream.subscription.request(1);
+            subscriber.onNext(batch("a\nb\n"));
+            subscriber.onNext(batch("c\n")); /* Held, because "b" is still waiting for demand */
+            subscriber.onNext(batch("d\n"));
+
+            assertThat(downstream.items).containsExactly("a");
+            assertThat(downstream.error).isInstanceOf(IllegalStateException.class);
+            assertThat(upstream.isCancelled()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Second subscriber receives IllegalStateException")
+        void secondSubscriberFails() {
+            Flow.Publisher<String> publisher = LineDelimitedBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/plain"))
+                    .getBody().toCompletableFuture().join();
+            RecordingSubscriber second = new RecordingSubscriber();
+
+            publisher.subscribe(new RecordingSubscriber());
+            publisher.subscribe(second);
+
+            assertThat(second.error).isInstanceOf(IllegalStateException.class);
+        }
+
+        @Test
+        @DisplayName("Non-positive request signals IllegalArgumentException and cancels upstream")
+        void nonPositiveRequestFails() {
+            BodySubscriber<Flow.Publisher<String>> subscriber = LineDelimitedBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/plain"));
+            FakeSubscription upstream = new FakeSubscription();
+            RecordingSubscriber downstream = new RecordingSubscriber();
+            subscriber.onSubscribe(upstream);
+            subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+
+            downstream.subscription.request(0);
+
+            assertThat(downstream.error).isInstanceOf(IllegalArgumentException.class);
+            assertThat(upstream.isCancelled()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Cancelling downstream cancels upstream")
+        void cancelPropagates() {
+            BodySubscriber<Flow.Publisher<String>> subscriber = LineDelimitedBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/plain"));
+            FakeSubscription upstream = new FakeSubscription();
+            RecordingSubscriber downstream = new RecordingSubscriber();
+            subscriber.onSubscribe(upstream);
+            subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+
+            downstream.subscription.request(1);
+            subscriber.onNext(batch("a\nb\n"));
+            downstream.subscription.cancel();
+            subscriber.onComplete();
+
+            assertThat(upstream.isCancelled()).isTrue();
+            assertThat(downstream.items).containsExactly("a");
+            assertThat(downstream.completed).isFalse();
+        }
+
+        @Test
+        @DisplayName("Upstream error is propagated")
+        void upstreamErrorIsPropagated() {
+            BodySubscriber<Flow.Publisher<String>> subscriber = LineDelimitedBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/plain"));
+            RecordingSubscriber downstream = new RecordingSubscriber();
+            subscriber.onSubscribe(new FakeSubscription());
+            subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+
+            subscriber.onError(new IOException("connection reset"));
+
+            assertThat(downstream.error).hasMessage("connection reset");
+        }
+    }
+
+    /* Receives items on whichever thread drains, while the test thread keeps requesting */
+    private static final class ConcurrentSubscriber implements Flow.Subscriber<String> {
+
+        private final Queue<String> items = new ConcurrentLinkedQueue<>();
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+        private volatile boolean done;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<String> {
+
+        private final List<String> items = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class LineSplitterTests {
+
+    private static List<String> split(byte[] bytes, int chunkSize) throws CharacterCodingException {
+        List<String> lines = new ArrayList<>();
+        LineSplitter.Sink sink = (chars, start, end) -> lines.add(new String(chars, start, end - start));
+        LineSplitter splitter = new LineSplitter(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            ByteBuffer chunk = ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i));
+            splitter.feed(chunk, sink);
+            assertThat(chunk.hasRemaining()).isFalse();
+        }
+        splitter.finish(sink);
+        return lines;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 5, 7, 64, 4096})
+    @DisplayName("Lines are the same for every chunk size")
+    void linesDoNotDependOnChunking(int chunkSize) throws CharacterCodingException {
+        String body = "{\"a\":1}\n{\"b\":\"привет\"}\r\n\r\n{\"c\":\"😀\"}\rlast";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(split(bytes, chunkSize))
+                .containsExactly("{\"a\":1}", "{\"b\":\"привет\"}", "", "{\"c\":\"😀\"}", "last");
+    }
+
+    @Test
+    @DisplayName("Terminated last line does not produce an extra empty line")
+    void terminatedLastLine() throws CharacterCodingException {
+        assertThat(split("a\nb\n".getBytes(StandardCharsets.UTF_8), 1)).containsExactly("a", "b");
+        assertThat(split("a\r\n".getBytes(StandardCharsets.UTF_8), 2)).containsExactly("a");
+        assertThat(split(new byte[0], 1)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Line longer than the initial buffer is delivered whole")
+    void longLineIsDeliveredWhole() throws CharacterCodingException {
+        String line = "x".repeat(100_000);
+
+        assertThat(split((line + "\n" + line).getBytes(StandardCharsets.UTF_8), 8192)).containsExactly(line, line);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1022, 1023, 1024, 2047})
+    @DisplayName("Surrogate pair that does not fit into the rest of the buffer grows it")
+    void surrogatePairAtBufferBoundary(int prefixLength) {
+        String line = "x".repeat(prefixLength) + "😀";
+        byte[] bytes = (line + "\n" + line).getBytes(StandardCharsets.UTF_8);
+
+        assertThat(assertTimeoutPreemptively(Duration.ofSeconds(5), () -> split(bytes, 4096)))
+                .containsExactly(line, line);
+    }
+
+    @Test
+    @DisplayName("Malformed input throws CharacterCodingException")
+    void malformedInputThrows() {
+        assertThatExceptionOfType(CharacterCodingException.class)
+                .isThrownBy(() -> split(new byte[]{'a', (byte) 0xFF, '\n'}, 1));
+    }
+
+    @Test
+    @DisplayName("Truncated multibyte character at the end throws CharacterCodingException")
+    void truncatedCharacterThrows() {
+        assertThatExceptionOfType(CharacterCodingException.class)
+                .isThrownBy(() -> split(new byte[]{'a', (byte) 0xD0}, 1));
+    }
+}
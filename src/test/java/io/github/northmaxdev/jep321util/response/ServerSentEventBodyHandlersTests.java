@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ServerSentEventBodyHandlersTests {
+
+    private static List<ByteBuffer> batch(String s) {
+        return List.of(ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /* Feeds every chunk, completes the body and returns the stream together with the events it published */
+    private static Result parse(String lastEventId, String... chunks) {
+        BodySubscriber<ServerSentEventStream> subscriber = ServerSentEventBodyHandlers.ofPublisher(lastEventId)
+                .apply(FakeResponseInfo.withHeaders("Content-Type", "text/event-stream"));
+        subscriber.onSubscribe(new FakeSubscription());
+        ServerSentEventStream stream = subscriber.getBody().toCompletableFuture().join();
+        RecordingSubscriber downstream = new RecordingSubscriber();
+        stream.subscribe(downstream);
+        downstream.subscription.request(Long.MAX_VALUE);
+        for (String chunk : chunks) {
+            subscriber.onNext(batch(chunk));
+        }
+        subscriber.onComplete();
+        assertThat(downstream.completed).isTrue();
+        return new Result(stream, downstream.items);
+    }
+
+    private record Result(ServerSentEventStream stream, List<ServerSentEvent> events) {}
+
+    @Nested
+    @DisplayName("Method: ofPublisher()")
+    class OfPublisher {
+
+        @Test
+        @DisplayName("Fields are parsed and events are dispatched on blank lines")
+        void fieldsAreParsed() {
+            Result result = parse("", "data: hello\n\nevent: update\ndata: {\"a\":1}\nid: 7\n\n");
+
+            assertThat(result.events()).containsExactly(
+                    new ServerSentEvent("message", "hello", ""),
+                    new ServerSentEvent("update", "{\"a\":1}", "7"));
+        }
+
+        @Test
+        @DisplayName("Multiple data fields are joined by a line feed")
+        void multipleDataFieldsAreJoined() {
+            Result result = parse("", "data: first\ndata\ndata:  third\n\n");
+
+            assertThat(result.events()).containsExactly(new ServerSentEvent("message", "first\n\n third", ""));
+        }
+
+        @Test
+        @DisplayName("Comments, unknown fields and events without data are ignored")
+        void irrelevantLinesAreIgnored() {
+            Result result = parse("", ": keep-alive\n\nevent: ping\n\nfoo: bar\ndata: x\n\n");
+
+            assertThat(result.events()).containsExactly(new ServerSentEvent("message", "x", ""));
+        }
+
+        @Test
+        @DisplayName("Last event ID persists across events until changed or reset")
+        void lastEventIdPersists() {
+            Result result = parse("", "id: 1\ndata: a\n\ndata: b\n\nid\ndata: c\n\nid: x\0y\ndata: d\n\n");
+
+            assertThat(result.events()).extracting(ServerSentEvent::id).containsExactly("1", "1", "", "");
+            assertThat(result.stream().lastEventId()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Retry field sets the reconnection time only if it consists of digits")
+        void retryIsParsed() {
+            assertThat(parse("", "retry: 2500\n").stream().retry()).hasValue(Duration.ofMillis(2500));
+            assertThat(parse("", "retry: 2500\nretry: 1s\n").stream().retry()).hasValue(Duration.ofMillis(2500));
+            assertThat(parse("", "retry: soon\n").stream().retry()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Leading byte order mark is skipped")
+        void byteOrderMarkIsSkipped() {
+            Result result = parse("", "\uFEFFdata: a\n\n");
+
+            assertThat(result.events()).containsExactly(new ServerSentEvent("message", "a", ""));
+        }
+
+        @Test
+        @DisplayName("Events split across chunks and line terminators are reassembled")
+        void chunkBoundariesAreHandled() {
+            Result result = parse("", "da", "ta: café\r", "\n\r", "event: e\rdata: 2\r\r");
+
+            assertThat(result.events()).containsExactly(
+                    new ServerSentEvent("message", "café", ""),
+                    new ServerSentEvent("e", "2", ""));
+        }
+
+        @Test
+        @DisplayName("Data line longer than the initial buffer with a surrogate pair at its boundary is parsed")
+        void longDataLineWithSurrogatePair() {
+            String data = "x".repeat(1017) + "\uD83D\uDE00"; /* "data: " + 1017 chars leave one char for the pair */
+
+            Result result = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> parse("", "data: " + data + "\n\n"));
+
+            assertThat(result.events()).containsExactly(new ServerSentEvent("message", data, ""));
+        }
+
+        @Test
+        @DisplayName("Incomplete event at the end of the body is discarded")
+        void incompleteEventIsDiscarded() {
+            Result result = parse("", "data: a\n\ndata: b\n");
+
+            assertThat(result.events()).containsExactly(new ServerSentEvent("message", "a", ""));
+        }
+
+        @Test
+        @DisplayName("Malformed UTF-8 is replaced")
+        void malformedInputIsReplaced() {
+            BodySubscriber<ServerSentEventStream> subscriber = ServerSentEventBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/event-stream"));
+            subscriber.onSubscribe(new FakeSubscription());
+            RecordingSubscriber downstream = new RecordingSubscriber();
+            subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+            downstream.subscription.request(1);
+
+            subscriber.onNext(List.of(ByteBuffer.wrap(new byte[]{'d', 'a', 't', 'a', ':', (byte) 0xFF, '\n', '\n'})));
+            subscriber.onComplete();
+
+            assertThat(downstream.items).containsExactly(new ServerSentEvent("message", "\uFFFD", ""));
+            assertThat(downstream.error).isNull();
+        }
+
+        @Test
+        @DisplayName("Events are delivered according to demand")
+        void demandIsHonored() {
+            BodySubscriber<ServerSentEventStream> subscriber = ServerSentEventBodyHandlers.ofPublisher()
+                    .apply(FakeResponseInfo.withHeaders("Content-Type", "text/event-stream"));
+            FakeSubscription upstream = new FakeSubscription();
+            subscriber.onSubscribe(upstream);
+            RecordingSubscriber downstream = new RecordingSubscriber();
+            subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+
+            downstream.subscription.request(1);
+            subscriber.onNext(batch("data: a\n\ndata: b\n\n"));
+            assertThat(downstream.items).extracting(ServerSentEvent::data).containsExactly("a");
+            assertThat(upstream.requested()).isEqualTo(1);
+
+            downstream.subscription.request(1);
+            assertThat(downstream.items).extracting(ServerSentEvent::data).containsExactly("a", "b");
+        }
+    }
+
+    @Nested
+    @DisplayName("Method: ofPublisher(String)")
+    class OfPublisherWithLastEventId {
+
+        @Test
+        @DisplayName("Events carry the given last event ID until the server sends a new one")
+        void lastEventIdIsResumed() {
+            Result result = parse("41", "data: a\n\nid: 42\ndata: b\n\n");
+
+            assertThat(result.events()).extracting(ServerSentEvent::id).containsExactly("41", "42");
+            assertThat(result.stream().lastEventId()).hasValue("42");
+        }
+
+        @Test
+        @DisplayName("Null last event ID causes NullPointerException")
+        void nullLastEventIdThrows() {
+            assertThatNullPointerException().isThrownBy(() -> ServerSentEventBodyHandlers.ofPublisher(null));
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ServerSentEvent> {
+
+        private final List<ServerSentEvent> items = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ServerSentEvent item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Maxim Altoukhov
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.northmaxdev.jep321util.response;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class SpillingBodyHandlersTests {
+
+    private static final int THRESHOLD = 1000;
+
+    @TempDir
+    Path directory;
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private BodySubscriber<SpooledBody> deliver(ResponseInfo info, byte[] body, int chunkSize) {
+        BodySubscriber<SpooledBody> subscriber = SpillingBodyHandlers.of(THRESHOLD, directory).apply(info);
+        subscriber.onSubscribe(new FakeSubscription());
+        for (int i = 0; i < body.length; i += chunkSize) {
+            byte[] chunk = Arrays.copyOfRange(body, i, Math.min(body.length, i + chunkSize));
+            subscriber.onNext(List.of(ByteBuffer.wrap(chunk), ByteBuffer.allocate(0)));
+        }
+        subscriber.onComplete();
+        return subscriber;
+    }
+
+    private static byte[] readStream(SpooledBody body) throws IOException {
+        try (InputStream in = body.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] readChannel(SpooledBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(333);
+        try (ReadableByteChannel channel = body.openChannel()) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                out.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private long temporaryFileCount() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Body under the threshold stays in memory")
+    void smallBodyStaysInMemory() throws IOException {
+        byte[] expected = randomBytes(THRESHOLD);
+
+        try (SpooledBody body = deliver(FakeResponseInfo.withHeaders(), expected, 100).getBody()
+                .toCompletableFuture().join()) {
+            assertThat(body.isSpilled()).isFalse();
+            assertThat(body.spillFile()).isEmpty();
+            assertThat(body.size()).isEqualTo(THRESHOLD);
+            assertThat(readStream(body)).isEqualTo(expected);
+            assertThat(readChannel(body)).isEqualTo(expected);
+        }
+        assertThat(temporaryFileCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Body over the threshold is spilled and read back whole")
+    void largeBodyIsSpilled() throws IOException {
+        byte[] expected = randomBytes(10_000);
+
+        SpooledBody body = deliver(FakeResponseInfo.withHeaders(), expected, 300).getBody()
+                .toCompletableFuture().join();
+        try (body) {
+            assertThat(body.isSpilled()).isTrue();
+            assertThat(body.size()).isEqualTo(10_000);
+            assertThat(Files.size(body.spillFile().orElseThrow())).isEqualTo(10_000 - 900);
+            assertThat(readStream(body)).isEqualTo(expected);
+            assertThat(readChannel(body)).isEqualTo(expected);
+        }
+
+        assertThat(temporaryFileCount()).isZero();
+        assertThatIllegalStateException().isThrownBy(body::openStream);
+        assertThatIllegalStateException().isThrownBy(body::openChannel);
+    }
+
+    @Test
+    @DisplayName("Body announced to be over the threshold is spilled entirely")
+    void announcedLargeBodyIsSpilledEntirely() throws IOException {
+        byte[] expected = randomBytes(5000);
+        ResponseInfo info = FakeResponseInfo.withHeaders("Content-Length", "5000");
+
+        try (SpooledBody body = deliver(info, expected, 4096).getBody().toCompletableFuture().join()) {
+            assertThat(Files.size(body.spillFile().orElseThrow())).isEqualTo(5000);
+            assertThat(readStream(body)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("Failed body deletes the temporary file")
+    void failedBodyDeletesFile() throws IOException {
+        BodySubscriber<SpooledBody> subscriber = SpillingBodyHandlers.of(THRESHOLD, directory)
+                .apply(FakeResponseInfo.withHeaders());
+        subscriber.onSubscribe(new FakeSubscription());
+        subscriber.onNext(List.of(ByteBuffer.wrap(randomBytes(5000))));
+        assertThat(temporaryFileCount()).isOne();
+
+        subscriber.onError(new IOException("connection reset"));
+
+        assertThat(subscriber.getBody().toCompletableFuture()).isCompletedExceptionally();
+        assertThat(temporaryFileCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Illegal threshold throws IllegalArgumentException")
+    void illegalThresholdThrows() {
+        assertThatIllegalArgumentException().isThrownBy(() -> SpillingBodyHandlers.of(-1));
+    }
+}